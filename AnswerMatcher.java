@@ -0,0 +1,245 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * AnswerMatcher decides whether a player's answer to a puzzle is right. A puzzle
+ * compiles the answers it accepts into a matcher once, when it is created (i.e.
+ * when its world is loaded), so an attempt only runs the matcher on what the
+ * player typed.
+ *
+ * Matchers get the raw input and ignore leading and trailing whitespace
+ * themselves, so they do not copy it. Most compare it in place and allocate
+ * nothing per attempt.
+ *
+ * Normalized answers are lower-case, with every run of whitespace inside them
+ * read as one space: "Grand  Piano" and "grand piano" are the same answer.
+ * Whitespace is what String.trim removes (characters up to ' ').
+ */
+@FunctionalInterface
+public interface AnswerMatcher {
+
+    /**
+     * Check an answer (not empty, possibly with surrounding whitespace).
+     */
+    boolean matches(String answer);
+
+    /**
+     * Accept exactly this answer, case-sensitive (codes).
+     */
+    static AnswerMatcher exact(String answer) {
+        String expected = answer.trim();
+        return input -> {
+            if (input.length() <= expected.length()) {
+                return input.equals(expected); // no room for whitespace around it
+            }
+            int start = start(input);
+            int end = end(input, start);
+            return end - start == expected.length() && input.regionMatches(start, expected, 0, expected.length());
+        };
+    }
+
+    /**
+     * Accept any of these answers, normalized and ignoring case. The answers are
+     * normalized here and the input is first compared in place with
+     * String.regionMatches, which is exact unless the input needs normalizing
+     * (whitespace runs or tabs); only then is it normalized as it is compared.
+     */
+    static AnswerMatcher synonyms(String... answers) {
+        String[] expected = new String[answers.length];
+        for (int i = 0; i < answers.length; i++) {
+            expected[i] = normalize(answers[i]);
+        }
+        return input -> {
+            int start = start(input);
+            int end = end(input, start);
+            for (String answer : expected) {
+                if (end - start == answer.length() && input.regionMatches(true, start, answer, 0, answer.length())) {
+                    return true;
+                }
+            }
+            if (isNormalized(input, start, end)) {
+                return false;
+            }
+            for (String answer : expected) {
+                if (equalsNormalized(answer, input, start, end)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Accept any whole number from min to max (inclusive), in decimal with an
+     * optional sign. The input is parsed in place.
+     */
+    static AnswerMatcher range(long min, long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("empty range: " + min + ".." + max);
+        }
+        return input -> {
+            int start = start(input);
+            int end = end(input, start);
+            boolean negative = start < end && input.charAt(start) == '-';
+            int i = start < end && (negative || input.charAt(start) == '+') ? start + 1 : start;
+            if (i == end) {
+                return false;
+            }
+            long value = 0;
+            for (; i < end; i++) {
+                int digit = input.charAt(i) - '0';
+                if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                    return false; // not a number, or too large for any range
+                }
+                value = value * 10 + digit;
+            }
+            value = negative ? -value : value;
+            return value >= min && value <= max;
+        };
+    }
+
+    /**
+     * Accept answers that match a regular expression as a whole, ignoring case.
+     * The expression is compiled here, once.
+     */
+    static AnswerMatcher pattern(String regex) {
+        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return input -> pattern.matcher(input.trim()).matches();
+    }
+
+    /**
+     * Accept the answer whose normalized form has this SHA-256 digest (hex), so the
+     * world file does not give the answer away. Digests are compared in constant
+     * time.
+     */
+    static AnswerMatcher hashed(String sha256) {
+        byte[] expected = fromHex(sha256);
+        if (expected.length != 32) {
+            throw new IllegalArgumentException("not a SHA-256 digest: " + sha256);
+        }
+        return input -> MessageDigest.isEqual(expected, digest(input));
+    }
+
+    /**
+     * The hex SHA-256 digest of an answer as hashed() expects it, for world authors.
+     */
+    static String hash(String answer) {
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : digest(answer)) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Normalize an answer: trimmed, lower-case, inner whitespace runs as one space.
+     */
+    static String normalize(String answer) {
+        StringBuilder sb = new StringBuilder(answer.length());
+        int start = start(answer);
+        int end = end(answer, start);
+        for (int i = start; i < end; i++) {
+            char c = answer.charAt(i);
+            if (isSpace(c)) {
+                if (!isSpace(answer.charAt(i - 1))) {
+                    sb.append(' ');
+                }
+            } else {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    // ---------------- in-place helpers ----------------
+
+    private static boolean isSpace(char c) {
+        return c <= ' ';
+    }
+
+    /** Index of the first non-space character (the length if there is none). */
+    private static int start(String s) {
+        int i = 0;
+        while (i < s.length() && isSpace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Index after the last non-space character, at least start. */
+    private static int end(String s, int start) {
+        int i = s.length();
+        while (i > start && isSpace(s.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Check that the trimmed range of the input has no whitespace but single spaces,
+     * i.e. that normalizing it would only change its case.
+     */
+    private static boolean isNormalized(String input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < ' ' || (c == ' ' && input.charAt(i - 1) == ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare a normalized answer with the trimmed range of the input, ignoring
+     * case and normalizing the input as it is read.
+     */
+    private static boolean equalsNormalized(String expected, String input, int start, int end) {
+        int j = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (isSpace(c)) {
+                if (isSpace(input.charAt(i - 1))) {
+                    continue;
+                }
+                c = ' ';
+            }
+            if (j == expected.length()) {
+                return false;
+            }
+            char e = expected.charAt(j++);
+            // the same comparison as String.equalsIgnoreCase
+            if (c != e && Character.toUpperCase(c) != Character.toUpperCase(e)
+                    && Character.toLowerCase(c) != Character.toLowerCase(e)) {
+                return false;
+            }
+        }
+        return j == expected.length();
+    }
+
+    private static byte[] digest(String answer) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(normalize(answer).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // every JVM has it
+        }
+    }
+
+    private static byte[] fromHex(String hex) {
+        String s = hex.trim();
+        if (s.length() % 2 != 0) {
+            throw new IllegalArgumentException("not a hex digest: " + hex);
+        }
+        byte[] bytes = new byte[s.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int hi = Character.digit(s.charAt(2 * i), 16);
+            int lo = Character.digit(s.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("not a hex digest: " + hex);
+            }
+            bytes[i] = (byte) (hi << 4 | lo);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * AnswerPuzzle - a puzzle with a question and any AnswerMatcher, for puzzle kinds
+ * that need no class of their own (numbers in a range, patterns, hashed answers;
+ * see PuzzleTypes).
+ */
+public class AnswerPuzzle extends Puzzle {
+    private String question;
+    private String acceptedAnswer; // null if only a hash of the answer is known
+
+    public AnswerPuzzle(String name, int difficulty, String question, AnswerMatcher matcher,
+            String acceptedAnswer) {
+        super(name, difficulty, matcher);
+        this.question = question;
+        this.acceptedAnswer = acceptedAnswer;
+    }
+
+    @Override
+    public void present(GameOutput out) {
+        out.println("Question: " + question);
+        if (acceptedAnswer != null) {
+            out.println("Hack answer: " + acceptedAnswer);
+        }
+    }
+
+    @Override
+    public String getAcceptedAnswer() {
+        return acceptedAnswer;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+}
@@ -5,28 +5,31 @@ public class CodePuzzle extends Puzzle {
     private String correctCode;
 
     public CodePuzzle(String name, int difficulty, String correctCode) {
-        super(name, difficulty);
+        super(name, difficulty, AnswerMatcher.exact(correctCode));
         this.correctCode = correctCode;
     }
 
     @Override
-    public void inspect() {
+    public void inspect(GameOutput out) {
         // Only show minimal metadata when inspecting generally.
         // Full prompt/code should only be shown when the player chooses to solve.
-        super.inspect();
+        super.inspect(out);
     }
 
     @Override
-    public boolean attemptSolve(String playerCode) throws InvalidPuzzleAnswerException {
-        if (playerCode == null || playerCode.trim().isEmpty()) {
-            throw new InvalidPuzzleAnswerException("Code cannot be empty!");
-        }
+    public void present(GameOutput out) {
+        out.println("Enter the code to unlock...");
+        out.println("Hack answer: " + correctCode);
+    }
+
+    @Override
+    protected String getEmptyAnswerMessage() {
+        return "Code cannot be empty!";
+    }
 
-        if (playerCode.trim().equals(correctCode)) {
-            solved = true;
-            return true;
-        }
-        return false;
+    @Override
+    public String getAcceptedAnswer() {
+        return correctCode;
     }
 
     /**
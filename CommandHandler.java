@@ -0,0 +1,11 @@
+/**
+ * Interface for the handler of one command verb.
+ */
+public interface CommandHandler {
+    /**
+     * Run the command on a game.
+     * @return true if the command used up a turn
+     */
+    boolean execute(GameEngine game, CommandLine cmd)
+            throws InvalidCommandException, LockedRoomException, InvalidPuzzleAnswerException;
+}
@@ -0,0 +1,80 @@
+/**
+ * CommandLine is a reusable tokenizer for one line of player input.
+ * Instead of splitting the line it records where the verb and the argument
+ * start and end, so parsing a command allocates nothing. The argument string
+ * is only created if a command asks for it.
+ */
+public class CommandLine {
+    private String line;
+    private int verbStart;
+    private int verbEnd;
+    private int argStart;
+    private int argEnd;
+
+    public CommandLine() {
+        this.line = ""; // an empty line: every range is 0..0
+    }
+
+    /**
+     * Tokenize a line: leading/trailing whitespace is ignored, the verb is the first
+     * word and the argument is everything after the whitespace that follows it.
+     * @return this, for chaining
+     */
+    public CommandLine parse(String input) {
+        line = input;
+        int end = input.length();
+        while (end > 0 && Character.isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+        int i = 0;
+        while (i < end && Character.isWhitespace(input.charAt(i))) {
+            i++;
+        }
+        verbStart = i;
+        while (i < end && !Character.isWhitespace(input.charAt(i))) {
+            i++;
+        }
+        verbEnd = i;
+        while (i < end && Character.isWhitespace(input.charAt(i))) {
+            i++;
+        }
+        argStart = i;
+        argEnd = end;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return verbStart == verbEnd;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public int getVerbStart() {
+        return verbStart;
+    }
+
+    public int getVerbEnd() {
+        return verbEnd;
+    }
+
+    public boolean hasArgument() {
+        return argStart < argEnd;
+    }
+
+    /**
+     * Get the argument as a string ("" if there is none). This is the only
+     * method that allocates.
+     */
+    public String getArgument() {
+        return hasArgument() ? line.substring(argStart, argEnd) : "";
+    }
+
+    /**
+     * Compare the argument with a word, ignoring case, without allocating.
+     */
+    public boolean argumentIs(String word) {
+        return argEnd - argStart == word.length() && line.regionMatches(true, argStart, word, 0, word.length());
+    }
+}
@@ -0,0 +1,333 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * CommandMetrics counts what the game engines of a process do: how often each
+ * verb runs and how long it takes, how often it fails, how many moves are
+ * refused at a locked door, and how many answers are given (and wrong) per
+ * puzzle. Any number of sessions can record into one instance at the same time;
+ * all counters are LongAdders and latencies go to a LatencyHistogram per verb,
+ * so nothing is locked.
+ *
+ * register() publishes the numbers as JMX MXBeans (jconsole, VisualVM, jcmd):
+ *   <domain>:type=Engine                  counters and per-puzzle attempts/failures
+ *   <domain>:type=Command,verb=<verb>     count, errors and latency percentiles
+ */
+public class CommandMetrics {
+    public static final String DEFAULT_DOMAIN = "EscapeRoom";
+
+    private final List<String> verbs;
+    private final VerbStats[] commands; // by verb index (CommandTable order)
+    private final LongAdder invalidCommands = new LongAdder();
+    private final LongAdder lockedDoors = new LongAdder();
+    private final LongAdder wrongAnswers = new LongAdder();
+    private final ConcurrentHashMap<Puzzle, PuzzleStats> puzzles = new ConcurrentHashMap<>();
+    private final ArrayList<ObjectName> registered = new ArrayList<>();
+
+    /**
+     * Create metrics for the verbs of GameEngine.
+     */
+    public CommandMetrics() {
+        this(GameEngine.getVerbs());
+    }
+
+    public CommandMetrics(List<String> verbs) {
+        this.verbs = List.copyOf(verbs);
+        this.commands = new VerbStats[verbs.size()];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new VerbStats(verbs.get(i));
+        }
+    }
+
+    // ---------------- recording ----------------
+
+    /**
+     * Record a finished command.
+     * @param verb index of the verb
+     * @param nanos time spent in the command, not counting time waiting for input
+     * @param failed true if the command ended with an error
+     */
+    public void command(int verb, long nanos, boolean failed) {
+        VerbStats stats = commands[verb];
+        stats.latency.record(nanos);
+        if (failed) {
+            stats.errors.increment();
+        }
+    }
+
+    public void invalidCommand() {
+        invalidCommands.increment();
+    }
+
+    public void lockedDoor() {
+        lockedDoors.increment();
+    }
+
+    /**
+     * Record an answer given to a puzzle.
+     */
+    public void puzzleAttempt(Puzzle puzzle, boolean correct) {
+        PuzzleStats stats = puzzles.computeIfAbsent(puzzle, p -> new PuzzleStats());
+        stats.attempts.increment();
+        if (!correct) {
+            stats.failures.increment();
+            wrongAnswers.increment();
+        }
+    }
+
+    // ---------------- reading ----------------
+
+    public LatencyHistogram getLatency(String verb) {
+        int i = verbs.indexOf(verb);
+        return i < 0 ? null : commands[i].latency;
+    }
+
+    public long getLockedDoorRejections() {
+        return lockedDoors.sum();
+    }
+
+    public long getWrongAnswers() {
+        return wrongAnswers.sum();
+    }
+
+    public long getInvalidCommands() {
+        return invalidCommands.sum();
+    }
+
+    public long getCommandCount() {
+        long n = 0;
+        for (VerbStats stats : commands) {
+            n += stats.latency.getCount();
+        }
+        return n;
+    }
+
+    /**
+     * Attempts (or failures) per puzzle, keyed by "name #id".
+     */
+    public Map<String, Long> getPuzzleAttempts(boolean failuresOnly) {
+        TreeMap<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Puzzle, PuzzleStats> e : puzzles.entrySet()) {
+            PuzzleStats stats = e.getValue();
+            result.put(e.getKey().getName() + " #" + e.getKey().getId(),
+                    (failuresOnly ? stats.failures : stats.attempts).sum());
+        }
+        return result;
+    }
+
+    /**
+     * Start counting from zero again.
+     */
+    public void reset() {
+        for (VerbStats stats : commands) {
+            stats.latency.reset();
+            stats.errors.reset();
+        }
+        invalidCommands.reset();
+        lockedDoors.reset();
+        wrongAnswers.reset();
+        puzzles.clear();
+    }
+
+    /**
+     * One line per verb that has run: count, errors and latency percentiles in µs.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-10s %10s %7s %9s %9s %9s %9s%n", "verb", "count", "errors", "p50 us", "p99 us",
+                "p99.9 us", "max us"));
+        for (VerbStats stats : commands) {
+            LatencyHistogram h = stats.latency;
+            if (h.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format("%-10s %10d %7d %9.1f %9.1f %9.1f %9.1f%n", stats.verb, h.getCount(),
+                    stats.errors.sum(), h.getPercentile(0.5) / 1e3, h.getPercentile(0.99) / 1e3,
+                    h.getPercentile(0.999) / 1e3, h.getMax() / 1e3));
+        }
+        sb.append("invalid commands: ").append(getInvalidCommands())
+                .append(", locked doors: ").append(getLockedDoorRejections())
+                .append(", wrong answers: ").append(getWrongAnswers()).append('\n');
+        return sb.toString();
+    }
+
+    // ---------------- JMX ----------------
+
+    /**
+     * Publish these metrics on the platform MBean server under the given domain.
+     * @throws JMException if the names are taken (e.g. by another server in this process)
+     */
+    public synchronized void register(String domain) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName engine = new ObjectName(domain + ":type=Engine");
+        server.registerMBean(new EngineView(), engine);
+        registered.add(engine);
+        for (VerbStats stats : commands) {
+            ObjectName name = new ObjectName(domain + ":type=Command,verb=" + ObjectName.quote(stats.verb));
+            server.registerMBean(stats, name);
+            registered.add(name);
+        }
+    }
+
+    /**
+     * Remove the MXBeans published by register().
+     */
+    public synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // already gone
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * JMX view of the engine-wide counters.
+     */
+    public interface EngineMXBean {
+        long getCommands();
+
+        long getInvalidCommands();
+
+        long getLockedDoorRejections();
+
+        long getWrongAnswers();
+
+        Map<String, Long> getPuzzleAttempts();
+
+        Map<String, Long> getPuzzleFailures();
+
+        void reset();
+    }
+
+    /**
+     * JMX view of one verb. Latencies are in microseconds.
+     */
+    public interface CommandMXBean {
+        String getVerb();
+
+        long getCount();
+
+        long getErrors();
+
+        double getMeanMicros();
+
+        double getP50Micros();
+
+        double getP90Micros();
+
+        double getP99Micros();
+
+        double getP999Micros();
+
+        double getMaxMicros();
+    }
+
+    private final class EngineView implements EngineMXBean {
+        @Override
+        public long getCommands() {
+            return getCommandCount();
+        }
+
+        @Override
+        public long getInvalidCommands() {
+            return CommandMetrics.this.getInvalidCommands();
+        }
+
+        @Override
+        public long getLockedDoorRejections() {
+            return CommandMetrics.this.getLockedDoorRejections();
+        }
+
+        @Override
+        public long getWrongAnswers() {
+            return CommandMetrics.this.getWrongAnswers();
+        }
+
+        @Override
+        public Map<String, Long> getPuzzleAttempts() {
+            return CommandMetrics.this.getPuzzleAttempts(false);
+        }
+
+        @Override
+        public Map<String, Long> getPuzzleFailures() {
+            return CommandMetrics.this.getPuzzleAttempts(true);
+        }
+
+        @Override
+        public void reset() {
+            CommandMetrics.this.reset();
+        }
+    }
+
+    private static final class VerbStats implements CommandMXBean {
+        final String verb;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        VerbStats(String verb) {
+            this.verb = verb;
+        }
+
+        @Override
+        public String getVerb() {
+            return verb;
+        }
+
+        @Override
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency.getMean() / 1e3;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return latency.getPercentile(0.5) / 1e3;
+        }
+
+        @Override
+        public double getP90Micros() {
+            return latency.getPercentile(0.9) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return latency.getPercentile(0.99) / 1e3;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return latency.getPercentile(0.999) / 1e3;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return latency.getMax() / 1e3;
+        }
+    }
+
+    private static final class PuzzleStats {
+        final LongAdder attempts = new LongAdder();
+        final LongAdder failures = new LongAdder();
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CommandTable maps command verbs to their handlers. Besides the full verb and
+ * an optional short alias (e.g. "l" for "look"), every prefix that identifies
+ * exactly one verb is accepted ("inv", "pick", "so").
+ *
+ * All accepted spellings are computed once in build() and stored in an
+ * open-addressing table, so resolving a verb hashes the characters of the input
+ * line in place and allocates nothing.
+ */
+public class CommandTable {
+    private ArrayList<String> verbs;
+    private ArrayList<String> aliases;
+    private ArrayList<CommandHandler> handlers;
+
+    // lookup table built by build(): slot -> key, verb index (-1 = empty)
+    private String[] keys;
+    private int[] targets;
+    private int mask;
+
+    public CommandTable() {
+        this.verbs = new ArrayList<>();
+        this.aliases = new ArrayList<>();
+        this.handlers = new ArrayList<>();
+    }
+
+    /**
+     * Register a verb with an optional alias (null for none).
+     * @return this, for chaining
+     */
+    public CommandTable register(String verb, String alias, CommandHandler handler) {
+        verbs.add(verb.toLowerCase());
+        aliases.add(alias == null ? null : alias.toLowerCase());
+        handlers.add(handler);
+        keys = null;
+        return this;
+    }
+
+    /**
+     * Compute every accepted spelling. Explicit aliases and full verbs win over
+     * prefixes; a prefix shared by several verbs is not accepted.
+     * @return this, for chaining
+     */
+    public CommandTable build() {
+        HashMap<String, Integer> spellings = new HashMap<>();
+        HashMap<String, Integer> prefixCount = new HashMap<>();
+        for (String verb : verbs) {
+            for (int len = 1; len < verb.length(); len++) {
+                prefixCount.merge(verb.substring(0, len), 1, Integer::sum);
+            }
+        }
+        for (int v = 0; v < verbs.size(); v++) {
+            String verb = verbs.get(v);
+            for (int len = 1; len < verb.length(); len++) {
+                String prefix = verb.substring(0, len);
+                if (prefixCount.get(prefix) == 1) {
+                    spellings.put(prefix, v);
+                }
+            }
+        }
+        for (int v = 0; v < verbs.size(); v++) {
+            spellings.put(verbs.get(v), v);
+        }
+        for (int v = 0; v < verbs.size(); v++) {
+            if (aliases.get(v) != null) {
+                spellings.put(aliases.get(v), v);
+            }
+        }
+
+        int capacity = 16;
+        while (capacity < spellings.size() * 2) {
+            capacity *= 2;
+        }
+        keys = new String[capacity];
+        targets = new int[capacity];
+        mask = capacity - 1;
+        for (Map.Entry<String, Integer> e : spellings.entrySet()) {
+            String key = e.getKey();
+            int slot = hash(key, 0, key.length()) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            targets[slot] = e.getValue();
+        }
+        return this;
+    }
+
+    /**
+     * Find the handler for the verb of a command line, or null if the verb is unknown.
+     */
+    public CommandHandler lookup(CommandLine cmd) {
+        int v = resolve(cmd.getLine(), cmd.getVerbStart(), cmd.getVerbEnd());
+        return v < 0 ? null : handlers.get(v);
+    }
+
+    /**
+     * Find the index of the verb of a command line (in registration order), or -1
+     * if the verb is unknown.
+     */
+    public int indexOf(CommandLine cmd) {
+        return resolve(cmd.getLine(), cmd.getVerbStart(), cmd.getVerbEnd());
+    }
+
+    public CommandHandler getHandler(int verb) {
+        return handlers.get(verb);
+    }
+
+    /**
+     * Get the registered verbs, in registration order.
+     */
+    public List<String> getVerbs() {
+        return Collections.unmodifiableList(verbs);
+    }
+
+    /**
+     * Get the full verb a spelling stands for (e.g. "inv" -> "inventory"), or null.
+     */
+    public String resolveVerb(String spelling) {
+        int v = resolve(spelling, 0, spelling.length());
+        return v < 0 ? null : verbs.get(v);
+    }
+
+    private int resolve(String line, int start, int end) {
+        if (keys == null) {
+            build();
+        }
+        if (start == end) {
+            return -1;
+        }
+        int slot = hash(line, start, end) & mask;
+        while (keys[slot] != null) {
+            String key = keys[slot];
+            if (key.length() == end - start && key.regionMatches(true, 0, line, start, end - start)) {
+                return targets[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toLowerCase(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * ConsoleOutputSink writes a session's output to standard output.
+ */
+public class ConsoleOutputSink implements OutputSink {
+    @Override
+    public void write(CharSequence text) {
+        System.out.append(text);
+        System.out.flush();
+    }
+}
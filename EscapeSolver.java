@@ -0,0 +1,856 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * EscapeSolver finds the shortest way out of a world: the command sequence that
+ * wins the game in the fewest turns (turns are counted by "move" and "back",
+ * like GameEngine.turnCounter).
+ *
+ * A search state is the current room plus a bitmask of the player's progress:
+ * - relevant items held and taken (keys and required items)
+ * - locked doors opened (Room.requiredKey, the key is used up)
+ * - relevant puzzles solved (those that reveal connections, spawn relevant
+ *   items, or count for a goal room such as 5B)
+ * Picking up relevant items and solving relevant puzzles never hurts and costs
+ * no turn, so after every move the solver does all of it that is in reach (the
+ * game finds items and puzzles in subrooms of the current room, too), skipping
+ * puzzles that would no longer change anything. Only moves branch the search.
+ *
+ * The search is A* (BFS with a distance-to-exit lower bound) over a
+ * transposition table of visited states. With parallel(true) it runs as a
+ * level-by-level BFS whose levels are expanded on a fork-join pool; the result is
+ * the same as the sequential BFS.
+ *
+ * "back" returns to the room on top of the player's move history. Each search
+ * node keeps its own history chain, so every plan the solver returns can be
+ * played as is; the history is not part of the state key, so plans that only
+ * work through a different history may be missed.
+ *
+ * Usage: java EscapeSolver [--world file | --generate rooms seed] [--bfs] [--parallel] [--show]
+ */
+public class EscapeSolver {
+
+    /**
+     * A solved (or unsolvable) world.
+     */
+    public static class Solution {
+        private final List<String> commands; // input lines, including puzzle answers; null if unsolvable
+        private final int turns;
+        private final int statesExplored;
+        private final int statesStored;
+
+        Solution(List<String> commands, int turns, int statesExplored, int statesStored) {
+            this.commands = commands;
+            this.turns = turns;
+            this.statesExplored = statesExplored;
+            this.statesStored = statesStored;
+        }
+
+        public boolean isSolvable() {
+            return commands != null;
+        }
+
+        /**
+         * The winning input lines (commands and puzzle answers), or null.
+         */
+        public List<String> getCommands() {
+            return commands;
+        }
+
+        /**
+         * Turns the winning sequence takes, or -1.
+         */
+        public int getTurns() {
+            return turns;
+        }
+
+        public int getStatesExplored() {
+            return statesExplored;
+        }
+
+        public int getStatesStored() {
+            return statesStored;
+        }
+    }
+
+    /**
+     * Visited state: room and progress bits.
+     */
+    private static final class StateKey {
+        final int room;
+        final long[] bits;
+        final int hash;
+
+        StateKey(int room, long[] bits) {
+            this.room = room;
+            this.bits = bits;
+            this.hash = 31 * Arrays.hashCode(bits) + room;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey)) {
+                return false;
+            }
+            StateKey other = (StateKey) o;
+            return room == other.room && Arrays.equals(bits, other.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A search node: a state reached by one particular sequence of moves.
+     */
+    private static final class Node {
+        final int room;
+        final long[] bits;
+        final Node parent;
+        final Node backTo;     // node to return to with "back" (top of the move history), or null
+        final String move;     // command that led here (null for the start)
+        final List<String> actions; // pickups and puzzle answers done on arrival (may be null)
+        final int turns;
+
+        Node(int room, long[] bits, Node parent, Node backTo, String move, List<String> actions, int turns) {
+            this.room = room;
+            this.bits = bits;
+            this.parent = parent;
+            this.backTo = backTo;
+            this.move = move;
+            this.actions = actions;
+            this.turns = turns;
+        }
+    }
+
+    /** An item the solver tracks: a key or a required item, in a room or spawned by a puzzle. */
+    private static final class Target {
+        final String name;
+        final boolean key;
+        final int anchor;  // room the item lies in (or appears in)
+        final int puzzle;  // relevant puzzle index that spawns it, -1 for world items
+        final boolean toInventory; // spawned straight into the inventory
+
+        Target(String name, boolean key, int anchor, int puzzle, boolean toInventory) {
+            this.name = name;
+            this.key = key;
+            this.anchor = anchor;
+            this.puzzle = puzzle;
+            this.toInventory = toInventory;
+        }
+    }
+
+    private final WorldTemplate world;
+    private final ArrayList<Room> rooms;
+    private final RoomGraph graph;
+    private boolean useHeuristic = true;
+    private boolean parallel;
+
+    // world model, built by prepare()
+    private ArrayList<Target> targets;
+    private ArrayList<Puzzle> puzzles;         // relevant puzzles
+    private int[] lockOf;                      // room id -> lock index, -1
+    private int lockCount;
+    private int heldBase;
+    private int takenBase;
+    private int unlockedBase;
+    private int solvedBase;
+    private int words;
+    private int[][] targetsAt;                 // room id -> targets within reach (room and its subrooms)
+    private int[][] puzzlesAt;                 // room id -> relevant puzzles within reach
+    private int[][] reveals;                   // relevant puzzle -> {from, to, from, to, ...}
+    private int[][] inventoryTargets;          // relevant puzzle -> targets it puts straight into the inventory
+    private boolean[] spawnsTargets;           // relevant puzzle -> spawns a tracked item
+    private int[] goalOf;                      // relevant puzzle -> puzzle goal it counts for, -1
+    private int[][] revealsFrom;               // room id -> {puzzle, to, puzzle, to, ...}
+    private int[][] keysBySymbol;              // key name symbol -> key targets, null if none
+    private int[][] requiredTargets;           // required item -> targets with that name
+    private int[][] goalPuzzles;               // goal room -> relevant puzzles in it
+    private int[] distanceToExit;              // lower bound on turns to an exit room
+
+    public EscapeSolver(WorldTemplate world) {
+        this.world = world;
+        this.rooms = world.getRooms().getRooms();
+        this.graph = world.getGraph();
+    }
+
+    /**
+     * Use plain BFS instead of A* (false = no distance heuristic).
+     * @return this, for chaining
+     */
+    public EscapeSolver heuristic(boolean useHeuristic) {
+        this.useHeuristic = useHeuristic;
+        return this;
+    }
+
+    /**
+     * Expand each BFS level on the common fork-join pool.
+     * @return this, for chaining
+     */
+    public EscapeSolver parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Find the shortest winning command sequence from the world's entrance.
+     */
+    public Solution solve() {
+        prepare();
+        Node start = arrive(world.getEntrance().getId(), new long[words], null, null, null, 0);
+        return parallel ? solveParallel(start) : solveSequential(start);
+    }
+
+    // ---------------- world model ----------------
+
+    private void prepare() {
+        WinConditions conditions = world.getWinConditions();
+        ArrayList<String> required = new ArrayList<>();
+        for (String name : conditions.getRequiredItems()) {
+            required.add(name.toLowerCase());
+        }
+
+        // Relevant puzzles: goal puzzles and puzzles whose rewards matter
+        puzzles = new ArrayList<>();
+        int[] relevant = new int[world.getPuzzles().size()];
+        Arrays.fill(relevant, -1);
+        for (Puzzle puzzle : world.getPuzzles()) {
+            boolean matters = conditions.puzzleGoalOf(puzzle) >= 0;
+            for (PuzzleReward reward : world.getRewardTable().get(puzzle)) {
+                if (reward.getType() == PuzzleReward.Type.REVEAL_CONNECTION
+                        || (reward.getType() == PuzzleReward.Type.SPAWN_ITEM && isTracked(reward.getItemName(),
+                                reward.getItemType(), required))) {
+                    matters = true;
+                }
+            }
+            // a puzzle whose answer the world only keeps as a hash cannot be solved here
+            if (matters && puzzle.getAcceptedAnswer() != null) {
+                relevant[puzzle.getId()] = puzzles.size();
+                puzzles.add(puzzle);
+            }
+        }
+
+        // Tracked items: keys and required items, in rooms or spawned by puzzles
+        targets = new ArrayList<>();
+        for (Room room : rooms) {
+            for (Item item : room.getItems()) {
+                if (isTracked(item.getName(), item.getItemType(), required)) {
+                    targets.add(new Target(item.getName(), item.getItemType() == Item.ItemType.KEY, room.getId(),
+                            -1, false));
+                }
+            }
+        }
+        ArrayList<ArrayList<Integer>> revealLists = new ArrayList<>();
+        for (int p = 0; p < puzzles.size(); p++) {
+            revealLists.add(new ArrayList<>());
+            for (PuzzleReward reward : world.getRewardTable().get(puzzles.get(p))) {
+                if (reward.getType() == PuzzleReward.Type.SPAWN_ITEM
+                        && isTracked(reward.getItemName(), reward.getItemType(), required)) {
+                    boolean toInventory = reward.getRoom() == null;
+                    targets.add(new Target(reward.getItemName(), reward.getItemType() == Item.ItemType.KEY,
+                            toInventory ? -1 : reward.getRoom().getId(), p, toInventory));
+                } else if (reward.getType() == PuzzleReward.Type.REVEAL_CONNECTION) {
+                    revealLists.get(p).add(reward.getRoom().getId());
+                    revealLists.get(p).add(reward.getTarget().getId());
+                }
+            }
+        }
+        reveals = new int[puzzles.size()][];
+        for (int p = 0; p < puzzles.size(); p++) {
+            reveals[p] = toArray(revealLists.get(p));
+        }
+        ArrayList<ArrayList<Integer>> inventoryLists = emptyLists(puzzles.size());
+        spawnsTargets = new boolean[puzzles.size()];
+        for (int t = 0; t < targets.size(); t++) {
+            Target target = targets.get(t);
+            if (target.puzzle >= 0) {
+                spawnsTargets[target.puzzle] = true;
+                if (target.toInventory) {
+                    inventoryLists.get(target.puzzle).add(t);
+                }
+            }
+        }
+        inventoryTargets = new int[puzzles.size()][];
+        goalOf = new int[puzzles.size()];
+        for (int p = 0; p < puzzles.size(); p++) {
+            inventoryTargets[p] = toArray(inventoryLists.get(p));
+            goalOf[p] = conditions.puzzleGoalOf(puzzles.get(p));
+        }
+
+        lockOf = new int[rooms.size()];
+        lockCount = 0;
+        for (int r = 0; r < rooms.size(); r++) {
+            lockOf[r] = graph.getLock(r) >= 0 && !graph.isExit(r) ? lockCount++ : -1;
+        }
+
+        heldBase = 0;
+        takenBase = targets.size();
+        unlockedBase = 2 * targets.size();
+        solvedBase = unlockedBase + lockCount;
+        words = (solvedBase + puzzles.size() + 63) / 64;
+
+        // What can be reached from each room: its own contents and its subrooms'
+        ArrayList<ArrayList<Integer>> targetLists = emptyLists(rooms.size());
+        for (int t = 0; t < targets.size(); t++) {
+            for (Room r = anchorRoom(targets.get(t)); r != null; r = r.getParent()) {
+                targetLists.get(r.getId()).add(t);
+            }
+        }
+        ArrayList<ArrayList<Integer>> puzzleLists = emptyLists(rooms.size());
+        for (int p = 0; p < puzzles.size(); p++) {
+            for (Room r = puzzles.get(p).getParent(); r != null; r = r.getParent()) {
+                puzzleLists.get(r.getId()).add(p);
+            }
+        }
+        ArrayList<ArrayList<Integer>> revealFromLists = emptyLists(rooms.size());
+        for (int p = 0; p < puzzles.size(); p++) {
+            for (int i = 0; i < reveals[p].length; i += 2) {
+                revealFromLists.get(reveals[p][i]).add(p);
+                revealFromLists.get(reveals[p][i]).add(reveals[p][i + 1]);
+            }
+        }
+        targetsAt = new int[rooms.size()][];
+        puzzlesAt = new int[rooms.size()][];
+        revealsFrom = new int[rooms.size()][];
+        for (int r = 0; r < rooms.size(); r++) {
+            targetsAt[r] = toArray(targetLists.get(r));
+            puzzlesAt[r] = toArray(puzzleLists.get(r));
+            revealsFrom[r] = toArray(revealFromLists.get(r));
+        }
+
+        NameTable names = world.getNames();
+        ArrayList<ArrayList<Integer>> keyLists = emptyLists(names.size());
+        for (int t = 0; t < targets.size(); t++) {
+            if (targets.get(t).key) {
+                keyLists.get(names.lookup(targets.get(t).name)).add(t);
+            }
+        }
+        keysBySymbol = new int[names.size()][];
+        for (int symbol = 0; symbol < keysBySymbol.length; symbol++) {
+            keysBySymbol[symbol] = keyLists.get(symbol).isEmpty() ? null : toArray(keyLists.get(symbol));
+        }
+
+        requiredTargets = new int[required.size()][];
+        for (int i = 0; i < required.size(); i++) {
+            ArrayList<Integer> list = new ArrayList<>();
+            for (int t = 0; t < targets.size(); t++) {
+                if (targets.get(t).name.equalsIgnoreCase(required.get(i))) {
+                    list.add(t);
+                }
+            }
+            requiredTargets[i] = toArray(list);
+        }
+
+        List<Room> goalRooms = conditions.getGoalRooms();
+        goalPuzzles = new int[goalRooms.size()][];
+        for (int g = 0; g < goalRooms.size(); g++) {
+            ArrayList<Integer> list = new ArrayList<>();
+            for (Puzzle puzzle : goalRooms.get(g).getPuzzles()) {
+                if (relevant[puzzle.getId()] >= 0) {
+                    list.add(relevant[puzzle.getId()]);
+                }
+            }
+            goalPuzzles[g] = toArray(list);
+        }
+
+        distanceToExit = exitDistances();
+    }
+
+    private boolean isTracked(String name, Item.ItemType type, List<String> required) {
+        return type == Item.ItemType.KEY || required.contains(name.toLowerCase());
+    }
+
+    private Room anchorRoom(Target target) {
+        return target.anchor < 0 ? null : rooms.get(target.anchor);
+    }
+
+    /**
+     * Fewest moves from each room to an exit room when every door is open and
+     * every connection revealed (a lower bound for A*). -1 if no exit is reachable.
+     */
+    private int[] exitDistances() {
+        // Revealed connections by target, so they can be followed backwards as well
+        ArrayList<ArrayList<Integer>> revealLists = emptyLists(rooms.size());
+        for (int[] pairs : reveals) {
+            for (int i = 0; i < pairs.length; i += 2) {
+                revealLists.get(pairs[i + 1]).add(pairs[i]);
+            }
+        }
+        int[][] revealsTo = new int[rooms.size()][];
+        for (int r = 0; r < rooms.size(); r++) {
+            revealsTo[r] = toArray(revealLists.get(r));
+        }
+        int[] distance = new int[rooms.size()];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[rooms.size()];
+        int head = 0;
+        int tail = 0;
+        for (int r = 0; r < rooms.size(); r++) {
+            if (graph.isExit(r)) {
+                distance[r] = 0;
+                queue[tail++] = r;
+            }
+        }
+        // Moves can be undone with "back", so every edge counts both ways
+        while (head < tail) {
+            int r = queue[head++];
+            int d = distance[r] + 1;
+            int start = graph.getConnectionStart(r);
+            for (int i = start; i < start + graph.getConnectionCount(r); i++) {
+                tail = visit(graph.getConnection(i), d, distance, queue, tail);
+            }
+            start = graph.getSubroomStart(r);
+            for (int i = start; i < start + graph.getSubroomCount(r); i++) {
+                tail = visit(graph.getSubroom(i), d, distance, queue, tail);
+            }
+            for (int i = graph.getIncomingStart(r); i < graph.getIncomingStart(r + 1); i++) {
+                tail = visit(graph.getIncoming(i), d, distance, queue, tail);
+            }
+            for (int i = 1; i < revealsFrom[r].length; i += 2) {
+                tail = visit(revealsFrom[r][i], d, distance, queue, tail);
+            }
+            for (int from : revealsTo[r]) {
+                tail = visit(from, d, distance, queue, tail);
+            }
+        }
+        return distance;
+    }
+
+    private static int visit(int room, int d, int[] distance, int[] queue, int tail) {
+        if (room >= 0 && distance[room] < 0) {
+            distance[room] = d;
+            queue[tail++] = room;
+        }
+        return tail;
+    }
+
+    // ---------------- transitions ----------------
+
+    private static boolean test(long[] bits, int bit) {
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static void set(long[] bits, int bit) {
+        bits[bit >>> 6] |= 1L << bit;
+    }
+
+    private static void clear(long[] bits, int bit) {
+        bits[bit >>> 6] &= ~(1L << bit);
+    }
+
+    /**
+     * Enter a room: do every useful pickup and puzzle in reach, then build the node.
+     * A puzzle is only solved while it still changes something (see isUseful), so
+     * of several puzzles that meet the same goal the plan solves one.
+     */
+    private Node arrive(int room, long[] bits, Node parent, Node backTo, String move, int turns) {
+        List<String> actions = null;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p : puzzlesAt[room]) {
+                if (!test(bits, solvedBase + p) && isUseful(bits, p)) {
+                    set(bits, solvedBase + p);
+                    Puzzle puzzle = puzzles.get(p);
+                    if (actions == null) {
+                        actions = new ArrayList<>();
+                    }
+                    actions.add("solve " + puzzle.getName());
+                    actions.add(puzzle.getAcceptedAnswer());
+                    for (int t : inventoryTargets[p]) {
+                        set(bits, heldBase + t);
+                        set(bits, takenBase + t);
+                    }
+                    changed = true;
+                }
+            }
+            for (int t : targetsAt[room]) {
+                Target target = targets.get(t);
+                if (!test(bits, takenBase + t) && (target.puzzle < 0 || test(bits, solvedBase + target.puzzle))) {
+                    set(bits, heldBase + t);
+                    set(bits, takenBase + t);
+                    if (actions == null) {
+                        actions = new ArrayList<>();
+                    }
+                    actions.add("pickup " + target.name);
+                    changed = true;
+                }
+            }
+        }
+        return new Node(room, bits, parent, backTo, move, actions, turns);
+    }
+
+    /**
+     * Check whether solving a relevant puzzle now would change anything: it spawns
+     * a tracked item, counts for a goal no solved puzzle meets yet, or reveals a
+     * connection that is not open yet.
+     */
+    private boolean isUseful(long[] bits, int p) {
+        if (spawnsTargets[p] || (goalOf[p] >= 0 && !isGoalMet(bits, goalOf[p]))) {
+            return true;
+        }
+        int[] pairs = reveals[p];
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (!isOpen(bits, pairs[i], pairs[i + 1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check for a connection in the world or revealed by a solved puzzle.
+     */
+    private boolean isOpen(long[] bits, int from, int to) {
+        if (graph.isConnected(from, to)) {
+            return true;
+        }
+        int[] revealed = revealsFrom[from];
+        for (int i = 0; i < revealed.length; i += 2) {
+            if (revealed[i + 1] == to && test(bits, solvedBase + revealed[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isGoalMet(long[] bits, int goal) {
+        for (int p : goalPuzzles[goal]) {
+            if (test(bits, solvedBase + p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The index of a held key with this name symbol, or -1.
+     */
+    private int heldKey(long[] bits, int keySymbol) {
+        int[] candidates = keysBySymbol[keySymbol];
+        if (candidates != null) {
+            for (int t : candidates) {
+                if (test(bits, heldBase + t)) {
+                    return t;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean isWon(Node node) {
+        if (!rooms.get(node.room).isExit()) {
+            return false;
+        }
+        for (int[] alternatives : requiredTargets) {
+            boolean held = false;
+            for (int t : alternatives) {
+                held |= test(node.bits, heldBase + t);
+            }
+            if (!held) {
+                return false;
+            }
+        }
+        for (int g = 0; g < goalPuzzles.length; g++) {
+            if (!isGoalMet(node.bits, g)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * All nodes one turn away: moves to connected rooms (including revealed
+     * ones) and subrooms, and "back".
+     */
+    private void expand(Node node, List<Node> out) {
+        int start = graph.getConnectionStart(node.room);
+        for (int i = start; i < start + graph.getConnectionCount(node.room); i++) {
+            moveTo(node, graph.getConnection(i), out);
+        }
+        int[] revealed = revealsFrom[node.room];
+        for (int i = 0; i < revealed.length; i += 2) {
+            if (test(node.bits, solvedBase + revealed[i])) {
+                moveTo(node, revealed[i + 1], out);
+            }
+        }
+        start = graph.getSubroomStart(node.room);
+        for (int i = start; i < start + graph.getSubroomCount(node.room); i++) {
+            moveTo(node, graph.getSubroom(i), out);
+        }
+        if (node.backTo != null) {
+            Node back = node.backTo;
+            out.add(arrive(back.room, node.bits.clone(), node, back.backTo, "back", node.turns + 1));
+        }
+    }
+
+    private void moveTo(Node node, int id, List<Node> out) {
+        Room to = graph.getRoom(id);
+        if (to == null) {
+            return; // not a room of this world
+        }
+        if (world.getRooms().findTolerant(to.getName()) != to && !isFirstNeighbourNamed(node, to)) {
+            return; // "move <name>" would pick another room with the same name
+        }
+        long[] bits = node.bits;
+        int key = graph.getLock(id);
+        int lock = lockOf[id];
+        if (key >= 0 && (lock < 0 || !test(bits, unlockedBase + lock))) {
+            int held = heldKey(bits, key);
+            if (held < 0) {
+                return; // locked
+            }
+            if (lock >= 0) {
+                bits = bits.clone();
+                clear(bits, heldBase + held); // regular doors use up the key
+                set(bits, unlockedBase + lock);
+            }
+        }
+        out.add(arrive(id, bits == node.bits ? bits.clone() : bits, node, node, "move " + to.getName(),
+                node.turns + 1));
+    }
+
+    /**
+     * For duplicate room names: the game falls back to the first connected room,
+     * then the first subroom, with the name.
+     */
+    private boolean isFirstNeighbourNamed(Node node, Room to) {
+        Room room = rooms.get(node.room);
+        String name = to.getNormalizedName();
+        int start = graph.getConnectionStart(node.room);
+        for (int i = start; i < start + graph.getConnectionCount(node.room); i++) {
+            Room r = graph.getRoom(graph.getConnection(i));
+            if (r != null && r.getNormalizedName().equals(name)) {
+                return r == to;
+            }
+        }
+        int[] revealed = revealsFrom[node.room];
+        for (int i = 0; i < revealed.length; i += 2) {
+            Room r = rooms.get(revealed[i + 1]);
+            if (test(node.bits, solvedBase + revealed[i]) && r.getNormalizedName().equals(name)) {
+                return r == to;
+            }
+        }
+        return room.findSubroom(to.getName()) == to;
+    }
+
+    // ---------------- search ----------------
+
+    private int estimate(Node node) {
+        return useHeuristic ? distanceToExit[node.room] : 0;
+    }
+
+    private Solution solveSequential(Node start) {
+        HashMap<StateKey, Integer> best = new HashMap<>(); // state -> fewest turns seen
+        PriorityQueue<Node> open = new PriorityQueue<>((a, b) -> {
+            int c = Integer.compare(a.turns + estimate(a), b.turns + estimate(b));
+            return c != 0 ? c : Integer.compare(b.turns, a.turns);
+        });
+        if (distanceToExit[start.room] < 0) {
+            return new Solution(null, -1, 0, 0);
+        }
+        best.put(new StateKey(start.room, start.bits), 0);
+        open.add(start);
+        int explored = 0;
+        ArrayList<Node> next = new ArrayList<>();
+        while (!open.isEmpty()) {
+            Node node = open.poll();
+            if (best.get(new StateKey(node.room, node.bits)) < node.turns) {
+                continue; // reached more cheaply since
+            }
+            explored++;
+            if (isWon(node)) {
+                return new Solution(commands(node), node.turns, explored, best.size());
+            }
+            next.clear();
+            expand(node, next);
+            for (Node child : next) {
+                if (distanceToExit[child.room] < 0) {
+                    continue; // no exit can be reached from there
+                }
+                StateKey key = new StateKey(child.room, child.bits);
+                Integer seen = best.get(key);
+                if (seen == null || child.turns < seen) {
+                    best.put(key, child.turns);
+                    open.add(child);
+                }
+            }
+        }
+        return new Solution(null, -1, explored, best.size());
+    }
+
+    /**
+     * Level-synchronous BFS: the nodes of a level are expanded in parallel, then
+     * merged into the transposition table in level order, so the result does not
+     * depend on thread timing.
+     */
+    private Solution solveParallel(Node start) {
+        HashMap<StateKey, Boolean> seen = new HashMap<>();
+        seen.put(new StateKey(start.room, start.bits), true);
+        ArrayList<Node> level = new ArrayList<>();
+        level.add(start);
+        int explored = 0;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        while (!level.isEmpty()) {
+            for (Node node : level) {
+                if (isWon(node)) {
+                    return new Solution(commands(node), node.turns, explored, seen.size());
+                }
+            }
+            explored += level.size();
+            // one slot per node, filled by the tasks (set only, never resized)
+            ArrayList<List<Node>> children = new ArrayList<>(Collections.nCopies(level.size(), null));
+            pool.invoke(new ExpandTask(level, children, 0, level.size()));
+            ArrayList<Node> nextLevel = new ArrayList<>();
+            for (List<Node> list : children) {
+                for (Node child : list) {
+                    if (distanceToExit[child.room] >= 0
+                            && seen.putIfAbsent(new StateKey(child.room, child.bits), true) == null) {
+                        nextLevel.add(child);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        return new Solution(null, -1, explored, seen.size());
+    }
+
+    @SuppressWarnings("serial") // never serialized, only run in the pool
+    private final class ExpandTask extends RecursiveAction {
+        private static final int SEQUENTIAL_NODES = 64;
+        private final List<Node> level;
+        private final List<List<Node>> children;
+        private final int from;
+        private final int to;
+
+        ExpandTask(List<Node> level, List<List<Node>> children, int from, int to) {
+            this.level = level;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_NODES) {
+                for (int i = from; i < to; i++) {
+                    ArrayList<Node> out = new ArrayList<>();
+                    expand(level.get(i), out);
+                    children.set(i, out);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ExpandTask(level, children, from, mid), new ExpandTask(level, children, mid, to));
+        }
+    }
+
+    /**
+     * The input lines that lead from the start to a node.
+     */
+    private static List<String> commands(Node node) {
+        ArrayList<Node> path = new ArrayList<>();
+        for (Node n = node; n != null; n = n.parent) {
+            path.add(n);
+        }
+        ArrayList<String> lines = new ArrayList<>();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node n = path.get(i);
+            if (n.move != null) {
+                lines.add(n.move);
+            }
+            if (n.actions != null) {
+                lines.addAll(n.actions);
+            }
+        }
+        return lines;
+    }
+
+    private static ArrayList<ArrayList<Integer>> emptyLists(int n) {
+        ArrayList<ArrayList<Integer>> lists = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            lists.add(new ArrayList<>());
+        }
+        return lists;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Play a solution in a fresh session and check that it wins in the
+     * predicted number of turns.
+     */
+    public static boolean verify(WorldTemplate world, Solution solution) {
+        GameEngine game = new GameEngine(LineSource.of(solution.getCommands()), text -> { });
+        game.initializeGame(world);
+        game.start();
+        return game.getState().getGoals().isWon() && game.getTurnCounter() == solution.getTurns();
+    }
+
+    public static void main(String[] args) throws Exception {
+        WorldTemplate world = null;
+        boolean bfs = false;
+        boolean parallel = false;
+        boolean show = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--world":
+                    world = WorldTemplate.load(Path.of(args[++i]));
+                    break;
+                case "--generate":
+                    int rooms = Integer.parseInt(args[++i]);
+                    world = new WorldGenerator(Long.parseLong(args[++i])).rooms(rooms).generate();
+                    break;
+                case "--bfs":
+                    bfs = true;
+                    break;
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--show":
+                    show = true;
+                    break;
+                default:
+                    System.out.println("Usage: java EscapeSolver [--world file | --generate rooms seed] [--bfs]"
+                            + " [--parallel] [--show]");
+                    return;
+            }
+        }
+        if (world == null) {
+            world = WorldTemplate.getDefault();
+        }
+
+        long start = System.nanoTime();
+        Solution solution = new EscapeSolver(world).heuristic(!bfs).parallel(parallel).solve();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (!solution.isSolvable()) {
+            System.out.printf("No way out (%d states explored in %.3f s)%n", solution.getStatesExplored(), seconds);
+            System.exit(1);
+        }
+        System.out.printf("Shortest escape: %d turns, %d input lines (%d states explored, %d stored, %.3f s)%n",
+                solution.getTurns(), solution.getCommands().size(), solution.getStatesExplored(),
+                solution.getStatesStored(), seconds);
+        System.out.println("Replay check: " + (verify(world, solution) ? "wins in " + solution.getTurns() + " turns"
+                : "FAILED"));
+        if (show) {
+            for (String line : solution.getCommands()) {
+                System.out.println(line);
+            }
+        }
+    }
+}
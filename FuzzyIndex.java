@@ -0,0 +1,330 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FuzzyIndex finds the names a player probably meant when what they typed
+ * matches nothing exactly: typos ("gold kye") and partial names ("gold"). It is
+ * built once per world over the symbols of its NameTable and shared by all
+ * sessions.
+ *
+ * Names are compared by their trigrams: the three-character windows of the
+ * lower-case name without whitespace, padded at both ends so starts and ends
+ * count. The score of a name is the Dice coefficient of the two trigram sets,
+ * 2 * shared / (trigrams typed + trigrams of the name), from 0 to 1.
+ *
+ * Every name keeps its trigrams as sorted ids, so scoring a name is a merge of
+ * two short int arrays and never touches its string. For large scopes each
+ * trigram also has a posting list of the names that contain it (compressed
+ * sparse rows), and the shared trigrams are counted from the lists of the
+ * input's trigrams instead of merging the input with every name in scope.
+ */
+public class FuzzyIndex {
+    /** Weakest score still worth suggesting. */
+    public static final double MIN_SCORE = 0.3;
+    /** Score at which the best match is taken without asking, if no other match ties it. */
+    public static final double RESOLVE_SCORE = 0.6;
+
+    private static final char PAD = '\u0001';
+    private static final int DIRECT_LIMIT = 256; // scopes up to this size are scored name by name
+
+    private final long[] grams;     // gram id -> packed trigram, sorted
+    private final int[] gramStart;  // gram id -> first posting, grams.length + 1 entries
+    private final int[] postings;   // symbols containing each trigram, ascending
+    private final int[] nameStart;  // symbol -> first entry in nameGrams, size + 1 entries
+    private final int[] nameGrams;  // gram ids of each name, ascending
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(this::newScratch); // per thread, reused
+
+    /**
+     * Index every name of a world.
+     */
+    public FuzzyIndex(NameTable names) {
+        int n = names.size();
+        long[][] perName = new long[n][];
+        int total = 0;
+        for (int symbol = 0; symbol < n; symbol++) {
+            perName[symbol] = trigrams(names.getName(symbol));
+            total += perName[symbol].length;
+        }
+        // Distinct trigrams of the whole world
+        long[] all = new long[total];
+        int pos = 0;
+        for (long[] g : perName) {
+            System.arraycopy(g, 0, all, pos, g.length);
+            pos += g.length;
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[distinct++] = all[i];
+            }
+        }
+        this.grams = Arrays.copyOf(all, distinct);
+        // Names as gram ids (trigrams are sorted, so the ids are too), and posting counts
+        this.nameStart = new int[n + 1];
+        this.nameGrams = new int[total];
+        this.gramStart = new int[distinct + 1];
+        pos = 0;
+        for (int symbol = 0; symbol < n; symbol++) {
+            for (long g : perName[symbol]) {
+                int id = Arrays.binarySearch(grams, g);
+                nameGrams[pos++] = id;
+                gramStart[id + 1]++;
+            }
+            nameStart[symbol + 1] = pos;
+        }
+        for (int id = 0; id < distinct; id++) {
+            gramStart[id + 1] += gramStart[id];
+        }
+        this.postings = new int[total];
+        int[] fill = Arrays.copyOf(gramStart, distinct);
+        for (int symbol = 0; symbol < n; symbol++) {
+            for (int i = nameStart[symbol]; i < nameStart[symbol + 1]; i++) {
+                postings[fill[nameGrams[i]]++] = symbol;
+            }
+        }
+    }
+
+    /**
+     * Prepare a search for what the player typed.
+     */
+    public Query query(String input) {
+        long[] typed = trigrams(input);
+        int[] ids = new int[typed.length];
+        int known = 0;
+        for (long g : typed) {
+            int id = Arrays.binarySearch(grams, g);
+            if (id >= 0) {
+                ids[known++] = id; // trigrams no name has can only lower the scores
+            }
+        }
+        return new Query(typed.length, Arrays.copyOf(ids, known));
+    }
+
+    /**
+     * Rank the components of a scope (e.g. the items in reach) by how close their
+     * names are to what the player typed; see Query.rank.
+     */
+    public Matches rank(String input, List<? extends GameComponent> scope, int k) {
+        int[] symbols = new int[scope.size()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = scope.get(i).getSymbol();
+        }
+        return query(input).rank(symbols, k);
+    }
+
+    /**
+     * Sorted, distinct trigrams of a name, lower-case and without whitespace,
+     * each packed into a long (three 16-bit chars).
+     */
+    static long[] trigrams(String name) {
+        StringBuilder sb = new StringBuilder(name.length() + 3);
+        sb.append(PAD).append(PAD);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        sb.append(PAD);
+        if (sb.length() == 3) {
+            return new long[0]; // nothing but whitespace
+        }
+        long[] result = new long[sb.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((long) sb.charAt(i) << 32) | ((long) sb.charAt(i + 1) << 16) | sb.charAt(i + 2);
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    /**
+     * What the player typed, as trigram ids, ready to be scored against names.
+     */
+    public final class Query {
+        private final int size; // trigrams typed, including ones no name has
+        private final int[] ids; // the known ones, ascending
+
+        private Query(int size, int[] ids) {
+            this.size = size;
+            this.ids = ids;
+        }
+
+        /**
+         * Score of a name symbol against the input, from 0 (nothing shared) to 1.
+         */
+        public double score(int symbol) {
+            if (symbol < 0 || symbol + 1 >= nameStart.length || size == 0) {
+                return 0;
+            }
+            int shared = 0;
+            int i = 0;
+            int j = nameStart[symbol];
+            int end = nameStart[symbol + 1];
+            while (i < ids.length && j < end) {
+                if (ids[i] < nameGrams[j]) {
+                    i++;
+                } else if (ids[i] > nameGrams[j]) {
+                    j++;
+                } else {
+                    shared++;
+                    i++;
+                    j++;
+                }
+            }
+            return 2.0 * shared / (size + end - nameStart[symbol]);
+        }
+
+        /**
+         * Rank the candidates of a scope (name symbols, e.g. the rooms one can move
+         * to) by score and keep the best k that reach MIN_SCORE. Candidates with
+         * the same name count once, at their first position; equal scores keep
+         * scope order.
+         */
+        public Matches rank(int[] candidates, int k) {
+            Matches matches = new Matches(k);
+            Scratch work = scratch.get();
+            int stamp = work.nextStamp();
+            if (candidates.length <= DIRECT_LIMIT) {
+                for (int c = 0; c < candidates.length; c++) {
+                    int symbol = candidates[c];
+                    if (symbol >= 0 && symbol < work.seen.length && work.seen[symbol] != stamp) {
+                        work.seen[symbol] = stamp; // later candidates with the same name count once
+                        matches.offer(c, score(symbol));
+                    }
+                }
+                return matches;
+            }
+            // Large scope: count the trigrams each name shares with the input from
+            // the posting lists, so names sharing none are never looked at
+            int[] shared = work.shared;
+            for (int id : ids) {
+                for (int p = gramStart[id]; p < gramStart[id + 1]; p++) {
+                    shared[postings[p]]++;
+                }
+            }
+            for (int c = 0; c < candidates.length; c++) {
+                int symbol = candidates[c];
+                if (symbol >= 0 && symbol < shared.length && shared[symbol] > 0 && work.seen[symbol] != stamp) {
+                    work.seen[symbol] = stamp; // later candidates with the same name count once
+                    int grams = nameStart[symbol + 1] - nameStart[symbol];
+                    matches.offer(c, 2.0 * shared[symbol] / (size + grams));
+                }
+            }
+            // clear the counts for the next query of this thread
+            for (int id : ids) {
+                for (int p = gramStart[id]; p < gramStart[id + 1]; p++) {
+                    shared[postings[p]] = 0;
+                }
+            }
+            return matches;
+        }
+    }
+
+    private Scratch newScratch() {
+        return new Scratch(nameStart.length - 1);
+    }
+
+    /**
+     * Work arrays of one thread, one entry per symbol, so ranking allocates
+     * nothing the size of the world. Shared counts are cleared after each use;
+     * seen marks are told apart by a stamp that changes with every query.
+     */
+    private static final class Scratch {
+        final int[] shared; // symbol -> trigrams shared with the input
+        final int[] seen;   // symbol -> stamp of the last query that ranked it
+        int stamp;
+
+        Scratch(int size) {
+            this.shared = new int[size];
+            this.seen = new int[size];
+        }
+
+        int nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+    }
+
+    /**
+     * The best matches of a Query, best first: positions in the scope that was
+     * ranked, with their scores.
+     */
+    public static final class Matches {
+        private final int[] positions;
+        private final double[] scores;
+        private int size;
+
+        private Matches(int k) {
+            this.positions = new int[Math.max(k, 1)];
+            this.scores = new double[positions.length];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** Position in the scope of the i-th best match. */
+        public int get(int i) {
+            return positions[i];
+        }
+
+        public double getScore(int i) {
+            return scores[i];
+        }
+
+        /**
+         * Names of the matches, best first, in the scope that was ranked.
+         */
+        public List<String> getNames(List<? extends GameComponent> scope) {
+            ArrayList<String> names = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                names.add(scope.get(positions[i]).getName());
+            }
+            return names;
+        }
+
+        /**
+         * Position of the match to take without asking: the best one if it reaches
+         * RESOLVE_SCORE and no other match has the same score; -1 otherwise.
+         */
+        public int best() {
+            if (size == 0 || scores[0] < RESOLVE_SCORE || (size > 1 && scores[1] == scores[0])) {
+                return -1;
+            }
+            return positions[0];
+        }
+
+        /**
+         * Keep a match if it is good enough and among the best k (a later one with
+         * the same score ranks after).
+         */
+        private void offer(int position, double score) {
+            if (score < MIN_SCORE) {
+                return;
+            }
+            int i = size < positions.length ? size++ : positions.length;
+            while (i > 0 && scores[i - 1] < score) {
+                if (i < positions.length) {
+                    positions[i] = positions[i - 1];
+                    scores[i] = scores[i - 1];
+                }
+                i--;
+            }
+            if (i < positions.length) {
+                positions[i] = position;
+                scores[i] = score;
+            }
+        }
+    }
+}
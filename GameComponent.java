@@ -4,15 +4,33 @@
  */
 public abstract class GameComponent {
     protected String name;
+    protected Room parent; // room whose contents hold this component, null if none
+    protected int symbol = -1; // symbol of the name in its world's NameTable, -1 outside a world
     
     public GameComponent(String name) {
         this.name = name;
     }
     
     /**
-     * Abstract method to inspect the component.
+     * Inspect the component on standard output.
      */
-    public abstract void inspect();
+    public void inspect() {
+        inspect(GameOutput.console());
+    }
+
+    /**
+     * Abstract method to inspect the component, printing to the given output
+     * (each game session has its own output).
+     */
+    public abstract void inspect(GameOutput out);
+
+    /**
+     * Inspect the component as one game session sees it. Components whose
+     * display depends on session progress override this.
+     */
+    public void inspect(GameOutput out, WorldState state) {
+        inspect(out);
+    }
     
     /**
      * Get the name of the component.
@@ -21,6 +39,30 @@ public abstract class GameComponent {
         return name;
     }
     
+    /**
+     * Get the symbol of this component's name (see NameTable), or -1 if it does
+     * not belong to a world.
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
+    void setSymbol(int symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Get the room that directly contains this component (null for top-level rooms
+     * and for items that are not in any room, e.g. in the inventory).
+     */
+    public Room getParent() {
+        return parent;
+    }
+
+    void setParent(Room parent) {
+        this.parent = parent;
+    }
+    
     @Override
     public String toString() {
         return name;
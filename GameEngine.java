@@ -1,96 +1,165 @@
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
-import java.util.Scanner;
 import java.util.Set;
 public class GameEngine {
+    private static final String STATUS_RULE = "=".repeat(40);
+    private static final String BANNER_RULE = "=".repeat(50);
+    private static final int SNAPSHOT_EVERY = 100; // journal records between two snapshots of a session
+    // Verb table shared by all sessions; any unique prefix of a verb also works
+    private static final CommandTable COMMANDS = new CommandTable()
+            .register("look", "l", GameEngine::look)
+            .register("move", "m", GameEngine::move)
+            .register("back", "b", GameEngine::back)
+            .register("pickup", "p", GameEngine::pickup)
+            .register("inventory", "i", GameEngine::inventory)
+            .register("solve", "s", GameEngine::solve)
+            .register("map", null, GameEngine::map)
+            .register("help", "h", GameEngine::help)
+            .register("quit", "q", GameEngine::quit)
+            .build();
+
     private ArrayList<Room> map;
+    private RoomRegistry roomRegistry; // name/id index over map, built at load time
+    private RoomGraph graph; // the world's connections, subrooms and locks by room id
     private Queue<String> hintQueue;
     private Player player;
     private int turnCounter;
     private boolean gameRunning;
-    private Scanner scanner;
-    private ArrayList<String> requiredItems;
-    private boolean puzzle5Bsolved;
+    private boolean inputEnded; // start() returned because the input ran out
+    private LineSource input; // where this session's commands and answers come from
+    private GameOutput out; // all player-facing output of this session, flushed once per command
+    private CommandLine commandLine; // reused for every input line
+    private WorldState state; // what this session changed in the shared world
+    private WorldTemplate world; // the shared world this session plays
+    private SessionJournal journal; // where every change is logged, null if not journaled
+    private long sessionId; // this session's id in the journal
+    private int journalRecords; // records written since the last snapshot
+    private long journalEnd; // end of this session's last record in the journal
+    private long journalCommitted; // journalEnd when the session last committed
+    private MapRenderer.View mapView; // this session's cached map, rebuilt when the state is replaced
+    private CommandMetrics metrics; // where command counts and latencies go, null if not measured
+    private long inputWaitNanos; // time spent waiting for follow-up lines (answers, selections)
 
     public GameEngine() {
+        this(System.in, new ConsoleOutputSink());
+    }
+
+    /**
+     * Create an engine that reads commands from the given input and writes to the
+     * given sink, so several sessions can run in one process.
+     */
+    public GameEngine(InputStream in, OutputSink sink) {
+        this(LineSource.of(in), sink);
+    }
+
+    /**
+     * Create an engine that reads its input lines from any source (e.g. a
+     * recorded transcript) and writes to the given sink.
+     */
+    public GameEngine(LineSource input, OutputSink sink) {
         this.map = new ArrayList<>();
+        this.roomRegistry = new RoomRegistry();
         this.hintQueue = new LinkedList<>();
         this.turnCounter = 0;
         this.gameRunning = false;
-        this.scanner = new Scanner(System.in);
-        this.requiredItems = new ArrayList<>();
-        this.puzzle5Bsolved = false;
+        this.input = input;
+        this.out = new GameOutput(sink);
+        this.commandLine = new CommandLine();
+        this.state = new WorldState();
     }
 
     /**
-     * Compare room names with a tolerant match: exact ignore-case, or normalized
-     * (remove spaces) match.
+     * Compare room names with a tolerant match: ignore case and whitespace.
+     * Uses the room's precomputed normalized name, so nothing is allocated.
      */
-    private boolean matchesRoomName(String roomName, String inputName) {
-        if (roomName.equalsIgnoreCase(inputName))
-            return true;
-        String a = roomName.replaceAll("\\s+", "").toLowerCase();
-        String b = inputName.replaceAll("\\s+", "").toLowerCase();
-        return a.equals(b);
+    private boolean matchesRoomName(Room room, String inputName) {
+        return RoomRegistry.matchesNormalized(room.getNormalizedName(), inputName);
     }
 
     /**
-     * Print the full map showing top-level rooms as siblings and their internal
-     * subrooms.
+     * Check whether a room is directly reachable from another room
+     * (a connected room or a subroom).
      */
-    private void printFullMap() {
-        System.out.println("\n=== FULL MAP ===");
-        if (map.isEmpty())
-            return;
+    private boolean isReachableFrom(Room from, Room target) {
+        return graph.isConnected(from.getId(), target.getId()) || graph.getParent(target.getId()) == from.getId()
+                || state.getRevealedConnections(from).contains(target);
+    }
 
-        Room entrance = findRoom("Entrance");
-        if (entrance == null) {
-            // fallback: print previous top-level roots
-            Set<Room> subrooms = new HashSet<>();
-            for (Room r : map) {
-                for (GameComponent comp : r.getContents()) {
-                    if (comp instanceof Room)
-                        subrooms.add((Room) comp);
-                }
+    /**
+     * Find a room connected to another by name: the world's connections first,
+     * then the ones revealed in this session.
+     */
+    private Room findConnectedRoom(Room from, String roomName) {
+        int id = from.getId();
+        int start = graph.getConnectionStart(id);
+        for (int i = start; i < start + graph.getConnectionCount(id); i++) {
+            Room room = graph.getRoom(graph.getConnection(i));
+            if (room != null && matchesRoomName(room, roomName)) {
+                return room;
             }
-            for (Room r : map) {
-                if (!subrooms.contains(r))
-                    r.exploreRecursive(0);
+        }
+        for (Room room : state.getRevealedConnections(from)) {
+            if (matchesRoomName(room, roomName)) {
+                return room;
             }
-            return;
         }
+        return null;
+    }
+
+    /**
+     * Rank the components in scope by how close their names are to what the
+     * player typed (see FuzzyIndex).
+     */
+    private FuzzyIndex.Matches closestNames(String input, List<? extends GameComponent> scope) {
+        return world.getFuzzyIndex().rank(input, scope, Player.SUGGESTIONS);
+    }
+
+    private void printSuggestions(List<String> names) {
+        if (!names.isEmpty()) {
+            out.println("Did you mean: " + String.join(", ", names) + "?");
+        }
+    }
+
+    /**
+     * Print the full map showing top-level rooms as siblings and their internal
+     * subrooms. The text is cached per world and per session and only re-rendered
+     * where this session changed something (see MapRenderer).
+     */
+    void printFullMap() {
+        out.println("\n=== FULL MAP ===");
+        if (map.isEmpty())
+            return;
 
-        Set<Room> visited = new HashSet<>();
-        printRoomDFS(entrance, 0, visited);
+        if (mapView == null || !mapView.isFor(state)) {
+            mapView = world.getMapRenderer().view(state);
+        }
+        out.print(mapView.render());
     }
 
-    private void printRoomDFS(Room r, int depth, Set<Room> visited) {
+    /**
+     * Print the map from a room without any caching (same text as printFullMap).
+     */
+    void printRoomDFS(Room r, int depth, Set<Room> visited) {
         if (r == null || visited.contains(r))
             return;
         visited.add(r);
 
-        String indent = "  ".repeat(depth);
-        System.out.println(indent + "└─ " + r.getName() + (r.isExit() ? " [EXIT]" : ""));
-
-        // Print non-room contents (items, puzzles)
-        for (GameComponent comp : r.getContents()) {
-            if (comp instanceof Room)
-                continue;
-            System.out.println(indent + "   - " + comp.getName());
-        }
+        StringBuilder sb = new StringBuilder(64);
+        MapRenderer.appendRoom(sb, r, depth, state);
+        out.print(sb.toString());
 
         // First recurse into subrooms (contained rooms)
-        for (GameComponent comp : r.getContents()) {
-            if (comp instanceof Room) {
-                printRoomDFS((Room) comp, depth + 1, visited);
-            }
+        for (Room sub : r.getSubrooms()) {
+            printRoomDFS(sub, depth + 1, visited);
         }
 
         // Then recurse into connected rooms (same-level neighbors)
-        for (Room conn : r.getConnectedRooms()) {
+        for (Room conn : state.getConnectedRooms(r)) {
             if (!visited.contains(conn)) {
                 printRoomDFS(conn, depth + 1, visited);
             }
@@ -99,123 +168,23 @@ public class GameEngine {
 
     // Initialize the game map and the player.
     public void initializeGame() {
-        // Create main rooms (same level)
-        Room entrance = new Room("Entrance");
-        Room hallway = new Room("Hallway");
-        Room room1 = new Room("Room 1");
-        Room room2 = new Room("Room 2");
-        Room room3 = new Room("Room 3", "key_r3");
-        Room room4 = new Room("Room 4", "key_r4");
-        Room room5 = new Room("Room 5", "key_r5");
-        Room exit = new Room("Exit Room", "Exit_Key");
-        exit.setExit(true);
-
-        // Subrooms
-        Room r1a = new Room("1A");
-        Room r1b = new Room("1B");
-        Room r3a = new Room("3A");
-        Room r2a = new Room("2A");
-        Room r4a = new Room("4A");
-        Room r4b = new Room("4B");
-        Room r5a = new Room("5A");
-        Room r5b = new Room("5B");
-
-        // Items
-        Item any1 = new Item("Old Book", 5, Item.ItemType.CLUE);
-        Item any2 = new Item("Flashlight", 6, Item.ItemType.TOOL);
-        Item any3 = new Item("Room3 Gem", 12, Item.ItemType.CLUE);
-        Item any4 = new Item("Wrench", 4, Item.ItemType.TOOL);
-        Item magnifier = new Item("Magnifying Glass", 3, Item.ItemType.TOOL);
-        Item r3aItem = new Item("Small Coin", 2, Item.ItemType.CLUE);
-        Item r4aItem = new Item("Silver Screw", 2, Item.ItemType.TOOL);
-        Item r5aItem = new Item("Silver Coin", 3, Item.ItemType.CLUE);
-
-        // Required end-game item
-        requiredItems.add("Exit_Key");
-
-        // Puzzles
-        RiddlePuzzle p1A = new RiddlePuzzle("1A Riddle", 2,
-                "I have cities, but no houses. I have mountains, but no trees. What am I?",
-                "Map");
-        RiddlePuzzle p1B = new RiddlePuzzle("1B Riddle", 3,
-                "What has keys but no locks, space but no room, and you can enter but not go inside?",
-                "Keyboard");
-        RiddlePuzzle p3 = new RiddlePuzzle("r3 puzzle", 3,
-                "I speak without a mouth and hear without ears. I have nobody, but I come alive with wind. What am I?",
-                "Echo");
-        // 4B puzzle that grants Exit_Key
-        CodePuzzle p4b = new CodePuzzle("4b code", 4, "7777");
-
-        // 5B puzzles (three puzzles)
-        RiddlePuzzle p5_1 = new RiddlePuzzle("Puzzle 1", 2,
-                "I’m tall when I’m young, and I’m short when I’m old. What am I?", "Candle");
-        RiddlePuzzle p5_2 = new RiddlePuzzle("Puzzle 2", 3, "What has hands but can not clap?", "Clock");
-        RiddlePuzzle p5_3 = new RiddlePuzzle("Puzzle 3", 5, "What disappears as soon as you say its name?",
-                "Silence");
-
-        // Assemble room contents per specification
-        entrance.addContent(any1);
-        entrance.addConnectedRoom(hallway);
-        hallway.addConnectedRoom(room1);
-        hallway.addConnectedRoom(room2);
-        // Room 1 and its subrooms
-        room1.addContent(any4);
-        r1a.addContent(p1A); // subroom 1A contains puzzle
-        r1a.addConnectedRoom(r1b); // 1A -> 1B
-        r1b.addContent(p1B); // subroom 1B contains puzzle
-        room1.addContent(r1a);
-        room1.addContent(r1b);
-        room1.addConnectedRoom(room3); // Room1 connected to Room3
-        // Room 3
-        room3.addContent(any3);
-        room3.addContent(p3);
-        r3a.addContent(r3aItem);
-        room3.addContent(r3a);
-        // Room 2 and subrooms
-        room2.addContent(any2);
-        room2.addContent(magnifier);
-        r2a.addContent(new Item("Note", 1, Item.ItemType.CLUE));
-        room2.addContent(r2a);
-        // Room2 connected to Room4 and Room5
-        room2.addConnectedRoom(room4);
-        room2.addConnectedRoom(room5);
-        // Room 4 and subrooms
-        r4a.addContent(r4aItem);
-        r4a.addConnectedRoom(r4b);
-        r4b.addContent(p4b); // solving p4b grants Exit_Key
-        room4.addContent(r4a);
-        room4.addConnectedRoom(room5); // Room4 <-> Room5
-        // Room5 and subrooms
-        r5a.addContent(r5aItem);
-        r5a.addConnectedRoom(r5b);
-        r5b.addContent(p5_1);
-        r5b.addContent(p5_2);
-        r5b.addContent(p5_3);
-        r5b.addConnectedRoom(exit);
-        room5.addContent(r5a);
-        // Add rooms to map
-        map.add(entrance);
-        map.add(hallway);
-        map.add(room1);
-        map.add(room2);
-        map.add(room3);
-        map.add(room4);
-        map.add(room5);
-        map.add(exit);
-        map.add(r1a);
-        map.add(r1b);
-        map.add(r3a);
-        map.add(r2a);
-        map.add(r4a);
-        map.add(r4b);
-        map.add(r5a);
-        map.add(r5b);
+        initializeGame(WorldTemplate.getDefault());
+    }
+
+    /**
+     * Initialize the game on a given world. The world itself is shared between
+     * sessions; this session only gets an empty overlay.
+     */
+    public void initializeGame(WorldTemplate world) {
+        this.world = world;
+        roomRegistry = world.getRooms();
+        graph = world.getGraph();
+        map = roomRegistry.getRooms();
+        state = new WorldState(world.getWinConditions());
         // Create player in Entrance
-        player = new Player(entrance);
+        player = new Player(world.getEntrance(), state, out);
         // Hints
-        hintQueue.offer("Explore subrooms to find puzzles and keys.");
-        hintQueue.offer("Some rooms require specific keys to enter (they may be consumed).");
-        hintQueue.offer("Solve a puzzle in 5B to reveal the Exit room.");
+        hintQueue.addAll(world.getHints());
     }
 
     /**
@@ -223,36 +192,43 @@ public class GameEngine {
      */
     public void start() {
         gameRunning = true;
-        System.out.println("========================================");
-        System.out.println("    WELCOME TO THE ESCAPE ROOM GAME!");
-        System.out.println("========================================");
-        System.out.println("You wake up in a locked facility...");
-        System.out.println("Goal: Find your way to the exit!\n");
-        System.out.println("Available actions (type the word and press Enter):");
-        System.out.println("  - look / l           : inspect the current room");
-        System.out.println("  - move <room> / m <room>          : move to a connected room");
-        System.out.println("  - back / b           : go back to the previous room");
-        System.out.println("  - pickup <item> / p <item>        : pick up an item in the room");
-        System.out.println("  - inventory / i      : view your inventory");
-        System.out.println("  - solve <puzzle> / s <puzzle>     : attempt to solve a puzzle");
-        System.out.println("  - map                : show the full map");
-        System.out.println("  - help / h           : show this list again");
-        System.out.println("  - quit / q           : leave the game");
-        System.out.println("\nTip: type 'help' any time to see this list again.\n");
+        out.println("========================================");
+        out.println("    WELCOME TO THE ESCAPE ROOM GAME!");
+        out.println("========================================");
+        out.println("You wake up in a locked facility...");
+        out.println("Goal: Find your way to the exit!\n");
+        out.println("Available actions (type the word and press Enter):");
+        out.println("  - look / l           : inspect the current room");
+        out.println("  - move <room> / m <room>          : move to a connected room");
+        out.println("  - back / b           : go back to the previous room");
+        out.println("  - pickup <item> / p <item>        : pick up an item in the room");
+        out.println("  - inventory / i      : view your inventory");
+        out.println("  - solve <puzzle> / s <puzzle>     : attempt to solve a puzzle");
+        out.println("  - map                : show the full map");
+        out.println("  - help / h           : show this list again");
+        out.println("  - quit / q           : leave the game");
+        out.println("\nTip: type 'help' any time to see this list again.\n");
         printStatus();
 
         while (gameRunning) {
-            System.out.print("\n> ");
-            String input = scanner.nextLine().trim();
+            out.print("\n> ");
+            out.flush(); // one write per processed command
+            String line = input.readLine();
+            if (line == null) {
+                inputEnded = true;
+                break; // input closed (end of file or client disconnected)
+            }
+            CommandLine cmd = commandLine.parse(line);
 
-            if (input.isEmpty()) {
+            if (cmd.isEmpty()) {
                 continue;
             }
 
             try {
-                boolean consumed = processCommand(input);
+                boolean consumed = execute(cmd);
                 if (consumed) {
                     turnCounter++;
+                    journal(SessionJournal.TURN);
                     // After a move/back that consumed a turn, print updated status
                     printStatus();
                 }
@@ -260,17 +236,211 @@ public class GameEngine {
                 // Every 3 turns, show a hint if available
                 if (turnCounter % 3 == 0 && !hintQueue.isEmpty()) {
                     String hint = hintQueue.poll();
-                    System.out.println("\nHint: " + hint);
+                    journal(SessionJournal.HINT);
+                    out.println("\nHint: " + hint);
                 }
                 winConditionCheck();
             } catch (InvalidCommandException | LockedRoomException | InvalidPuzzleAnswerException e) {
-                System.out.println("Error: " + e.getMessage());
+                out.println("Error: " + e.getMessage());
             } catch (Exception e) {
-                System.out.println("Unexpected error: " + e.getMessage());
+                out.println("Unexpected error: " + e.getMessage());
                 e.printStackTrace();
             }
+            commitJournal();
+        }
+        gameRunning = false;
+        out.flush();
+    }
+
+    /**
+     * Read one line of follow-up input (puzzle answers, selections).
+     * Flushes the output first so the prompt is visible to the player.
+     * Returns "" if the input has ended.
+     */
+    private String readLine() {
+        out.flush();
+        long start = System.nanoTime();
+        String line = input.readLine();
+        inputWaitNanos += System.nanoTime() - start; // the player's thinking time is not command latency
+        return line == null ? "" : line;
+    }
+
+    /**
+     * Record this session's commands into the given metrics (null to stop).
+     */
+    public void setMetrics(CommandMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * The verbs of the command table, in the order CommandMetrics indexes them.
+     */
+    public static List<String> getVerbs() {
+        return COMMANDS.getVerbs();
+    }
+
+    public boolean isGameRunning() {
+        return gameRunning;
+    }
+
+    /**
+     * True if the last start() stopped because the input ended rather than
+     * because the player won or quit.
+     */
+    public boolean isInputEnded() {
+        return inputEnded;
+    }
+
+    public int getTurnCounter() {
+        return turnCounter;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public WorldState getState() {
+        return state;
+    }
+
+    /**
+     * Hash of the whole session state: position, move history, inventory, turn
+     * count, hints left and the changes made to the world. Two replays of the same
+     * transcript must produce the same value.
+     */
+    public long stateHash() {
+        long h = WorldState.mix(1, player.getCurrentRoom().getId());
+        for (Room r : player.getMoveHistory()) {
+            h = h * 31 + r.getId();
+        }
+        long inventory = 0;
+        for (Item item : player.getInventory()) {
+            inventory += WorldState.mix(2, item.getName().hashCode() * 31L + item.getValue());
+        }
+        h = WorldState.mix(h, inventory);
+        h = WorldState.mix(h, turnCounter);
+        h = WorldState.mix(h, hintQueue.size());
+        return WorldState.mix(h, state.fingerprint());
+    }
+
+    /**
+     * Save this session's progress (see SessionSnapshot).
+     */
+    public byte[] saveSnapshot() {
+        return SessionSnapshot.write(world, player, state, turnCounter, hintQueue);
+    }
+
+    /**
+     * Continue a saved session: replace this session's progress with a snapshot
+     * taken in the same world. Nothing changes if the snapshot cannot be read.
+     */
+    public void restoreSnapshot(byte[] snapshot) throws IOException {
+        WorldState restoredState = new WorldState(world.getWinConditions());
+        Player restoredPlayer = new Player(world.getEntrance(), restoredState, out);
+        Queue<String> restoredHints = new LinkedList<>();
+        int turns = SessionSnapshot.read(snapshot, world, restoredPlayer, restoredState, restoredHints);
+        state = restoredState;
+        player = restoredPlayer;
+        hintQueue = restoredHints;
+        turnCounter = turns;
+    }
+
+    /**
+     * Log every change of this session to a journal from now on, starting with a
+     * snapshot of the current progress (see SessionJournal).
+     */
+    public void attachJournal(SessionJournal journal, long sessionId) {
+        this.journal = journal;
+        this.sessionId = sessionId;
+        journalSnapshot();
+        commitJournalRecords();
+    }
+
+    private void journalSnapshot() {
+        SessionSnapshot.Writer record = SessionJournal.record(SessionJournal.SNAPSHOT, sessionId);
+        record.bytes(saveSnapshot());
+        journalEnd = journal.append(record);
+        journalRecords = 0;
+    }
+
+    private void journal(byte type) {
+        if (journal != null) {
+            journalEnd = journal.append(SessionJournal.record(type, sessionId));
+            journalRecords++;
+        }
+    }
+
+    private void journal(byte type, int id) {
+        if (journal != null) {
+            SessionSnapshot.Writer record = SessionJournal.record(type, sessionId);
+            record.varint(id);
+            journalEnd = journal.append(record);
+            journalRecords++;
+        }
+    }
+
+    /**
+     * End of a command: make its changes durable (one fsync shared with the other
+     * sessions committing at the same time). A command that journaled nothing
+     * (look, map, a typo) does not wait.
+     */
+    private void commitJournal() {
+        if (journal == null) {
+            return;
+        }
+        if (!gameRunning) {
+            journal(SessionJournal.END);
+        } else if (journalRecords >= SNAPSHOT_EVERY) {
+            journalSnapshot(); // bounds the replay work per session
+        }
+        commitJournalRecords();
+    }
+
+    private void commitJournalRecords() {
+        if (journalEnd > journalCommitted) {
+            journal.commit(journalEnd);
+            journalCommitted = journalEnd;
         }
-        scanner.close();
+    }
+
+    /**
+     * Apply one journal record to this session while recovering it.
+     */
+    void replayJournalRecord(byte type, SessionSnapshot.Reader in) throws IOException {
+        switch (type) {
+            case SessionJournal.MOVE:
+                player.moveTo(SessionSnapshot.room(world, in.varint()));
+                break;
+            case SessionJournal.BACK:
+                player.goBack();
+                break;
+            case SessionJournal.PICKUP:
+                player.take(SessionSnapshot.findItem(in, world, state));
+                break;
+            case SessionJournal.UNLOCK:
+                Room room = SessionSnapshot.room(world, in.varint());
+                player.removeKey(room.getRequiredKeySymbol());
+                state.unlock(room);
+                break;
+            case SessionJournal.SOLVE:
+                int id = in.varint();
+                if (id < 0 || id >= world.getPuzzles().size()) {
+                    throw new IOException("unknown puzzle id " + id);
+                }
+                Puzzle puzzle = world.getPuzzles().get(id);
+                state.markSolved(puzzle);
+                handlePuzzleSolved(puzzle);
+                break;
+            case SessionJournal.HINT:
+                hintQueue.poll();
+                break;
+            case SessionJournal.TURN:
+                turnCounter++;
+                break;
+            default:
+                throw new IOException("unknown journal record type " + type);
+        }
+        out.flush(); // replay output goes nowhere, do not let it pile up
     }
 
     /**
@@ -278,169 +448,234 @@ public class GameEngine {
      */
     public boolean processCommand(String cmd)
             throws InvalidCommandException, LockedRoomException, InvalidPuzzleAnswerException {
-        String[] parts = cmd.split("\\s+", 2);
-        String command = parts[0].toLowerCase();
-        String argument = parts.length > 1 ? parts[1] : "";
-
-        switch (command) {
-            case "look":
-            case "l":
-                player.getCurrentRoom().inspect();
-                return false;
-
-            case "move":
-            case "m":
-                if (argument.isEmpty()) {
-                    throw new InvalidCommandException("Syntax: move <room_name>");
-                }
-                moveToRoom(argument);
-                return true;
-
-            case "back":
-            case "b":
-                if (player.goBack()) {
-                    System.out.println("You moved back to room: " + player.getCurrentRoom().getName());
-                    return true;
-                } else {
-                    System.out.println("Cannot move back!");
-                    return false;
-                }
+        return execute(commandLine.parse(cmd));
+    }
 
-            case "pickup":
-            case "p":
-                if (argument.isEmpty()) {
-                    throw new InvalidCommandException("Syntax: pickup <item_name>");
-                }
-                if (player.pickupItem(argument)) {
-                    System.out.println("Picked up: " + argument);
-                    // After pickup, if current room (including subrooms) has no more items, notify player
-                    Room curr = player.getCurrentRoom();
-                    if (!curr.hasAnyItemRecursive()) {
-                        System.out.println("This room is quite empty, try to look in other rooms");
-                    }
-                } else {
-                    System.out.println("Item not found: " + argument);
-                }
-                return false;
-
-            case "inventory":
-            case "i":
-                // Always sort by value (insertion sort implemented in player.sortInventory())
-                if (argument.equalsIgnoreCase("value") || argument.equalsIgnoreCase("alpha")
-                        || argument.equalsIgnoreCase("alphabet") || argument.isEmpty()) {
-                    player.sortInventory();
-                    player.showInventory();
-                } else {
-                    System.out.println("Usage: inventory [value|alpha]");
-                }
-                return false;
+    /**
+     * Dispatch a tokenized command to the handler of its verb.
+     */
+    private boolean execute(CommandLine cmd)
+            throws InvalidCommandException, LockedRoomException, InvalidPuzzleAnswerException {
+        int verb = COMMANDS.indexOf(cmd);
+        if (verb < 0) {
+            if (metrics != null) {
+                metrics.invalidCommand();
+            }
+            throw new InvalidCommandException("Invalid command. Type 'help' to see the command list.");
+        }
+        CommandHandler handler = COMMANDS.getHandler(verb);
+        if (metrics == null) {
+            return handler.execute(this, cmd);
+        }
+        CommandMetrics measured = metrics;
+        inputWaitNanos = 0;
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            boolean consumed = handler.execute(this, cmd);
+            failed = false;
+            return consumed;
+        } finally {
+            measured.command(verb, System.nanoTime() - start - inputWaitNanos, failed);
+        }
+    }
 
-            case "solve":
-            case "s":
-                if (argument.isEmpty()) {
-                    throw new InvalidCommandException("Syntax: solve <puzzle_name>");
-                }
-                solvePuzzle(argument);
-                return false;
+    private boolean look(CommandLine cmd) {
+        player.getCurrentRoom().inspect(out, state);
+        return false;
+    }
 
-            case "map":
-                printFullMap();
-                return false;
+    private boolean move(CommandLine cmd) throws InvalidCommandException, LockedRoomException {
+        if (!cmd.hasArgument()) {
+            throw new InvalidCommandException("Syntax: move <room_name>");
+        }
+        moveToRoom(cmd.getArgument());
+        return true;
+    }
 
-            case "help":
-            case "h":
-                showHelp();
-                return false;
+    private boolean back(CommandLine cmd) {
+        if (player.goBack()) {
+            journal(SessionJournal.BACK);
+            out.println("You moved back to room: " + player.getCurrentRoom().getName());
+            return true;
+        } else {
+            out.println("Cannot move back!");
+            return false;
+        }
+    }
 
-            case "quit":
-            case "q":
-                gameRunning = false;
-                System.out.println("Thank you for playing!");
-                return false;
+    private boolean pickup(CommandLine cmd) throws InvalidCommandException {
+        if (!cmd.hasArgument()) {
+            throw new InvalidCommandException("Syntax: pickup <item_name>");
+        }
+        String argument = cmd.getArgument();
+        // A typo of an item in reach is resolved by the player (see Player.takeItem)
+        ArrayList<String> suggestions = new ArrayList<>();
+        Item item = player.takeItem(argument, world, suggestions);
+        if (item == null) {
+            out.println("Item not found: " + argument);
+            printSuggestions(suggestions);
+            return false;
+        }
+        String picked = item.getName().equalsIgnoreCase(argument) ? argument : item.getName();
+        if (journal != null) {
+            SessionSnapshot.Writer record = SessionJournal.record(SessionJournal.PICKUP, sessionId);
+            SessionSnapshot.writeItem(record, world, item);
+            journalEnd = journal.append(record);
+            journalRecords++;
+        }
+        out.println("Picked up: " + picked);
+        // After pickup, if current room (including subrooms) has no more items, notify player
+        Room curr = player.getCurrentRoom();
+        if (!state.hasAnyItem(curr)) {
+            out.println("This room is quite empty, try to look in other rooms");
+        }
+        return false;
+    }
 
-            default:
-                throw new InvalidCommandException("Invalid command. Type 'help' to see the command list.");
+    private boolean inventory(CommandLine cmd) {
+        // The inventory keeps both orders up to date, nothing is sorted here
+        if (cmd.argumentIs("alpha") || cmd.argumentIs("alphabet")) {
+            player.showInventoryAlphabetical();
+        } else if (cmd.argumentIs("value") || !cmd.hasArgument()) {
+            player.showInventory();
+        } else {
+            out.println("Usage: inventory [value|alpha]");
+        }
+        return false;
+    }
+
+    private boolean solve(CommandLine cmd) throws InvalidCommandException, InvalidPuzzleAnswerException {
+        if (!cmd.hasArgument()) {
+            throw new InvalidCommandException("Syntax: solve <puzzle_name>");
         }
+        solvePuzzle(cmd.getArgument());
+        return false;
+    }
+
+    private boolean map(CommandLine cmd) {
+        printFullMap();
+        return false;
+    }
+
+    private boolean help(CommandLine cmd) {
+        showHelp();
+        return false;
+    }
+
+    private boolean quit(CommandLine cmd) {
+        gameRunning = false;
+        out.println("Thank you for playing!");
+        return false;
     }
 
     /**
      * Move to another room (connected room or subroom).
      */
     private void moveToRoom(String roomName) throws LockedRoomException {
+        GameEvents.RoomMove event = new GameEvents.RoomMove();
+        event.begin();
+        Room from = player.getCurrentRoom();
+        try {
+            moveToRoom(roomName, event);
+        } finally {
+            if (event.shouldCommit()) {
+                event.from = from.getName();
+                if (!event.found) {
+                    event.to = roomName;
+                }
+                event.commit();
+            }
+        }
+    }
+
+    private void moveToRoom(String roomName, GameEvents.RoomMove event) throws LockedRoomException {
         Room currentRoom = player.getCurrentRoom();
 
-        // First, check connected rooms
-        Room targetRoom = null;
-        for (Room room : currentRoom.getConnectedRooms()) {
-            if (matchesRoomName(room.getName(), roomName)) {
-                targetRoom = room;
-                break;
-            }
+        // Resolve the name through the registry, then make sure the room is a neighbour
+        Room named = roomRegistry.findTolerant(roomName);
+        Room targetRoom = named;
+        if (targetRoom != null && !isReachableFrom(currentRoom, targetRoom)) {
+            targetRoom = null;
         }
 
-        // If not found in connected rooms, check subrooms (rooms in contents)
+        // Names are not required to be unique: fall back to the neighbours themselves,
+        // connected rooms first, then subrooms (rooms in contents)
         if (targetRoom == null) {
-            for (GameComponent component : currentRoom.getContents()) {
-                if (component instanceof Room && matchesRoomName(component.getName(), roomName)) {
-                    targetRoom = (Room) component;
-                    break;
-                }
-            }
+            targetRoom = findConnectedRoom(currentRoom, roomName);
+        }
+        if (targetRoom == null) {
+            targetRoom = currentRoom.findSubroom(roomName);
         }
 
         if (targetRoom == null) {
-            System.out.println("Room not found: " + roomName);
-            System.out.println("Available rooms:");
+            if (named != null) {
+                // A real room, just not from here: never move somewhere else instead
+                out.println("You can't get to " + named.getName() + " from here.");
+            } else {
+                // Typo or partial name: suggest neighbours, but only move where the
+                // player said (a move can use up a key and a turn)
+                out.println("Room not found: " + roomName);
+                ArrayList<Room> neighbours = new ArrayList<>(state.getConnectedRooms(currentRoom));
+                neighbours.addAll(currentRoom.getSubrooms());
+                printSuggestions(closestNames(roomName, neighbours).getNames(neighbours));
+            }
+            out.println("Available rooms:");
             // Show connected rooms
-            for (Room room : currentRoom.getConnectedRooms()) {
-                System.out.println("- " + room.getName() + " (connected)");
+            for (Room room : state.getConnectedRooms(currentRoom)) {
+                out.println("- " + room.getName() + " (connected)");
             }
             // Show subrooms
-            for (GameComponent component : currentRoom.getContents()) {
-                if (component instanceof Room) {
-                    System.out.println("- " + component.getName() + " (subroom)");
-                }
+            for (Room room : currentRoom.getSubrooms()) {
+                out.println("- " + room.getName() + " (subroom)");
             }
             return;
         }
+        event.found = true;
+        event.to = targetRoom.getName();
 
         // Check whether the room requires a key
-        if (targetRoom.getRequiredKey() != null) {
-            String req = targetRoom.getRequiredKey();
-            if (!player.hasKey(req)) {
+        // (keys are compared by name symbol, see NameTable)
+        int lock = graph.getLock(targetRoom.getId());
+        String req = lock < 0 ? null : state.getRequiredKey(targetRoom);
+        if (req != null) {
+            event.locked = true;
+            if (!player.hasKey(lock)) {
+                event.refused = true;
+                if (metrics != null) {
+                    metrics.lockedDoor();
+                }
                 throw new LockedRoomException("This room is locked! Required key: " + req);
             } else {
                 // If it's the final exit room, do not consume the Exit_Key (keeps it in
                 // inventory)
                 if (targetRoom.isExit()) {
-                    System.out.println(
+                    out.println(
                             "Used " + req + " to open the door to " + targetRoom.getName() + " (not consumed).");
-                    System.out.println(
+                    out.println(
                             "Room " + targetRoom.getName() + " has been unlocked using " + req + " (not consumed).");
                 } else {
                     // consume the key for regular locked rooms
-                    player.removeKey(req);
+                    player.removeKey(lock);
+                    event.keyConsumed = req;
                     // mark room as unlocked so it won't require the key again
-                    targetRoom.setRequiredKey(null);
-                    System.out.println(
+                    state.unlock(targetRoom);
+                    journal(SessionJournal.UNLOCK, targetRoom.getId());
+                    out.println(
                             "Used " + req + " to unlock " + targetRoom.getName() + ". Key removed from inventory.");
-                    System.out.println("Room " + targetRoom.getName() + " has been unlocked with the key.");
+                    out.println("Room " + targetRoom.getName() + " has been unlocked with the key.");
                 }
             }
         }
         player.moveTo(targetRoom);
-        System.out.println("Moved to: " + targetRoom.getName());
+        journal(SessionJournal.MOVE, targetRoom.getId());
+        out.println("Moved to: " + targetRoom.getName());
 
         // If this is a subroom with no connected rooms and no subrooms inside, it's a dead end
-        boolean hasSubroom = false;
-        for (GameComponent comp : targetRoom.getContents()) {
-            if (comp instanceof Room) {
-                hasSubroom = true;
-                break;
-            }
-        }
-        if (targetRoom.getConnectedRooms().isEmpty() && !hasSubroom) {
-            System.out.println("Dead end — try the \"back\" or \'b\' command to return to the previous room");
+        int target = targetRoom.getId();
+        if (graph.getConnectionCount(target) == 0 && graph.getSubroomCount(target) == 0
+                && state.getRevealedConnections(targetRoom).isEmpty()) {
+            out.println("Dead end — try the \"back\" or \'b\' command to return to the previous room");
         }
     }
 
@@ -448,233 +683,186 @@ public class GameEngine {
      * Solve a puzzle.
      */
     private void solvePuzzle(String puzzleName) throws InvalidPuzzleAnswerException {
+        GameEvents.PuzzleAttempt event = new GameEvents.PuzzleAttempt();
+        event.begin();
+        long waited = inputWaitNanos;
+        event.result = "invalid"; // unless the attempt gets further
+        try {
+            solvePuzzle(puzzleName, event);
+        } finally {
+            if (event.shouldCommit()) {
+                if (event.puzzle == null) {
+                    event.puzzle = puzzleName;
+                    event.puzzleId = -1;
+                }
+                event.thinkTime = inputWaitNanos - waited;
+                event.commit();
+            }
+        }
+    }
+
+    private void solvePuzzle(String puzzleName, GameEvents.PuzzleAttempt event)
+            throws InvalidPuzzleAnswerException {
         Room currentRoom = player.getCurrentRoom();
         Puzzle puzzle = currentRoom.findPuzzle(puzzleName);
         // If not found as a single puzzle, check if player requested to solve a room that
         // contains multiple puzzles (e.g., subroom 5B). Support calling: solve <subroomName>
         if (puzzle == null) {
             // Try to find a Room component with that name inside current room
-            Room puzzleRoom = null;
-            for (GameComponent comp : currentRoom.getContents()) {
-                if (comp instanceof Room && comp.getName().equalsIgnoreCase(puzzleName)) {
-                    puzzleRoom = (Room) comp;
-                    break;
-                }
-            }
+            Room puzzleRoom = currentRoom.findSubroom(puzzleName);
             if (puzzleRoom != null) {
-                // Count puzzles inside
-                ArrayList<Puzzle> puzzlesInside = new ArrayList<>();
-                for (GameComponent comp : puzzleRoom.getContents()) {
-                    if (comp instanceof Puzzle) {
-                        puzzlesInside.add((Puzzle) comp);
-                    }
-                }
+                // Copy the puzzles inside, the player may sort this list
+                ArrayList<Puzzle> puzzlesInside = new ArrayList<>(puzzleRoom.getPuzzles());
                 if (puzzlesInside.size() > 1) {
-                    solveMultiplePuzzles(puzzleRoom, puzzlesInside);
+                    event.multiple = true;
+                    solveMultiplePuzzles(puzzleRoom, puzzlesInside, event);
                     return;
                 }
             }
-            System.out.println("Puzzle not found: " + puzzleName);
-            return;
+            // Typo or partial name: take the puzzle clearly meant, if any, unless the
+            // input is the exact name of something else in the world
+            ArrayList<Puzzle> puzzles = new ArrayList<>();
+            currentRoom.collectPuzzles(puzzles);
+            FuzzyIndex.Matches matches = closestNames(puzzleName, puzzles);
+            if (matches.best() < 0 || world.getNames().lookup(puzzleName) >= 0) {
+                event.result = "not found";
+                out.println("Puzzle not found: " + puzzleName);
+                printSuggestions(matches.getNames(puzzles));
+                return;
+            }
+            puzzle = puzzles.get(matches.best());
+            out.println("Assuming you meant: " + puzzle.getName());
         }
+        event.puzzle = puzzle.getName();
+        event.puzzleId = puzzle.getId();
 
-        if (puzzle.isSolved()) {
-            System.out.println("This puzzle is already solved!");
+        if (state.isSolved(puzzle)) {
+            event.result = "already solved";
+            out.println("This puzzle is already solved!");
             return;
         }
 
         // Show basic puzzle metadata (name, difficulty, solved flag)
-        puzzle.inspect();
+        puzzle.inspect(out, state);
 
         // Display full puzzle content and hack answer when player chose to solve
-        if (puzzle instanceof RiddlePuzzle) {
-            RiddlePuzzle rp = (RiddlePuzzle) puzzle;
-            System.out.println("Riddle: " + rp.getRiddle());
-            System.out.println("Hack answer: " + rp.getAnswer());
-        } else if (puzzle instanceof CodePuzzle) {
-            CodePuzzle cp = (CodePuzzle) puzzle;
-            System.out.println("Enter the code to unlock...");
-            System.out.println("Hack answer: " + cp.getCorrectCode());
-        }
+        puzzle.present(out);
 
         // Player input for solving
-        System.out.println("\nType only the answer word or phrase.");
-        System.out.print("Your answer is: ");
-        String answer = scanner.nextLine().trim();
+        out.println("\nType only the answer word or phrase.");
+        out.print("Your answer is: ");
+        String answer = readLine().trim();
 
-        if (puzzle.attemptSolve(answer)) {
-            System.out.println("Congratulations! You solved the puzzle!");
-            puzzle.setSolved(true);
+        if (checkAnswer(puzzle, answer, event)) {
+            out.println("Congratulations! You solved the puzzle!");
+            state.markSolved(puzzle);
             handlePuzzleSolved(puzzle);
+            journal(SessionJournal.SOLVE, puzzle.getId());
         } else {
-            System.out.println("Wrong answer! Try again.");
+            out.println("Wrong answer! Try again.");
         }
     }
 
     /**
      * Solve when a room contains multiple puzzles (selection + optional sort)
      */
-    private void solveMultiplePuzzles(Room puzzleRoom, ArrayList<Puzzle> puzzlesInside)
-            throws InvalidPuzzleAnswerException {
-        System.out.println("This area contains multiple puzzles. Do you want to sort them by difficulty? (yes/no)");
-        System.out.print("Your choice: ");
-        String ch = scanner.nextLine().trim().toLowerCase();
+    private void solveMultiplePuzzles(Room puzzleRoom, ArrayList<Puzzle> puzzlesInside,
+            GameEvents.PuzzleAttempt event) throws InvalidPuzzleAnswerException {
+        out.println("This area contains multiple puzzles. Do you want to sort them by difficulty? (yes/no)");
+        out.print("Your choice: ");
+        String ch = readLine().trim().toLowerCase();
         if (ch.equals("yes") || ch.equals("y")) {
             sortPuzzlesByDifficulty(puzzlesInside);
         }
 
-        System.out.println("Available puzzles:");
+        out.println("Available puzzles:");
         for (int i = 0; i < puzzlesInside.size(); i++) {
             Puzzle p = puzzlesInside.get(i);
-            System.out.println((i + 1) + ") " + p.getName() + " (Difficulty: " + p.getDifficulty() + ")");
+            out.println((i + 1) + ") " + p.getName() + " (Difficulty: " + p.getDifficulty() + ")");
         }
 
-        System.out.print("Pick a puzzle number to attempt: ");
-        String sel = scanner.nextLine().trim();
+        out.print("Pick a puzzle number to attempt: ");
+        String sel = readLine().trim();
         int idx = -1;
         try {
             idx = Integer.parseInt(sel) - 1;
         } catch (NumberFormatException e) {
-            System.out.println("Invalid selection.");
+            out.println("Invalid selection.");
             return;
         }
         if (idx < 0 || idx >= puzzlesInside.size()) {
-            System.out.println("Invalid selection.");
+            out.println("Invalid selection.");
             return;
         }
 
         Puzzle chosen = puzzlesInside.get(idx);
-        if (chosen.isSolved()) {
-            System.out.println("This puzzle is already solved!");
+        event.puzzle = chosen.getName();
+        event.puzzleId = chosen.getId();
+        if (state.isSolved(chosen)) {
+            event.result = "already solved";
+            out.println("This puzzle is already solved!");
             return;
         }
 
         // Show basic puzzle metadata
-        chosen.inspect();
+        chosen.inspect(out, state);
         // Show full puzzle content and hack answer when player chose to solve
-        if (chosen instanceof RiddlePuzzle) {
-            RiddlePuzzle rp = (RiddlePuzzle) chosen;
-            System.out.println("Riddle: " + rp.getRiddle());
-            System.out.println("Hack answer: " + rp.getAnswer());
-        } else if (chosen instanceof CodePuzzle) {
-            CodePuzzle cp = (CodePuzzle) chosen;
-            System.out.println("Enter the code to unlock...");
-            System.out.println("Hack answer: " + cp.getCorrectCode());
-        }
-
-        System.out.print("Your answer is: ");
-        String answer = scanner.nextLine().trim();
-        if (chosen.attemptSolve(answer)) {
-            System.out.println("Congratulations! You solved the puzzle!");
-            chosen.setSolved(true);
+        chosen.present(out);
+
+        out.print("Your answer is: ");
+        String answer = readLine().trim();
+        if (checkAnswer(chosen, answer, event)) {
+            out.println("Congratulations! You solved the puzzle!");
+            state.markSolved(chosen);
             handlePuzzleSolved(chosen);
+            journal(SessionJournal.SOLVE, chosen.getId());
         } else {
-            System.out.println("Wrong answer! Try again.");
+            out.println("Wrong answer! Try again.");
         }
     }
 
     /**
-     * Handle logic when a puzzle has been solved.
-     * Puzzles can unlock keys, unlock room connections, or add hints.
+     * Check an answer, counting the attempt (an empty answer counts as wrong).
      */
-    private void handlePuzzleSolved(Puzzle puzzle) {
-        String puzzleName = puzzle.getName();
-        // Room1 subroom 1A solved -> place key for Room3 inside subroom 1A
-        if (puzzleName.equalsIgnoreCase("1A Riddle")) {
-            Item key = new Item("key_r3", 1, Item.ItemType.KEY);
-            Room where = findRoom("1A");
-            if (where != null) {
-                where.addContent(key);
-                System.out.println("A key to Room 3 has been revealed in " + where.getName()
-                        + ". Use 'p key_r3' to collect it.");
-            } else {
-                player.addToInventory(key);
-                System.out.println("A key to Room 3 has been added to your inventory (fallback): " + key.getName());
-            }
-        }
-
-        // Room1 subroom 1B solved -> place key for Room4 inside subroom 1B
-        if (puzzleName.equalsIgnoreCase("1B Riddle")) {
-            Item key = new Item("key_r4", 1, Item.ItemType.KEY);
-            Room where = findRoom("1B");
-            if (where != null) {
-                where.addContent(key);
-                System.out.println("A key to Room 4 has been revealed in " + where.getName()
-                        + ". Use 'p key_r4' to collect it.");
-            } else {
-                player.addToInventory(key);
-                System.out.println("A key to Room 4 has been added to your inventory (fallback): " + key.getName());
-            }
-        }
-
-        // Room3 puzzle solved -> place key for Room5 inside Room 3
-        if (puzzleName.equalsIgnoreCase("r3 puzzle")) {
-            Item key = new Item("key_r5", 1, Item.ItemType.KEY);
-            Room where = findRoom("Room 3");
-            if (where != null) {
-                where.addContent(key);
-                System.out.println("A key to Room 5 has been revealed in " + where.getName()
-                        + ". Use 'p key_r5' to collect it.");
-            } else {
-                player.addToInventory(key);
-                System.out.println("A key to Room 5 has been added to your inventory (fallback): " + key.getName());
-            }
-        }
-
-        // 4b code -> place Exit Key inside subroom 4B
-        if (puzzleName.equalsIgnoreCase("4b code")) {
-            Item exitKey = new Item("Exit_Key", 50, Item.ItemType.KEY);
-            Room where = findRoom("4B");
-            if (where != null) {
-                where.addContent(exitKey);
-                System.out.println("You solved the 4b code. The Exit_Key has appeared in " + where.getName()
-                        + ". Use 'p Exit_Key' to collect it.");
-            } else {
-                player.addToInventory(exitKey);
-                System.out.println("You solved the 4b code and received the Exit_Key (fallback)!");
-            }
-        }
-
-        // If a puzzle inside 5B was solved, reveal the Exit Room connection
-        if (puzzleName.startsWith("5B Puzzle")) {
-            // mark solved and reveal exit room connection from Room 5
-            puzzle5Bsolved = true;
-            Room room5 = findRoom("Room 5");
-            Room exitRoom = findRoom("Exit Room");
-            if (room5 != null && exitRoom != null) {
-                room5.addConnectedRoom(exitRoom);
-                hintQueue.offer(
-                        "You heard a distant rumble: A new door has opened somewhere (the Exit might be visible now).");
-                System.out.println("Solving this puzzle has revealed a new path. Use 'look' to inspect nearby rooms.");
+    private boolean checkAnswer(Puzzle puzzle, String answer, GameEvents.PuzzleAttempt event)
+            throws InvalidPuzzleAnswerException {
+        boolean correct = false;
+        try {
+            correct = puzzle.checkAnswer(answer);
+            event.result = correct ? "solved" : "wrong";
+            return correct;
+        } finally {
+            if (metrics != null) {
+                metrics.puzzleAttempt(puzzle, correct);
             }
         }
     }
 
     /**
-     * Find a room by name in the map.
+     * Handle logic when a puzzle has been solved.
+     * Puzzles can reveal keys, unlock room connections, or add hints; what each
+     * puzzle does is declared by the rewards of the world file and looked up by
+     * puzzle id.
      */
-    private Room findRoom(String name) {
-        for (Room r : map) {
-            if (r.getName().equalsIgnoreCase(name)) {
-                return r;
-            }
+    private void handlePuzzleSolved(Puzzle puzzle) {
+        for (PuzzleReward reward : world.getRewardTable().get(puzzle)) {
+            reward.apply(state, player, hintQueue, out);
         }
-        return null;
     }
 
     /**
      * Print the current game status.
      */
     public void printStatus() {
-        System.out.println("\n" + "=".repeat(40));
-        System.out.println("Turns: " + turnCounter);
-        System.out.println("Current room: " + player.getCurrentRoom().getName());
+        out.println("\n" + STATUS_RULE);
+        out.println("Turns: " + turnCounter);
+        out.println("Current room: " + player.getCurrentRoom().getName());
         if (player.getCurrentRoom().isExit()) {
-            System.out.println(">>> YOU HAVE FOUND THE EXIT! <<<");
+            out.println(">>> YOU HAVE FOUND THE EXIT! <<<");
         }
         // Show required items status -> Dont use this for now
         // if (!requiredItems.isEmpty()) {
-        //     System.out.println("\nRequired items to escape:");
+        //     out.println("\nRequired items to escape:");
         //     for (String requiredItem : requiredItems) {
         //         boolean hasItem = false;
         //         for (Item item : player.getInventory()) {
@@ -683,95 +871,90 @@ public class GameEngine {
         //                 break;
         //             }
         //         }
-        //         System.out.println("  " + (hasItem ? "✓" : "✗") + " " + requiredItem);
+        //         out.println("  " + (hasItem ? "✓" : "✗") + " " + requiredItem);
         //     }
         // }
-        System.out.println("=".repeat(40));
+        out.println(STATUS_RULE);
     }
 
     /**
-     * Check if at least one puzzle in Room 5B is solved.
+     * Check whether the player has escaped. Goal progress is tracked as the
+     * player moves, picks up items and solves puzzles, so this is a constant-time
+     * test except when a message about missing goals has to be printed.
      */
-    private boolean isAnyPuzzleIn5BSolved() {
-        Room room5B = findRoom("5B");
-        if (room5B == null) {
-            return false;
-        }
-
-        for (GameComponent component : room5B.getContents()) {
-            if (component instanceof Puzzle) {
-                Puzzle puzzle = (Puzzle) component;
-                if (puzzle.isSolved()) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     public void winConditionCheck() {
-        if (!player.getCurrentRoom().isExit()) {
+        GoalTracker goals = state.getGoals();
+        if (!goals.isAtExit()) {
             return; // Not at exit yet
         }
 
-        // Check for required items (e.g., Exit_Key)
-        ArrayList<String> missingItems = new ArrayList<>();
-        for (String requiredItem : requiredItems) {
-            boolean hasItem = false;
-            for (Item item : player.getInventory()) {
-                if (item.getName().equalsIgnoreCase(requiredItem)) {
-                    hasItem = true;
-                    break;
+        if (goals.isWon()) {
+            // Win condition met: at exit, has required items, and solved a puzzle in every goal room
+            out.println("\n" + BANNER_RULE);
+            out.println("CONGRATULATIONS! YOU ESCAPED THE ROOM!");
+            // worlds without goal rooms (e.g. generated ones) have no puzzle clause
+            String goalRooms = goalRoomNames();
+            out.println("You collected all required items"
+                    + (goalRooms.isEmpty() ? "" : " and solved a puzzle in Room " + goalRooms) + "!");
+            out.println("Number of turns: " + turnCounter);
+            out.println(BANNER_RULE);
+            gameRunning = false;
+        } else {
+            // At exit but missing required items or unsolved puzzles
+            out.println("\n" + BANNER_RULE);
+            if (!goals.hasRequiredItems()) {
+                out.println("You're missing required items to escape:");
+                for (String mi : goals.getMissingItems()) {
+                    out.println(" - " + mi);
                 }
             }
-            if (!hasItem) {
-                missingItems.add(requiredItem);
+            if (!goals.arePuzzleGoalsMet()) {
+                out.println("You need to solve at least one puzzle in Room " + goalRoomNames() + " to escape!");
             }
+            out.println("To escape you need to " + escapeConditions() + "!");
+            out.println(BANNER_RULE);
         }
+    }
 
-        // Check if at least one puzzle in Room 5B is solved
-        boolean puzzle5BSolved = isAnyPuzzleIn5BSolved();
+    /**
+     * All win conditions of the world, e.g. "have Exit_Key and solve a puzzle in
+     * Room 5B" (not called for worlds without any, which are won at the exit).
+     */
+    private String escapeConditions() {
+        List<String> items = world.getWinConditions().getRequiredItems();
+        String goalRooms = goalRoomNames();
+        String have = items.isEmpty() ? "" : "have " + String.join(", ", items);
+        String solve = goalRooms.isEmpty() ? "" : "solve a puzzle in Room " + goalRooms;
+        return have.isEmpty() || solve.isEmpty() ? have + solve : have + " and " + solve;
+    }
 
-        if (missingItems.isEmpty() && puzzle5BSolved) {
-            // Win condition met: at exit, has required items, and solved a puzzle in 5B
-            System.out.println("\n" + "=".repeat(50));
-            System.out.println("CONGRATULATIONS! YOU ESCAPED THE ROOM!");
-            System.out.println("You collected all required items and solved a puzzle in Room 5B!");
-            System.out.println("Number of turns: " + turnCounter);
-            System.out.println("=".repeat(50));
-            gameRunning = false;
-        } else {
-            // At exit but missing required items or unsolved puzzles
-            System.out.println("\n" + "=".repeat(50));
-            if (!missingItems.isEmpty()) {
-                System.out.println("You're missing required items to escape:");
-                for (String mi : missingItems) {
-                    System.out.println(" - " + mi);
-                }
-            }
-            if (!puzzle5BSolved) {
-                System.out.println("You need to solve at least one puzzle in Room 5B to escape!");
+    private String goalRoomNames() {
+        StringBuilder names = new StringBuilder();
+        for (Room room : world.getWinConditions().getGoalRooms()) {
+            if (names.length() > 0) {
+                names.append(", ");
             }
-            System.out.println("You need to fulfill all conditions (1 in 3 puzzle is solved && have Exit_Key to escape!");
-            System.out.println("=".repeat(50));
+            names.append(room.getName());
         }
+        return names.toString();
     }
 
     /**
      * Display help menu.
      */
     private void showHelp() {
-        System.out.println("\n=== COMMAND LIST ===");
-        System.out.println("look / l                         - Inspect the current room");
-        System.out.println("move <room_name> / m <room>      - Move to a connected room");
-        System.out.println("back / b                         - Move back to the previous room");
-        System.out.println("pickup <item_name> / p <item>    - Pick up an item");
-        System.out.println("inventory / i                    - Show your inventory");
-        System.out.println("solve <puzzle_name> / s <puzzle> - Solve a puzzle");
-        System.out.println("map                              - View the full map (debug)");
-        System.out.println("help / h                         - Show this menu");
-        System.out.println("quit/q                           - Exit the game");
-        System.out.println("\nTip: type 'help' any time to see this list again.\n");
+        out.println("\n=== COMMAND LIST ===");
+        out.println("look / l                         - Inspect the current room");
+        out.println("move <room_name> / m <room>      - Move to a connected room");
+        out.println("back / b                         - Move back to the previous room");
+        out.println("pickup <item_name> / p <item>    - Pick up an item");
+        out.println("inventory / i                    - Show your inventory");
+        out.println("solve <puzzle_name> / s <puzzle> - Solve a puzzle");
+        out.println("map                              - View the full map (debug)");
+        out.println("help / h                         - Show this menu");
+        out.println("quit/q                           - Exit the game");
+        out.println("Any unique start of a command also works (e.g. 'inv', 'pick', 'mo').");
+        out.println("\nTip: type 'help' any time to see this list again.\n");
 
     }
 
@@ -0,0 +1,133 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * GameEvents holds the Java Flight Recorder events emitted by the engine, so a
+ * recording shows room moves, puzzle attempts, pickups and world lookups next to
+ * GC and thread activity:
+ *   java -XX:StartFlightRecording:filename=game.jfr Main --server
+ *   jfr print --categories "Escape Room" game.jfr
+ * Events are only filled in when shouldCommit() says the recording wants them,
+ * so they cost next to nothing while no recording is running.
+ */
+public final class GameEvents {
+    private GameEvents() {
+    }
+
+    @Name("escaperoom.RoomMove")
+    @Label("Room Move")
+    @Category({"Escape Room", "Engine"})
+    @Description("A move command: where from, where to, and what the door did")
+    @StackTrace(false)
+    public static final class RoomMove extends Event {
+        @Label("From")
+        public String from;
+
+        @Label("To")
+        @Description("Target room, or the name typed if no neighbour has it")
+        public String to;
+
+        @Label("Found")
+        public boolean found;
+
+        @Label("Locked")
+        @Description("The target room required a key")
+        public boolean locked;
+
+        @Label("Key Consumed")
+        @Description("Key used up to open the door, null if none")
+        public String keyConsumed;
+
+        @Label("Refused")
+        @Description("The door was locked and the player had no key")
+        public boolean refused;
+    }
+
+    @Name("escaperoom.PuzzleAttempt")
+    @Label("Puzzle Attempt")
+    @Category({"Escape Room", "Engine"})
+    @Description("A solve command, from reading the puzzle name to checking the answer")
+    @StackTrace(false)
+    public static final class PuzzleAttempt extends Event {
+        @Label("Puzzle")
+        public String puzzle;
+
+        @Label("Puzzle Id")
+        public int puzzleId;
+
+        @Label("Result")
+        @Description("solved, wrong, invalid, already solved or not found")
+        public String result;
+
+        @Label("Multiple")
+        @Description("Chosen from a room with several puzzles")
+        public boolean multiple;
+
+        @Label("Think Time")
+        @Description("Time spent waiting for the player's input")
+        @Timespan(Timespan.NANOSECONDS)
+        public long thinkTime;
+    }
+
+    @Name("escaperoom.ItemPickup")
+    @Label("Item Pickup")
+    @Category({"Escape Room", "Engine"})
+    @StackTrace(false)
+    public static final class ItemPickup extends Event {
+        @Label("Room")
+        public String room;
+
+        @Label("Item")
+        public String item;
+
+        @Label("Found")
+        public boolean found;
+    }
+
+    @Name("escaperoom.WorldLookup")
+    @Label("World Lookup")
+    @Category({"Escape Room", "World"})
+    @Description("A search for an item or puzzle by name through a room and its subrooms")
+    public static final class WorldLookup extends Event {
+        @Label("Kind")
+        public String kind;
+
+        @Label("Name")
+        public String name;
+
+        @Label("Room")
+        @Description("Room the search started in")
+        public String room;
+
+        @Label("Rooms Visited")
+        public int roomsVisited;
+
+        @Label("Found")
+        public boolean found;
+
+        /**
+         * The event to count visited rooms into, or null if no recording wants it.
+         */
+        WorldLookup counting() {
+            return isEnabled() ? this : null;
+        }
+
+        /**
+         * Fill in and commit the event if the recording wants it.
+         */
+        void commit(String kind, String name, Room start, boolean found) {
+            if (shouldCommit()) {
+                this.kind = kind;
+                this.name = name;
+                this.room = start.getName();
+                this.found = found;
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * GameOutput is the per-session output buffer. Everything the game prints for a
+ * player is appended to one reusable StringBuilder, and flush() hands the whole
+ * turn to the OutputSink at once, so a command costs one write (and usually one
+ * syscall) instead of one per line.
+ */
+public class GameOutput {
+    private static final int INITIAL_CAPACITY = 2048;
+
+    private final StringBuilder buffer;
+    private final OutputSink sink;
+    private final boolean autoFlush; // flush after every line (for one-off printing)
+
+    public GameOutput(OutputSink sink) {
+        this(sink, false);
+    }
+
+    public GameOutput(OutputSink sink, boolean autoFlush) {
+        this.buffer = new StringBuilder(INITIAL_CAPACITY);
+        this.sink = sink;
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Unbuffered console output, for printing outside a game session.
+     */
+    public static GameOutput console() {
+        return new GameOutput(new ConsoleOutputSink(), true);
+    }
+
+    public GameOutput print(String text) {
+        buffer.append(text);
+        return this;
+    }
+
+    public GameOutput println(String text) {
+        buffer.append(text).append('\n');
+        if (autoFlush) {
+            flush();
+        }
+        return this;
+    }
+
+    public GameOutput println() {
+        return println("");
+    }
+
+    /**
+     * Send the buffered text to the sink and clear the buffer for reuse.
+     */
+    public void flush() {
+        if (buffer.length() > 0) {
+            sink.write(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    public OutputSink getSink() {
+        return sink;
+    }
+}
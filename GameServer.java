@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+
+/**
+ * GameServer hosts many game sessions in one JVM over a local TCP socket.
+ * Every connection gets its own virtual thread and its own GameEngine, which reads
+ * commands from the socket and prints responses back to it.
+ *
+ * With a SessionJournal every session gets an id and all its changes are
+ * journaled, so sessions survive both a dropped connection and a server crash:
+ * a client continues one by sending "resume <id>" as its first line.
+ *
+ * Command counts and latencies of all sessions are published over JMX (see
+ * CommandMetrics).
+ *
+ * Try it with: java Main --server 4000   then   nc localhost 4000
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 4000;
+
+    private final int port;
+    private final WorldTemplate world; // shared by all sessions
+    private final AtomicInteger activeSessions;
+    private final AtomicLong totalSessions;
+    private final SessionJournal journal; // null if sessions are not journaled
+    private final Map<Long, byte[]> detached; // session id -> snapshot of sessions waiting to be resumed
+    private final SecureRandom ids;
+    private final CommandMetrics metrics; // shared by all sessions, published over JMX while running
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+
+    public GameServer(int port) {
+        this(port, WorldTemplate.getDefault());
+    }
+
+    public GameServer(int port, WorldTemplate world) {
+        this(port, world, null);
+    }
+
+    /**
+     * Create a server whose sessions are journaled. Sessions recovered from the
+     * journal can be resumed by their id.
+     */
+    public GameServer(int port, WorldTemplate world, SessionJournal journal) {
+        this.port = port;
+        this.world = world;
+        this.activeSessions = new AtomicInteger();
+        this.totalSessions = new AtomicLong();
+        this.journal = journal;
+        this.detached = new ConcurrentHashMap<>();
+        this.ids = new SecureRandom();
+        this.metrics = new CommandMetrics();
+        if (journal != null) {
+            detached.putAll(journal.getRecoveredSessions());
+        }
+    }
+
+    /**
+     * Accept connections until stop() is called. Blocks the calling thread.
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        running = true;
+        try {
+            metrics.register(CommandMetrics.DEFAULT_DOMAIN);
+        } catch (JMException e) {
+            System.out.println("Command metrics not published over JMX: " + e.getMessage());
+        }
+        System.out.println("Escape Room server listening on " + serverSocket.getLocalSocketAddress()
+                + " (" + Runtime.getRuntime().availableProcessors() + " cores)");
+        if (journal != null) {
+            System.out.println(detached.size() + " session(s) can be resumed from the journal");
+        }
+
+        try (ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (running) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (running) {
+                        System.out.println("Accept failed: " + e.getMessage());
+                        continue;
+                    }
+                    break; // socket closed by stop()
+                }
+                sessions.submit(() -> runSession(socket));
+            }
+        } finally {
+            metrics.unregister();
+        }
+    }
+
+    /**
+     * Stop accepting connections. Sessions already running finish on their own.
+     */
+    public void stop() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            // ignore, we are shutting down
+        }
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public long getTotalSessions() {
+        return totalSessions.get();
+    }
+
+    public CommandMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Run one game session on the current (virtual) thread.
+     */
+    private void runSession(Socket socket) {
+        activeSessions.incrementAndGet();
+        totalSessions.incrementAndGet();
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            if (journal == null) {
+                GameEngine game = new GameEngine(s.getInputStream(), new SocketOutputSink(s));
+                game.initializeGame(world);
+                game.setMetrics(metrics);
+                game.start();
+            } else {
+                runJournaledSession(s);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // client went away, nothing to clean up beyond closing the socket
+        } catch (Exception e) {
+            System.out.println("Session error: " + e.getMessage());
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Run a session whose changes go to the journal. The first input line may be
+     * "resume <id>" to continue a detached session; otherwise a new one starts.
+     */
+    private void runJournaledSession(Socket s) throws IOException {
+        SocketOutputSink sink = new SocketOutputSink(s);
+        JournaledInput input = new JournaledInput(LineSource.of(s.getInputStream()), ids.nextLong());
+        GameEngine game = new GameEngine(input, sink);
+        input.game = game;
+        game.initializeGame(world);
+        game.setMetrics(metrics);
+        sink.write("Session " + Long.toHexString(input.id) + " (send \"resume <id>\" first to continue it later)\n");
+        game.start();
+        if (!input.attached) {
+            return; // left before the first command, nothing to keep
+        }
+        if (game.isInputEnded()) {
+            detached.put(input.id, game.saveSnapshot());
+        } else {
+            detached.remove(input.id); // won or quit
+        }
+    }
+
+    /**
+     * Input of a journaled session. The session is attached to the journal when
+     * its first line arrives, after a detached session has been restored if that
+     * line asks to resume one.
+     */
+    private final class JournaledInput implements LineSource {
+        private final LineSource lines;
+        private GameEngine game;
+        private long id;
+        private boolean attached;
+
+        JournaledInput(LineSource lines, long id) {
+            this.lines = lines;
+            this.id = id;
+        }
+
+        @Override
+        public String readLine() {
+            String line = lines.readLine();
+            if (attached || line == null) {
+                return line;
+            }
+            String[] words = line.trim().split("\\s+");
+            if (words.length == 2 && words[0].equalsIgnoreCase("resume")) {
+                GameOutput out = game.getPlayer().getOutput();
+                long resumed;
+                try {
+                    resumed = Long.parseUnsignedLong(words[1], 16);
+                } catch (NumberFormatException e) {
+                    resumed = 0;
+                }
+                byte[] snapshot = detached.remove(resumed);
+                if (snapshot == null) {
+                    out.println("No session " + words[1] + " to resume, starting a new one.");
+                } else {
+                    try {
+                        game.restoreSnapshot(snapshot);
+                        id = resumed;
+                        out.println("Resumed session " + words[1] + ".");
+                        game.printStatus();
+                    } catch (IOException e) {
+                        out.println("Session " + words[1] + " cannot be resumed: " + e.getMessage());
+                    }
+                }
+                game.attachJournal(journal, id);
+                attached = true;
+                out.print("\n> ");
+                out.flush();
+                return readLine();
+            }
+            game.attachJournal(journal, id);
+            attached = true;
+            return line;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GoalTracker follows one session's progress towards the WinConditions of its
+ * world. Pickups, solved puzzles and moves update counters as they happen, so
+ * checking for a win is a constant-time test no matter how many goals a world
+ * defines.
+ */
+public class GoalTracker {
+    private final WinConditions conditions;
+    private final int[] itemCounts;   // item goal -> matching items in the inventory
+    private final int[] puzzlesSolved; // puzzle goal -> solved puzzles of that goal room
+    private int missingItems;         // item goals with a count of zero
+    private int openPuzzleGoals;      // puzzle goals without a solved puzzle
+    private boolean atExit;
+
+    public GoalTracker(WinConditions conditions) {
+        this.conditions = conditions;
+        this.itemCounts = new int[conditions.getItemGoalCount()];
+        this.puzzlesSolved = new int[conditions.getPuzzleGoalCount()];
+        this.missingItems = itemCounts.length;
+        this.openPuzzleGoals = puzzlesSolved.length;
+    }
+
+    public void itemAdded(Item item) {
+        int goal = conditions.itemGoalOf(item);
+        if (goal >= 0 && itemCounts[goal]++ == 0) {
+            missingItems--;
+        }
+    }
+
+    public void itemRemoved(Item item) {
+        int goal = conditions.itemGoalOf(item);
+        if (goal >= 0 && --itemCounts[goal] == 0) {
+            missingItems++;
+        }
+    }
+
+    /**
+     * Record a newly solved puzzle (call once per puzzle).
+     */
+    public void puzzleSolved(Puzzle puzzle) {
+        int goal = conditions.puzzleGoalOf(puzzle);
+        if (goal >= 0 && puzzlesSolved[goal]++ == 0) {
+            openPuzzleGoals--;
+        }
+    }
+
+    public void moved(Room room) {
+        atExit = room != null && room.isExit();
+    }
+
+    /**
+     * True if the player stands in an exit room and all goals are met.
+     */
+    public boolean isWon() {
+        return atExit && missingItems == 0 && openPuzzleGoals == 0;
+    }
+
+    public boolean isAtExit() {
+        return atExit;
+    }
+
+    public boolean hasRequiredItems() {
+        return missingItems == 0;
+    }
+
+    public boolean arePuzzleGoalsMet() {
+        return openPuzzleGoals == 0;
+    }
+
+    /**
+     * Names of the required items not in the inventory, in world order.
+     */
+    public List<String> getMissingItems() {
+        ArrayList<String> missing = new ArrayList<>();
+        if (missingItems == 0) {
+            return missing;
+        }
+        for (String name : conditions.getRequiredItems()) {
+            if (itemCounts[conditions.itemGoalOf(name)] == 0) {
+                missing.add(name);
+            }
+        }
+        return missing;
+    }
+
+    public WinConditions getConditions() {
+        return conditions;
+    }
+}
@@ -2,6 +2,8 @@
  * Exception thrown when the player enters an invalid command.
  */
 public class InvalidCommandException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     public InvalidCommandException(String message) {
         super(message);
     }
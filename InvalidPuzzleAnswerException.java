@@ -2,6 +2,8 @@
  * Exception thrown when the player gives an invalid answer to a puzzle.
  */
 public class InvalidPuzzleAnswerException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     public InvalidPuzzleAnswerException(String message) {
         super(message);
     }
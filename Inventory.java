@@ -0,0 +1,260 @@
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+
+/**
+ * Inventory holds the items a player carries. Besides the items in pickup order
+ * it keeps, up to date on every add and remove:
+ * - a by-name hash index (case-insensitive), and for items of a world an index
+ *   by name symbol (see NameTable), so key checks take constant time
+ * - the items of each ItemType
+ * - a value-ordered view (value, then name) and a name-ordered view
+ * so listing the inventory in either order needs no sorting.
+ */
+public class Inventory implements Iterable<Item> {
+
+    /**
+     * One carried item. The sequence number keeps equal-looking items (same
+     * name and value) apart in the ordered views.
+     */
+    private static final class Entry {
+        final Item item;
+        final String key; // lower-case name
+        final long seq;
+
+        Entry(Item item, long seq) {
+            this.item = item;
+            this.key = item.getName().toLowerCase();
+            this.seq = seq;
+        }
+    }
+
+    private static final Comparator<Entry> BY_VALUE = (a, b) -> {
+        int c = a.item.compareTo(b.item);
+        return c != 0 ? c : Long.compare(a.seq, b.seq);
+    };
+    private static final Comparator<Entry> BY_NAME = (a, b) -> {
+        int c = a.key.compareTo(b.key);
+        return c != 0 ? c : Long.compare(a.seq, b.seq);
+    };
+
+    private final LinkedHashSet<Entry> entries; // pickup order
+    private final HashMap<String, ArrayList<Entry>> nameIndex; // lower-case name -> items with that name
+    private final SymbolMap<ArrayList<Entry>> symbolIndex; // name symbol -> items with that symbol (not boxed)
+    private final EnumMap<Item.ItemType, LinkedHashSet<Entry>> typeIndex;
+    private final TreeSet<Entry> valueOrder;
+    private final TreeSet<Entry> nameOrder;
+    private long nextSeq;
+
+    public Inventory() {
+        this.entries = new LinkedHashSet<>();
+        this.nameIndex = new HashMap<>();
+        this.symbolIndex = new SymbolMap<>();
+        this.typeIndex = new EnumMap<>(Item.ItemType.class);
+        for (Item.ItemType type : Item.ItemType.values()) {
+            typeIndex.put(type, new LinkedHashSet<>());
+        }
+        this.valueOrder = new TreeSet<>(BY_VALUE);
+        this.nameOrder = new TreeSet<>(BY_NAME);
+    }
+
+    public void add(Item item) {
+        Entry entry = new Entry(item, nextSeq++);
+        entries.add(entry);
+        nameIndex.computeIfAbsent(entry.key, k -> new ArrayList<>(1)).add(entry);
+        int symbol = item.getSymbol();
+        if (symbol >= 0) {
+            // keyed by symbol, so the index grows with the inventory, not with the world
+            ArrayList<Entry> symbols = symbolIndex.get(symbol);
+            if (symbols == null) {
+                symbols = new ArrayList<>(1);
+                symbolIndex.put(symbol, symbols);
+            }
+            symbols.add(entry);
+        }
+        typeIndex.get(item.getItemType()).add(entry);
+        valueOrder.add(entry);
+        nameOrder.add(entry);
+    }
+
+    /**
+     * Remove this exact item.
+     * @return true if it was in the inventory
+     */
+    public boolean remove(Item item) {
+        ArrayList<Entry> named = nameIndex.get(item.getName().toLowerCase());
+        if (named != null) {
+            for (int i = 0; i < named.size(); i++) {
+                if (named.get(i).item == item) {
+                    unlink(named, i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the first item (in pickup order) of a type with a name, ignoring case.
+     * @return the removed item, or null if there is none
+     */
+    public Item remove(String name, Item.ItemType type) {
+        ArrayList<Entry> named = nameIndex.get(name.toLowerCase());
+        if (named != null) {
+            for (int i = 0; i < named.size(); i++) {
+                if (named.get(i).item.getItemType() == type) {
+                    return unlink(named, i).item;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove the first item (in pickup order) of a type with a name symbol.
+     * @return the removed item, or null if there is none
+     */
+    public Item remove(int symbol, Item.ItemType type) {
+        ArrayList<Entry> named = withSymbol(symbol);
+        if (named != null) {
+            for (Entry entry : named) {
+                if (entry.item.getItemType() == type) {
+                    ArrayList<Entry> byName = nameIndex.get(entry.key);
+                    return unlink(byName, byName.indexOf(entry)).item;
+                }
+            }
+        }
+        return null;
+    }
+
+    private ArrayList<Entry> withSymbol(int symbol) {
+        return symbolIndex.get(symbol);
+    }
+
+    private Entry unlink(ArrayList<Entry> named, int index) {
+        Entry entry = named.remove(index);
+        if (named.isEmpty()) {
+            nameIndex.remove(entry.key);
+        }
+        ArrayList<Entry> symbols = withSymbol(entry.item.getSymbol());
+        if (symbols != null) {
+            symbols.remove(entry);
+            if (symbols.isEmpty()) {
+                symbolIndex.remove(entry.item.getSymbol());
+            }
+        }
+        entries.remove(entry);
+        typeIndex.get(entry.item.getItemType()).remove(entry);
+        valueOrder.remove(entry);
+        nameOrder.remove(entry);
+        return entry;
+    }
+
+    /**
+     * Check for an item of a type with a name, ignoring case.
+     */
+    public boolean contains(String name, Item.ItemType type) {
+        ArrayList<Entry> named = nameIndex.get(name.toLowerCase());
+        if (named != null) {
+            for (Entry entry : named) {
+                if (entry.item.getItemType() == type) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check for an item of a type with a name symbol.
+     */
+    public boolean contains(int symbol, Item.ItemType type) {
+        ArrayList<Entry> named = withSymbol(symbol);
+        if (named != null) {
+            for (Entry entry : named) {
+                if (entry.item.getItemType() == type) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check for an item with a name, ignoring case.
+     */
+    public boolean contains(String name) {
+        return nameIndex.containsKey(name.toLowerCase());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Items in pickup order.
+     */
+    @Override
+    public Iterator<Item> iterator() {
+        return items(entries).iterator();
+    }
+
+    /**
+     * Items ordered by value, then name (see Item.compareTo).
+     */
+    public Collection<Item> byValue() {
+        return items(valueOrder);
+    }
+
+    /**
+     * Items ordered by name, ignoring case.
+     */
+    public Collection<Item> byName() {
+        return items(nameOrder);
+    }
+
+    /**
+     * Items of one type, in pickup order.
+     */
+    public Collection<Item> ofType(Item.ItemType type) {
+        return items(typeIndex.get(type));
+    }
+
+    /**
+     * Read-only view of the items of an entry collection.
+     */
+    private static Collection<Item> items(Collection<Entry> source) {
+        return new AbstractCollection<Item>() {
+            @Override
+            public Iterator<Item> iterator() {
+                Iterator<Entry> it = source.iterator();
+                return new Iterator<Item>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Item next() {
+                        return it.next().item;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return source.size();
+            }
+        };
+    }
+}
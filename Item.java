@@ -9,6 +9,7 @@ public class Item extends GameComponent implements Collectible, Comparable<Item>
 
     private int value;
     private ItemType itemType;
+    private PuzzleReward source; // reward that spawned this item in a session, null for world items
 
     public Item(String name, int value, ItemType itemType) {
         super(name);
@@ -24,15 +25,26 @@ public class Item extends GameComponent implements Collectible, Comparable<Item>
         return itemType;
     }
 
+    /**
+     * Get the puzzle reward that spawned this item (null for items of the world itself).
+     */
+    public PuzzleReward getSource() {
+        return source;
+    }
+
+    void setSource(PuzzleReward source) {
+        this.source = source;
+    }
+
     @Override
-    public void inspect() {
-        System.out.println("Item: " + name + " (Type: " + itemType + ", Value: " + value + ")");
+    public void inspect(GameOutput out) {
+        out.println("Item: " + name + " (Type: " + itemType + ", Value: " + value + ")");
     }
 
     @Override
     public void collect(Player p) {
         p.addToInventory(this);
-        System.out.println("Collected: " + name);
+        p.getOutput().println("Collected: " + name);
     }
 
     /**
@@ -0,0 +1,40 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Interface for where a game session reads its input lines from
+ * (console, socket, or a recorded transcript).
+ */
+public interface LineSource {
+    /**
+     * Read the next line, or return null when there is no more input.
+     */
+    String readLine();
+
+    /**
+     * Lines read from a stream (console or socket).
+     */
+    static LineSource of(InputStream in) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        return () -> {
+            try {
+                return reader.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Lines taken from a list, e.g. a recorded transcript.
+     */
+    static LineSource of(List<String> lines) {
+        Iterator<String> it = lines.iterator();
+        return () -> it.hasNext() ? it.next() : null;
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * LoadGenerator opens many concurrent sessions against a local GameServer and
+ * replays a fixed list of commands in each, measuring the latency of every command
+ * (time from sending the line until the next "> " prompt arrives).
+ *
+ * Usage: java LoadGenerator [host] [port] [sessions] [commandsPerSession]
+ */
+public class LoadGenerator {
+    // Commands that never ask follow-up questions, so every one ends at a "> " prompt
+    private static final String[] SCRIPT = {
+        "look", "m hallway", "m room 1", "m 1a", "look", "b", "m 1b", "b", "b", "map", "i", "m room 2", "b", "b"
+    };
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int commandsPerSession = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                results.add(clients.submit(() -> runClient(host, port, commandsPerSession)));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Merge all per-command latencies
+        long[] all = new long[sessions * commandsPerSession];
+        int n = 0;
+        int failed = 0;
+        for (Future<long[]> f : results) {
+            try {
+                long[] lat = f.get();
+                System.arraycopy(lat, 0, all, n, lat.length);
+                n += lat.length;
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        all = Arrays.copyOf(all, n);
+        Arrays.sort(all);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double seconds = elapsed / 1e9;
+        System.out.println("Sessions: " + sessions + " (" + failed + " failed), cores: " + cores);
+        System.out.printf("Sessions per core: %.1f%n", (double) (sessions - failed) / cores);
+        System.out.printf("Commands: %d in %.2f s (%.0f commands/s)%n", n, seconds, n / seconds);
+        if (n > 0) {
+            System.out.printf("Latency us: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                    percentile(all, 0.50) / 1e3, percentile(all, 0.90) / 1e3,
+                    percentile(all, 0.99) / 1e3, all[n - 1] / 1e3);
+        }
+    }
+
+    /**
+     * Run one client session and return the latency (ns) of each command.
+     */
+    private static long[] runClient(String host, int port, int commands) throws IOException {
+        long[] latencies = new long[commands];
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            awaitPrompt(in); // welcome banner
+            for (int i = 0; i < commands; i++) {
+                byte[] line = (SCRIPT[i % SCRIPT.length] + "\n").getBytes(StandardCharsets.UTF_8);
+                long t0 = System.nanoTime();
+                out.write(line);
+                out.flush();
+                awaitPrompt(in);
+                latencies[i] = System.nanoTime() - t0;
+            }
+            out.write("quit\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        return latencies;
+    }
+
+    /**
+     * Read until the server prints the "> " command prompt.
+     */
+    private static void awaitPrompt(InputStream in) throws IOException {
+        byte[] buf = new byte[8192];
+        int prev = -1;
+        while (true) {
+            int len = in.read(buf);
+            if (len < 0) {
+                throw new IOException("Server closed the connection");
+            }
+            // the prompt is always the last thing written before the server waits for input
+            int last = buf[len - 1];
+            int beforeLast = len > 1 ? buf[len - 2] : prev;
+            if (last == ' ' && beforeLast == '>') {
+                return;
+            }
+            prev = last;
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int idx = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+        return sorted[idx];
+    }
+}
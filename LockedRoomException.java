@@ -2,6 +2,8 @@
  * Exception thrown when the player tries to enter a locked room without a key.
  */
 public class LockedRoomException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     public LockedRoomException(String message) {
         super(message);
     }
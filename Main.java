@@ -1,7 +1,80 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+
     public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // Options:
+        //   --world <file>               play a .world or compiled .worldc file
+        //   --generate <rooms> [seed]    play a generated world (see WorldGenerator)
+        //   --server [port]              host many sessions over a local TCP socket
+        //   --compile <in.world> <out>   compile a text world to its binary form
+        //   --save <file>                continue the game saved in the file (if any) and save it on exit
+        //   --journal <file>             with --server: journal all sessions so they survive a crash
+        WorldTemplate world = null;
+        Path saveFile = null;
+        Path journalFile = null;
+        boolean server = false;
+        int port = GameServer.DEFAULT_PORT;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--world":
+                    world = WorldTemplate.load(Path.of(args[++i]));
+                    break;
+                case "--generate":
+                    int rooms = Integer.parseInt(args[++i]);
+                    long seed = 1;
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        seed = Long.parseLong(args[++i]);
+                    }
+                    world = new WorldGenerator(seed).rooms(rooms).generate();
+                    break;
+                case "--server":
+                    server = true;
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        port = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "--save":
+                    saveFile = Path.of(args[++i]);
+                    break;
+                case "--journal":
+                    journalFile = Path.of(args[++i]);
+                    break;
+                case "--compile":
+                    WorldCompiler.compile(Path.of(args[i + 1]), Path.of(args[i + 2]));
+                    System.out.println("Compiled " + args[i + 1] + " -> " + args[i + 2]);
+                    return;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        if (world == null) {
+            world = WorldTemplate.getDefault();
+        }
+
+        if (server) {
+            if (journalFile == null) {
+                new GameServer(port, world).start();
+            } else {
+                try (SessionJournal journal = SessionJournal.open(journalFile, world)) {
+                    new GameServer(port, world, journal).start();
+                }
+            }
+            return;
+        }
         GameEngine game = new GameEngine();
-        game.initializeGame();
+        game.initializeGame(world);
+        if (saveFile != null && Files.exists(saveFile)) {
+            game.restoreSnapshot(Files.readAllBytes(saveFile));
+        }
         game.start();
+        if (saveFile != null) {
+            if (game.getState().getGoals().isWon()) {
+                Files.deleteIfExists(saveFile); // nothing left to continue
+            } else {
+                Files.write(saveFile, game.saveSnapshot());
+            }
+        }
     }
 }
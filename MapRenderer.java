@@ -0,0 +1,289 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MapRenderer renders the "map" command and caches the result at two levels:
+ * - per world (shared by all sessions): the depth-first layout of the rooms from
+ *   the entrance (over the world's RoomGraph), and the text of every room (name
+ *   and contents) as the world defines it
+ * - per session (a View): the same text with the rooms this session changed
+ *   rendered again
+ *
+ * A session's changes are tracked by version counters in its WorldState: one per
+ * room whose visible contents changed (items taken or spawned), one for revealed
+ * connections and one for everything. A map command therefore costs nothing if
+ * nothing changed since the last one, re-renders only the changed rooms if items
+ * moved, and lays out the map again only after a connection has been revealed.
+ *
+ * The shared rooms of a WorldTemplate are frozen, so the world-level cache never
+ * goes stale.
+ */
+public class MapRenderer {
+    private final Room entrance; // null if the world has no room called "Entrance"
+    private final Layout layout; // over the world's own connections
+    private final String[] fragments; // text of each room of the layout
+    private final String text; // the whole map of a session that changed nothing
+    private final RoomGraph graph;
+
+    /**
+     * Lay out and render a world's map. Sessions share the result.
+     */
+    public MapRenderer(RoomGraph graph) {
+        this.graph = graph;
+        RoomRegistry rooms = graph.getRooms();
+        this.entrance = rooms.findExact("Entrance");
+        if (entrance == null) {
+            // fallback: print the top-level rooms (those that are nobody's subroom)
+            Set<Room> subrooms = new HashSet<>();
+            for (Room r : rooms.getRooms()) {
+                subrooms.addAll(r.getSubrooms());
+            }
+            StringBuilder sb = new StringBuilder();
+            GameOutput out = new GameOutput(sb::append);
+            for (Room r : rooms.getRooms()) {
+                if (!subrooms.contains(r)) {
+                    r.exploreRecursive(0, out);
+                }
+            }
+            out.flush();
+            this.layout = null;
+            this.fragments = null;
+            this.text = sb.toString();
+            return;
+        }
+        this.layout = new Layout(graph, entrance, null);
+        this.fragments = new String[layout.size()];
+        for (int i = 0; i < fragments.length; i++) {
+            fragments[i] = fragment(layout.room(i), layout.depths[i], null);
+        }
+        this.text = join(fragments);
+    }
+
+    /**
+     * Create the map cache of one session.
+     */
+    public View view(WorldState state) {
+        return new View(state);
+    }
+
+    /**
+     * Text of one room on the map at the given depth: its name, then its items
+     * and puzzles as the session sees them (state may be null for the world as
+     * defined). Every line ends with a newline.
+     */
+    static String fragment(Room r, int depth, WorldState state) {
+        StringBuilder sb = new StringBuilder(64);
+        appendRoom(sb, r, depth, state);
+        return sb.toString();
+    }
+
+    static void appendRoom(StringBuilder sb, Room r, int depth, WorldState state) {
+        appendIndent(sb, depth).append("└─ ").append(r.getName());
+        if (r.isExit()) {
+            sb.append(" [EXIT]");
+        }
+        sb.append('\n');
+        // Non-room contents (items, puzzles) as this session sees them
+        for (GameComponent comp : r.getContents()) {
+            if (comp instanceof Room || (state != null && comp instanceof Item && state.isRemoved((Item) comp))) {
+                continue;
+            }
+            appendIndent(sb, depth).append("   - ").append(comp.getName()).append('\n');
+        }
+        if (state != null) {
+            for (Item item : state.getSpawnedItems(r)) {
+                appendIndent(sb, depth).append("   - ").append(item.getName()).append('\n');
+            }
+        }
+    }
+
+    private static StringBuilder appendIndent(StringBuilder sb, int depth) {
+        for (int i = 0; i < depth; i++) {
+            sb.append("  ");
+        }
+        return sb;
+    }
+
+    private static String join(String[] fragments) {
+        int length = 0;
+        for (String f : fragments) {
+            length += f.length();
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (String f : fragments) {
+            sb.append(f);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The rooms of the map in print order with their depth: depth-first from the
+     * entrance, subrooms first, then connected rooms (the world's, then the ones
+     * the session revealed), every room once. Walks the world's RoomGraph with an
+     * explicit stack, so deep worlds do not overflow and only ints are kept.
+     */
+    static final class Layout {
+        private final RoomGraph graph;
+        final int[] rooms;  // room ids in print order
+        final int[] depths;
+        private final int[] positions; // room id -> index in rooms, -1 if not on the map
+
+        Layout(RoomGraph graph, Room start, WorldState state) {
+            this.graph = graph;
+            int n = graph.size();
+            this.positions = new int[n];
+            Arrays.fill(positions, -1);
+            int[] order = new int[n];
+            int[] depthOf = new int[n];
+            int count = 0;
+            // Stack of (room, index of its next child); the depth of a room is its stack position
+            int[] stackRooms = new int[16];
+            int[] stackNext = new int[16];
+            int top = 0;
+            positions[start.getId()] = count;
+            order[count++] = start.getId();
+            stackRooms[0] = start.getId();
+            while (top >= 0) {
+                int room = stackRooms[top];
+                int child = child(room, stackNext[top]++, state);
+                if (child == END) {
+                    top--;
+                    continue;
+                }
+                if (child < 0 || positions[child] >= 0) {
+                    continue; // not a room of this world, or already on the map
+                }
+                positions[child] = count;
+                depthOf[count] = top + 1;
+                order[count++] = child;
+                if (++top == stackRooms.length) {
+                    stackRooms = Arrays.copyOf(stackRooms, top * 2);
+                    stackNext = Arrays.copyOf(stackNext, top * 2);
+                }
+                stackRooms[top] = child;
+                stackNext[top] = 0;
+            }
+            this.rooms = Arrays.copyOf(order, count);
+            this.depths = Arrays.copyOf(depthOf, count);
+        }
+
+        private static final int END = Integer.MIN_VALUE;
+
+        /**
+         * The i-th child of a room: subrooms, then connections, then revealed
+         * connections; -1 for a child outside the world, END after the last one.
+         */
+        private int child(int room, int i, WorldState state) {
+            int subrooms = graph.getSubroomCount(room);
+            if (i < subrooms) {
+                return graph.getSubroom(graph.getSubroomStart(room) + i);
+            }
+            i -= subrooms;
+            int connections = graph.getConnectionCount(room);
+            if (i < connections) {
+                return graph.getConnection(graph.getConnectionStart(room) + i);
+            }
+            i -= connections;
+            if (state != null) {
+                List<Room> revealed = state.getRevealedConnections(graph.getRoom(room));
+                if (i < revealed.size()) {
+                    Room r = revealed.get(i);
+                    return r != null && graph.getRoom(r.getId()) == r ? r.getId() : -1;
+                }
+            }
+            return END;
+        }
+
+        int size() {
+            return rooms.length;
+        }
+
+        Room room(int index) {
+            return graph.getRoom(rooms[index]);
+        }
+
+        int positionOf(Room room) {
+            int id = room.getId();
+            return id >= 0 && id < positions.length && graph.getRoom(id) == room ? positions[id] : -1;
+        }
+    }
+
+    /**
+     * The map as one session sees it, rebuilt only where the session changed
+     * something since the last map command.
+     */
+    public final class View {
+        private final WorldState state;
+        private Layout sessionLayout; // the world's layout unless this session revealed connections
+        private String[] sessionFragments; // the world's fragments until this session changes a room
+        private final HashMap<Room, Integer> renderedVersions = new HashMap<>(); // room -> version shown
+        private int renderedVersion = -1;
+        private int renderedConnections = -1;
+        private String sessionText;
+
+        private View(WorldState state) {
+            this.state = state;
+        }
+
+        public boolean isFor(WorldState state) {
+            return this.state == state;
+        }
+
+        /**
+         * The map text (without the heading), one line per room and content.
+         */
+        public String render() {
+            if (layout == null) {
+                return text; // no entrance: the fallback map shows no session changes
+            }
+            if (state.getMapVersion() == renderedVersion) {
+                return sessionText;
+            }
+            boolean changed = false;
+            if (state.getConnectionVersion() != renderedConnections) {
+                // The layout depends on connections: start over (rare, only revealed paths do this)
+                renderedConnections = state.getConnectionVersion();
+                renderedVersions.clear();
+                if (renderedConnections == 0) {
+                    sessionLayout = layout;
+                    sessionFragments = fragments;
+                } else {
+                    sessionLayout = new Layout(graph, entrance, state);
+                    sessionFragments = new String[sessionLayout.size()];
+                    for (int i = 0; i < sessionFragments.length; i++) {
+                        sessionFragments[i] = fragment(sessionLayout.room(i), sessionLayout.depths[i], state);
+                    }
+                    renderedVersions.putAll(state.getRoomVersions());
+                }
+                changed = true;
+            }
+            for (Map.Entry<Room, Integer> e : state.getRoomVersions().entrySet()) {
+                Room room = e.getKey();
+                if (e.getValue().equals(renderedVersions.get(room))) {
+                    continue;
+                }
+                renderedVersions.put(room, e.getValue());
+                int pos = sessionLayout.positionOf(room);
+                if (pos < 0) {
+                    continue; // not on the map
+                }
+                if (sessionFragments == fragments) {
+                    sessionFragments = fragments.clone(); // copy on first change
+                }
+                sessionFragments[pos] = fragment(room, sessionLayout.depths[pos], state);
+                changed = true;
+            }
+            if (sessionFragments == fragments) {
+                sessionText = text;
+            } else if (changed) {
+                sessionText = join(sessionFragments);
+            }
+            renderedVersion = state.getMapVersion();
+            return sessionText;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * MemoryOutputSink keeps a session's output in memory, e.g. to check or hash
+ * what a scripted session printed.
+ */
+public class MemoryOutputSink implements OutputSink {
+    private final StringBuilder text;
+
+    public MemoryOutputSink() {
+        this.text = new StringBuilder();
+    }
+
+    @Override
+    public void write(CharSequence chunk) {
+        text.append(chunk);
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public void clear() {
+        text.setLength(0);
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+
+/**
+ * NameTable interns the names of a world's entities (rooms, items, puzzles and
+ * the keys doors require) once, when the world is built, and hands out a small
+ * integer symbol per distinct name. Names are case-insensitive: "Gold Key" and
+ * "gold key" are the same symbol. Game code then compares symbols instead of
+ * strings, and player input is resolved to a symbol once per command.
+ *
+ * Like RoomRegistry, the table uses open addressing and hashes the input in
+ * place, so a lookup never allocates. A name nobody interned has no symbol, so
+ * a lookup for it fails at once. The table is only written while its world is
+ * built and is read-only afterwards.
+ */
+public class NameTable {
+    private static final int MIN_CAPACITY = 16;
+
+    private final ArrayList<String> names; // symbol -> lower-case name
+    private int[] table;                   // slot -> symbol + 1 (0 = empty)
+    private int mask;
+
+    public NameTable() {
+        this.names = new ArrayList<>();
+        this.table = new int[MIN_CAPACITY];
+        this.mask = MIN_CAPACITY - 1;
+    }
+
+    /**
+     * Get the symbol of a name, adding it if it is new.
+     * @return the symbol, or -1 for a null name
+     */
+    public int intern(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int symbol = lookup(name);
+        if (symbol >= 0) {
+            return symbol;
+        }
+        if ((names.size() + 1) * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        symbol = names.size();
+        names.add(fold(name));
+        insert(symbol);
+        return symbol;
+    }
+
+    /**
+     * Get the symbol of a name, ignoring case, or -1 if no entity has that name.
+     */
+    public int lookup(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int slot = hash(name) & mask;
+        while (table[slot] != 0) {
+            int symbol = table[slot] - 1;
+            if (matches(names.get(symbol), name)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the (lower-case) name of a symbol.
+     */
+    public String getName(int symbol) {
+        return names.get(symbol);
+    }
+
+    /**
+     * Number of symbols; every symbol is below this.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    private void insert(int symbol) {
+        int slot = hash(names.get(symbol)) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = symbol + 1;
+    }
+
+    private void resize(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+        for (int symbol = 0; symbol < names.size(); symbol++) {
+            insert(symbol);
+        }
+    }
+
+    /**
+     * Lower-case a name character by character, the way lookups compare it.
+     */
+    private static String fold(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            sb.append(Character.toLowerCase(name.charAt(i)));
+        }
+        return sb.toString();
+    }
+
+    private static int hash(String s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + Character.toLowerCase(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Compare a lower-case name with input of any case.
+     */
+    private static boolean matches(String name, String input) {
+        if (name.length() != input.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != Character.toLowerCase(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Interface for the destination of a session's output (console, socket, memory).
+ * A GameOutput collects everything printed during a turn and hands it to its
+ * sink in a single write.
+ */
+public interface OutputSink {
+    /**
+     * Deliver a block of text to the destination.
+     */
+    void write(CharSequence text);
+
+    /**
+     * Release the destination. The default does nothing.
+     */
+    default void close() {
+    }
+}
@@ -1,27 +1,47 @@
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 
 /**
  * Player class represents the player.
  */
 public class Player {
+    /** Item names suggested when what the player typed matches nothing. */
+    public static final int SUGGESTIONS = 3;
+
     private Stack<Room> moveHistory; // Stack for backtracking
-    private ArrayList<Item> inventory;
+    private Inventory inventory; // indexed by name and type, with value and name ordered views
     private Room currentRoom;
+    private WorldState world; // this player's changes to the (shared) rooms
+    private GameOutput output; // where messages for this player are printed
     
     public Player(Room startingRoom) {
+        this(startingRoom, new WorldState(), GameOutput.console());
+    }
+
+    public Player(Room startingRoom, WorldState world, GameOutput output) {
         this.moveHistory = new Stack<>();
-        this.inventory = new ArrayList<>();
+        this.inventory = new Inventory();
         this.currentRoom = startingRoom;
+        this.world = world;
+        this.output = output;
+        world.getGoals().moved(startingRoom);
+    }
+
+    public GameOutput getOutput() {
+        return output;
     }
     
     public Room getCurrentRoom() {
         return currentRoom;
     }
     
-    public ArrayList<Item> getInventory() {
+    public Inventory getInventory() {
         return inventory;
     }
+
+    public Stack<Room> getMoveHistory() {
+        return moveHistory;
+    }
     
     /**
      * Move to a new room, pushing the previous room onto the stack.
@@ -31,6 +51,7 @@ public class Player {
             moveHistory.push(currentRoom);
         }
         currentRoom = newRoom;
+        world.getGoals().moved(newRoom);
     }
     
     /**
@@ -39,22 +60,79 @@ public class Player {
     public boolean goBack() {
         if (!moveHistory.isEmpty()) {
             currentRoom = moveHistory.pop();
+            world.getGoals().moved(currentRoom);
             return true;
         }
         return false;
     }
     
+    /**
+     * Put the player back where a saved session left them (see SessionSnapshot).
+     * @param history the move history, oldest room first
+     */
+    void restorePosition(Room room, List<Room> history) {
+        moveHistory.clear();
+        moveHistory.addAll(history);
+        currentRoom = room;
+        world.getGoals().moved(room);
+    }
+
     /**
      * Pick up an item from the current room (including subrooms).
      */
     public boolean pickupItem(String itemName) {
-        Item item = currentRoom.findItem(itemName);
+        return takeItem(itemName) != null;
+    }
+
+    /**
+     * Pick up an item from the current room (including subrooms).
+     * @return the item picked up, or null if there is none with that name
+     */
+    public Item takeItem(String itemName) {
+        return takeItem(itemName, null, null);
+    }
+
+    /**
+     * Pick up an item from the current room (including subrooms). If none has
+     * that name, and nothing in the world has it either (so it is a typo or part
+     * of a name), the item in reach it clearly means is taken instead (see
+     * FuzzyIndex); otherwise the closest names in reach go to suggestions.
+     * @param template the world whose names are searched, null to match names exactly
+     * @param suggestions where to add the closest item names if nothing is picked up (may be null)
+     * @return the item picked up, or null
+     */
+    public Item takeItem(String itemName, WorldTemplate template, List<String> suggestions) {
+        GameEvents.ItemPickup event = new GameEvents.ItemPickup();
+        event.begin();
+        Item item = world.findItem(currentRoom, itemName);
+        if (item == null && template != null) {
+            List<Item> inReach = world.getVisibleItems(currentRoom);
+            FuzzyIndex.Matches matches = template.getFuzzyIndex().rank(itemName, inReach, SUGGESTIONS);
+            if (matches.best() >= 0 && template.getNames().lookup(itemName) < 0) {
+                item = inReach.get(matches.best());
+                output.println("Assuming you meant: " + item.getName());
+            } else if (suggestions != null) {
+                suggestions.addAll(matches.getNames(inReach));
+            }
+        }
         if (item != null) {
-            item.collect(this);
-            currentRoom.removeItem(item);
-            return true;
+            take(item);
         }
-        return false;
+        if (event.shouldCommit()) {
+            event.room = currentRoom.getName();
+            event.item = item != null ? item.getName() : itemName;
+            event.found = item != null;
+            event.commit();
+        }
+        return item;
+    }
+
+    /**
+     * Pick up an item known to be in the current room (or a subroom).
+     */
+    void take(Item item) {
+        item.collect(this);
+        world.removeItem(currentRoom, item);
     }
     
     /**
@@ -62,88 +140,72 @@ public class Player {
      */
     public void addToInventory(Item item) {
         inventory.add(item);
+        world.getGoals().itemAdded(item);
     }
     
     /**
      * Check whether the player has a key with a specific name.
      */
     public boolean hasKey(String keyName) {
-        for (Item item : inventory) {
-            if (item.getItemType() == Item.ItemType.KEY && 
-                item.getName().equalsIgnoreCase(keyName)) {
-                return true;
-            }
-        }
-        return false;
+        return inventory.contains(keyName, Item.ItemType.KEY);
     }
 
     /**
-     * Remove a key (first matching) from the inventory by name.
-     * @return true if removed
+     * Check whether the player has a key with a name symbol (see NameTable).
      */
-    public boolean removeKey(String keyName) {
-        for (int i = 0; i < inventory.size(); i++) {
-            Item item = inventory.get(i);
-            if (item.getItemType() == Item.ItemType.KEY && item.getName().equalsIgnoreCase(keyName)) {
-                inventory.remove(i);
-                return true;
-            }
-        }
-        return false;
+    public boolean hasKey(int keySymbol) {
+        return inventory.contains(keySymbol, Item.ItemType.KEY);
     }
-    
+
     /**
-     * Sort the inventory by value using insertion sort.
+     * Remove a key (first matching) from the inventory by name.
+     * @return true if removed
      */
-    public void sortInventory() {
-        // Insertion sort
-        for (int i = 1; i < inventory.size(); i++) {
-            Item key = inventory.get(i);
-            int j = i - 1;
-            while (j >= 0 && inventory.get(j).compareTo(key) > 0) {
-                inventory.set(j + 1, inventory.get(j));
-                j--;
-            }
-            inventory.set(j + 1, key);
+    public boolean removeKey(String keyName) {
+        Item item = inventory.remove(keyName, Item.ItemType.KEY);
+        if (item == null) {
+            return false;
         }
+        world.getGoals().itemRemoved(item);
+        return true;
     }
 
     /**
-     * Sort inventory alphabetically by name.
+     * Remove a key (first matching) from the inventory by name symbol.
+     * @return true if removed
      */
-    public void sortInventoryAlphabetical() {
-        // Selection sort by name (case-insensitive) - implemented but not used by default
-        for (int i = 0; i < inventory.size() - 1; i++) {
-            int minIndex = i;
-            for (int j = i + 1; j < inventory.size(); j++) {
-                String nameJ = inventory.get(j).getName().toLowerCase();
-                String nameMin = inventory.get(minIndex).getName().toLowerCase();
-                if (nameJ.compareTo(nameMin) < 0) {
-                    minIndex = j;
-                }
-            }
-            if (minIndex != i) {
-                Item tmp = inventory.get(i);
-                inventory.set(i, inventory.get(minIndex));
-                inventory.set(minIndex, tmp);
-            }
+    public boolean removeKey(int keySymbol) {
+        Item item = inventory.remove(keySymbol, Item.ItemType.KEY);
+        if (item == null) {
+            return false;
         }
+        world.getGoals().itemRemoved(item);
+        return true;
     }
     
     /**
-     * Display the inventory.
+     * Display the inventory ordered by value.
      */
     public void showInventory() {
+        showItems(inventory.byValue());
+    }
+
+    /**
+     * Display the inventory ordered by name.
+     */
+    public void showInventoryAlphabetical() {
+        showItems(inventory.byName());
+    }
+
+    private void showItems(Iterable<Item> items) {
         if (inventory.isEmpty()) {
-            System.out.println("Inventory is empty!");
+            output.println("Inventory is empty!");
             return;
         }
-        
-        System.out.println("\n=== INVENTORY ===");
-        // Inventory may be pre-sorted by caller (value or alphabetical)
-        for (Item item : inventory) {
-            System.out.println("- " + item);
+
+        output.println("\n=== INVENTORY ===");
+        for (Item item : items) {
+            output.println("- " + item);
         }
     }
 }
-
@@ -1,15 +1,31 @@
 /**
  * Abstract class representing puzzles in the game.
  * Extends GameComponent and implements Comparable<Puzzle>.
+ *
+ * Each subtype compiles the answers it accepts into an AnswerMatcher when it is
+ * created, and every attempt runs that matcher. Kinds of puzzles that world
+ * files can declare are registered in PuzzleTypes.
  */
 public abstract class Puzzle extends GameComponent implements Comparable<Puzzle> {
     protected int difficulty;
     protected boolean solved;
+    private final AnswerMatcher matcher;
+    private int id; // index in its world, assigned by WorldTemplate (-1 until then)
     
-    public Puzzle(String name, int difficulty) {
+    public Puzzle(String name, int difficulty, AnswerMatcher matcher) {
         super(name);
         this.difficulty = difficulty;
         this.solved = false;
+        this.matcher = matcher;
+        this.id = -1;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
     }
     
     public int getDifficulty() {
@@ -25,17 +41,76 @@ public abstract class Puzzle extends GameComponent implements Comparable<Puzzle>
     }
     
     @Override
-    public void inspect() {
-        System.out.println("Puzzle: " + name + " (Difficulty: " + difficulty + ", Solved: " + solved + ")");
+    public void inspect(GameOutput out) {
+        out.println("Puzzle: " + name + " (Difficulty: " + difficulty + ", Solved: " + solved + ")");
     }
     
     /**
-     * Abstract method to solve the puzzle.
+     * Inspect the puzzle with the solved flag of one game session.
+     */
+    @Override
+    public void inspect(GameOutput out, WorldState state) {
+        out.println("Puzzle: " + name + " (Difficulty: " + difficulty + ", Solved: " + state.isSolved(this) + ")");
+    }
+
+    /**
+     * Solve the puzzle: check the answer and mark the puzzle as solved if it is right.
+     * Puzzles of a shared world are never marked here; the engine checks the answer
+     * with checkAnswer and records the result in its WorldState.
      * @param answer Player's answer.
      * @return true if solved, false otherwise.
      * @throws InvalidPuzzleAnswerException if the answer is invalid.
      */
-    public abstract boolean attemptSolve(String answer) throws InvalidPuzzleAnswerException;
+    public boolean attemptSolve(String answer) throws InvalidPuzzleAnswerException {
+        if (checkAnswer(answer)) {
+            solved = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check an answer against the compiled matcher without changing the puzzle.
+     * @param answer Player's answer.
+     * @return true if the answer is right, false otherwise.
+     * @throws InvalidPuzzleAnswerException if the answer is empty.
+     */
+    public boolean checkAnswer(String answer) throws InvalidPuzzleAnswerException {
+        if (isBlank(answer)) {
+            throw new InvalidPuzzleAnswerException(getEmptyAnswerMessage());
+        }
+        return matcher.matches(answer);
+    }
+
+    /**
+     * Check for nothing but whitespace (as String.trim sees it) without trimming.
+     */
+    private static boolean isBlank(String answer) {
+        if (answer != null) {
+            for (int i = 0; i < answer.length(); i++) {
+                if (answer.charAt(i) > ' ') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    protected String getEmptyAnswerMessage() {
+        return "Answer cannot be empty!";
+    }
+
+    /**
+     * Print what the player needs to solve the puzzle (its text and the hack
+     * answer), once they chose to solve it.
+     */
+    public abstract void present(GameOutput out);
+
+    /**
+     * An answer this puzzle accepts, shown as the hack answer and used by the
+     * solver and the world generator; null if only a hash of it is known.
+     */
+    public abstract String getAcceptedAnswer();
     
     /**
      * Compare by difficulty.
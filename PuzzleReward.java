@@ -0,0 +1,136 @@
+import java.util.Queue;
+
+/**
+ * PuzzleReward describes one thing that happens when a puzzle is solved,
+ * as declared by a world file:
+ * - SPAWN_ITEM: a new item appears in a room (e.g. a key)
+ * - REVEAL_CONNECTION: a new connection from one room to another opens
+ * - HINT: a hint is added to the hint queue
+ */
+public class PuzzleReward {
+    public enum Type {
+        SPAWN_ITEM, REVEAL_CONNECTION, HINT
+    }
+
+    private final Puzzle puzzle;
+    private final Type type;
+    private final Room room;        // SPAWN_ITEM: where the item appears; REVEAL_CONNECTION: from
+    private final Room target;      // REVEAL_CONNECTION: to
+    private final String itemName;  // SPAWN_ITEM
+    private int itemSymbol = -1;    // symbol of itemName once the world is built
+    private final int itemValue;
+    private final Item.ItemType itemType;
+    private final String text;      // message printed (SPAWN_ITEM, REVEAL_CONNECTION) or hint text (HINT)
+    private int id;                 // index in WorldTemplate.getRewards(), -1 until the world is built
+
+    private PuzzleReward(Puzzle puzzle, Type type, Room room, Room target, String itemName, int itemValue,
+            Item.ItemType itemType, String text) {
+        this.puzzle = puzzle;
+        this.type = type;
+        this.room = room;
+        this.target = target;
+        this.itemName = itemName;
+        this.itemValue = itemValue;
+        this.itemType = itemType;
+        this.text = text;
+        this.id = -1;
+    }
+
+    public static PuzzleReward spawnItem(Puzzle puzzle, Room room, String itemName, int value,
+            Item.ItemType itemType, String message) {
+        return new PuzzleReward(puzzle, Type.SPAWN_ITEM, room, null, itemName, value, itemType, message);
+    }
+
+    public static PuzzleReward revealConnection(Puzzle puzzle, Room from, Room to, String message) {
+        return new PuzzleReward(puzzle, Type.REVEAL_CONNECTION, from, to, null, 0, null, message);
+    }
+
+    public static PuzzleReward hint(Puzzle puzzle, String hint) {
+        return new PuzzleReward(puzzle, Type.HINT, null, null, null, 0, null, hint);
+    }
+
+    public Puzzle getPuzzle() {
+        return puzzle;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Room getRoom() {
+        return room;
+    }
+
+    public Room getTarget() {
+        return target;
+    }
+
+    /**
+     * Create a fresh item for a SPAWN_ITEM reward (items spawned in a session
+     * belong to that session only).
+     */
+    public Item createItem() {
+        Item item = new Item(itemName, itemValue, itemType);
+        item.setSymbol(itemSymbol);
+        item.setSource(this);
+        return item;
+    }
+
+    void setItemSymbol(int itemSymbol) {
+        this.itemSymbol = itemSymbol;
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    public int getItemValue() {
+        return itemValue;
+    }
+
+    public Item.ItemType getItemType() {
+        return itemType;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Apply this reward to one game session.
+     */
+    public void apply(WorldState state, Player player, Queue<String> hintQueue, GameOutput out) {
+        switch (type) {
+            case SPAWN_ITEM:
+                // place the item in its room; the player must pick it up
+                Item item = createItem();
+                if (room != null) {
+                    state.addItem(room, item);
+                    out.println(text);
+                } else {
+                    player.addToInventory(item);
+                    out.println(item.getName() + " has been added to your inventory (fallback).");
+                }
+                break;
+
+            case REVEAL_CONNECTION:
+                // announce the path only the first time it is revealed
+                if (state.addConnection(room, target)) {
+                    out.println(text);
+                }
+                break;
+
+            case HINT:
+                hintQueue.offer(text);
+                break;
+        }
+    }
+}
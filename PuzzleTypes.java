@@ -0,0 +1,125 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * PuzzleTypes maps the puzzle kinds a world file can declare to the factories
+ * that build them. WorldCompiler checks every puzzle against the registry and
+ * WorldLoader builds them with it, so a new kind of puzzle only needs a Puzzle
+ * subtype (or an AnswerMatcher for AnswerPuzzle) and a register call before
+ * worlds are loaded.
+ *
+ * Built-in kinds, with the fields of a "puzzle | room | kind | name | difficulty
+ * | text | answer..." directive:
+ *   riddle  | riddle   | answer [| synonym ...]
+ *   code    |          | code
+ *   number  | question | min..max  (or a single number)
+ *   pattern | question | regex [| example answer]
+ *   hashed  | question | SHA-256 of the normalized answer (see AnswerMatcher.hash)
+ */
+public class PuzzleTypes {
+    /**
+     * Builds a puzzle of one kind from its world file fields.
+     */
+    @FunctionalInterface
+    public interface Factory {
+        /**
+         * @param text the puzzle text, null if the directive has none
+         * @param answers the answer fields, at least one
+         * @throws IllegalArgumentException if the fields do not describe a puzzle of this kind
+         */
+        Puzzle create(String name, int difficulty, String text, String[] answers);
+    }
+
+    private static final PuzzleTypes DEFAULT = new PuzzleTypes()
+            .register("riddle", (name, difficulty, text, answers) -> new RiddlePuzzle(name, difficulty,
+                    required(text, "riddle"), answers[0], Arrays.copyOfRange(answers, 1, answers.length)))
+            .register("code", (name, difficulty, text, answers) -> new CodePuzzle(name, difficulty,
+                    single(answers, "code")))
+            .register("number", PuzzleTypes::number)
+            .register("pattern", PuzzleTypes::pattern)
+            .register("hashed", (name, difficulty, text, answers) -> new AnswerPuzzle(name, difficulty,
+                    required(text, "question"), AnswerMatcher.hashed(single(answers, "digest")), null));
+
+    private final ConcurrentHashMap<String, Factory> factories = new ConcurrentHashMap<>();
+
+    /**
+     * Get the registry world files are compiled and loaded with.
+     */
+    public static PuzzleTypes getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Register a kind of puzzle (names are case-insensitive), replacing any
+     * factory registered for it before.
+     * @return this, for chaining
+     */
+    public PuzzleTypes register(String kind, Factory factory) {
+        factories.put(kind.toLowerCase(), factory);
+        return this;
+    }
+
+    public boolean contains(String kind) {
+        return factories.containsKey(kind.toLowerCase());
+    }
+
+    /**
+     * Build a puzzle of a registered kind.
+     * @throws IllegalArgumentException for an unknown kind or fields the kind rejects
+     */
+    public Puzzle create(String kind, String name, int difficulty, String text, String[] answers) {
+        Factory factory = factories.get(kind.toLowerCase());
+        if (factory == null) {
+            throw new IllegalArgumentException("unknown puzzle kind: " + kind);
+        }
+        if (answers.length == 0) {
+            throw new IllegalArgumentException(kind + " puzzle needs an answer");
+        }
+        return factory.create(name, difficulty, text, answers);
+    }
+
+    private static Puzzle number(String name, int difficulty, String text, String[] answers) {
+        String range = single(answers, "range");
+        int dots = range.indexOf("..");
+        try {
+            long min = Long.parseLong(range.substring(0, dots < 0 ? range.length() : dots).trim());
+            long max = dots < 0 ? min : Long.parseLong(range.substring(dots + 2).trim());
+            return new AnswerPuzzle(name, difficulty, required(text, "question"), AnswerMatcher.range(min, max),
+                    String.valueOf(min));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number range: " + range);
+        }
+    }
+
+    private static Puzzle pattern(String name, int difficulty, String text, String[] answers) {
+        if (answers.length > 2) {
+            throw new IllegalArgumentException("pattern puzzle takes a regex and an optional example");
+        }
+        AnswerMatcher matcher;
+        try {
+            matcher = AnswerMatcher.pattern(answers[0]);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("bad pattern: " + e.getDescription());
+        }
+        String example = answers.length > 1 ? answers[1] : null;
+        if (example != null && !matcher.matches(example)) {
+            throw new IllegalArgumentException("example does not match the pattern: " + example);
+        }
+        return new AnswerPuzzle(name, difficulty, required(text, "question"), matcher, example);
+    }
+
+    private static String required(String text, String what) {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("missing " + what);
+        }
+        return text;
+    }
+
+    private static String single(String[] answers, String what) {
+        if (answers.length != 1) {
+            throw new IllegalArgumentException("expected one " + what + ", got " + answers.length + " answers");
+        }
+        return answers[0];
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ReplayRunner plays recorded command transcripts through GameEngine without a
+ * terminal, as fast as possible, and reports commands/sec and the final state
+ * hash of every transcript (for regression and load testing).
+ *
+ * Transcript file format: one input line per line, exactly as a player would
+ * type it, including the answers to follow-up prompts (puzzle answers, "yes/no",
+ * puzzle numbers). A line "=== name" starts a new transcript; lines starting
+ * with "#" are comments.
+ *
+ * Usage: java ReplayRunner <transcripts> [--threads N] [--repeat N] [--world file]
+ *        [--generate rooms seed] [--show] [--metrics]
+ *   --threads N  replay on N threads (default: number of cores)
+ *   --repeat N   replay every transcript N times (hashes must all match)
+ *   --world f    play this world instead of the built-in one
+ *   --generate rooms seed  play a world from WorldGenerator (default settings)
+ *   --show       print the game output of each transcript (first run only)
+ *   --metrics    print per-verb counts and latency percentiles of the timed runs (CommandMetrics)
+ */
+public class ReplayRunner {
+
+    /**
+     * One named transcript: the input lines of a session.
+     */
+    public static class Transcript {
+        private final String name;
+        private final List<String> lines;
+
+        public Transcript(String name, List<String> lines) {
+            this.name = name;
+            this.lines = lines;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+    }
+
+    /**
+     * Outcome of one replay.
+     */
+    public static class Result {
+        private final Transcript transcript;
+        private final long stateHash;
+        private final int turns;
+        private final boolean finished; // the game ended (won or quit) before the input ran out
+        private final String output;    // only kept when requested
+
+        Result(Transcript transcript, long stateHash, int turns, boolean finished, String output) {
+            this.transcript = transcript;
+            this.stateHash = stateHash;
+            this.turns = turns;
+            this.finished = finished;
+            this.output = output;
+        }
+
+        public Transcript getTranscript() {
+            return transcript;
+        }
+
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        public int getTurns() {
+            return turns;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+    }
+
+    /**
+     * Read all transcripts from a file.
+     */
+    public static List<Transcript> readTranscripts(Path file) throws IOException {
+        List<Transcript> transcripts = new ArrayList<>();
+        String name = file.getFileName().toString();
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.startsWith("===")) {
+                if (!lines.isEmpty()) {
+                    transcripts.add(new Transcript(name, lines));
+                }
+                name = line.substring(3).trim();
+                lines = new ArrayList<>();
+            } else if (!line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        if (!lines.isEmpty()) {
+            transcripts.add(new Transcript(name, lines));
+        }
+        return transcripts;
+    }
+
+    /**
+     * Replay one transcript on a fresh session of the given world.
+     */
+    public static Result replay(WorldTemplate world, Transcript transcript, boolean keepOutput) {
+        return replay(world, transcript, keepOutput, null);
+    }
+
+    /**
+     * Replay one transcript, recording its commands into metrics (if not null).
+     */
+    public static Result replay(WorldTemplate world, Transcript transcript, boolean keepOutput,
+            CommandMetrics metrics) {
+        MemoryOutputSink memory = keepOutput ? new MemoryOutputSink() : null;
+        OutputSink sink = keepOutput ? memory : text -> { };
+        GameEngine game = new GameEngine(LineSource.of(transcript.getLines()), sink);
+        game.initializeGame(world);
+        game.setMetrics(metrics);
+        game.start();
+        return new Result(transcript, game.stateHash(), game.getTurnCounter(), !game.isInputEnded(),
+                keepOutput ? memory.getText() : null);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println(
+                    "Usage: java ReplayRunner <transcripts> [--threads N] [--repeat N] [--world file]"
+                            + " [--generate rooms seed] [--show] [--metrics]");
+            return;
+        }
+        Path file = Path.of(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int repeat = 1;
+        boolean show = false;
+        CommandMetrics metrics = null;
+        WorldTemplate world = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--repeat":
+                    repeat = Integer.parseInt(args[++i]);
+                    break;
+                case "--world":
+                    world = WorldTemplate.load(Path.of(args[++i]));
+                    break;
+                case "--generate":
+                    int rooms = Integer.parseInt(args[++i]);
+                    world = new WorldGenerator(Long.parseLong(args[++i])).rooms(rooms).generate();
+                    break;
+                case "--show":
+                    show = true;
+                    break;
+                case "--metrics":
+                    metrics = new CommandMetrics();
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        if (world == null) {
+            world = WorldTemplate.getDefault();
+        }
+
+        List<Transcript> transcripts = readTranscripts(file);
+        long lines = 0;
+        for (Transcript t : transcripts) {
+            lines += t.getLines().size();
+        }
+
+        // Warm-up/first pass (optionally with output), then the timed passes
+        List<Result> reference = new ArrayList<>();
+        for (Transcript t : transcripts) {
+            reference.add(replay(world, t, show));
+        }
+
+        final WorldTemplate playWorld = world;
+        final CommandMetrics playMetrics = metrics;
+        long start = System.nanoTime();
+        int mismatches = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int r = 0; r < repeat; r++) {
+                for (Transcript t : transcripts) {
+                    futures.add(pool.submit(() -> replay(playWorld, t, false, playMetrics)));
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Result result = futures.get(i).get();
+                if (result.getStateHash() != reference.get(i % transcripts.size()).getStateHash()) {
+                    mismatches++;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (Result result : reference) {
+            if (show) {
+                System.out.println("=== " + result.getTranscript().getName());
+                System.out.print(result.getOutput());
+                System.out.println();
+            }
+            System.out.printf("%-30s lines=%-6d turns=%-5d %s hash=%016x%n", result.getTranscript().getName(),
+                    result.getTranscript().getLines().size(), result.getTurns(),
+                    result.isFinished() ? "finished  " : "unfinished", result.getStateHash());
+        }
+        long commands = lines * repeat;
+        System.out.printf("%d transcripts x %d on %d threads: %d input lines in %.3f s (%.0f lines/s)%n",
+                transcripts.size(), repeat, threads, commands, seconds, commands / seconds);
+        if (metrics != null) {
+            System.out.print(metrics.summary());
+        }
+        if (mismatches > 0) {
+            System.out.println("NON-DETERMINISTIC: " + mismatches + " replays ended with a different state hash");
+            System.exit(1);
+        }
+    }
+}
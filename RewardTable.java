@@ -0,0 +1,45 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RewardTable maps each puzzle of a world (by puzzle id) to the rewards it
+ * triggers, so finding what a solved puzzle does is a single array lookup.
+ */
+public class RewardTable {
+    private static final PuzzleReward[] NONE = new PuzzleReward[0];
+
+    private final PuzzleReward[][] byPuzzle; // puzzle id -> rewards in declaration order
+
+    public RewardTable(int puzzleCount, List<PuzzleReward> rewards) {
+        ArrayList<ArrayList<PuzzleReward>> lists = new ArrayList<>(puzzleCount);
+        for (int i = 0; i < puzzleCount; i++) {
+            lists.add(null);
+        }
+        for (PuzzleReward reward : rewards) {
+            int id = reward.getPuzzle().getId();
+            if (id < 0 || id >= puzzleCount) {
+                throw new IllegalArgumentException("Reward for a puzzle outside this world: "
+                        + reward.getPuzzle().getName());
+            }
+            if (lists.get(id) == null) {
+                lists.set(id, new ArrayList<>());
+            }
+            lists.get(id).add(reward);
+        }
+        byPuzzle = new PuzzleReward[puzzleCount][];
+        for (int i = 0; i < puzzleCount; i++) {
+            byPuzzle[i] = lists.get(i) == null ? NONE : lists.get(i).toArray(NONE);
+        }
+    }
+
+    /**
+     * Get the rewards of a puzzle (empty if it has none).
+     */
+    public PuzzleReward[] get(Puzzle puzzle) {
+        int id = puzzle.getId();
+        if (id < 0 || id >= byPuzzle.length) {
+            return NONE;
+        }
+        return byPuzzle[id];
+    }
+}
@@ -1,34 +1,41 @@
 /**
  * RiddlePuzzle - a puzzle represented as a riddle.
+ * The answer and any synonyms are accepted normalized (ignoring case and extra
+ * whitespace), see AnswerMatcher.synonyms.
  */
 public class RiddlePuzzle extends Puzzle {
     private String riddle;
     private String answer;
     
-    public RiddlePuzzle(String name, int difficulty, String riddle, String answer) {
-        super(name, difficulty);
+    public RiddlePuzzle(String name, int difficulty, String riddle, String answer, String... synonyms) {
+        super(name, difficulty, AnswerMatcher.synonyms(withSynonyms(answer, synonyms)));
         this.riddle = riddle;
         this.answer = answer;
     }
+
+    private static String[] withSynonyms(String answer, String[] synonyms) {
+        String[] answers = new String[synonyms.length + 1];
+        answers[0] = answer;
+        System.arraycopy(synonyms, 0, answers, 1, synonyms.length);
+        return answers;
+    }
     
     @Override
-    public void inspect() {
+    public void inspect(GameOutput out) {
         // Only show minimal metadata when inspecting generally.
         // The full riddle text should be shown only when the player chooses to solve.
-        super.inspect(); 
+        super.inspect(out); 
     }
-    
+
     @Override
-    public boolean attemptSolve(String playerAnswer) throws InvalidPuzzleAnswerException {
-        if (playerAnswer == null || playerAnswer.trim().isEmpty()) {
-            throw new InvalidPuzzleAnswerException("Answer cannot be empty!");
-        }
-        
-        if (playerAnswer.trim().equalsIgnoreCase(answer)) {
-            solved = true;
-            return true;
-        }
-        return false;
+    public void present(GameOutput out) {
+        out.println("Riddle: " + riddle);
+        out.println("Hack answer: " + answer);
+    }
+
+    @Override
+    public String getAcceptedAnswer() {
+        return answer;
     }
     
     public String getRiddle() {
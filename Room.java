@@ -1,32 +1,76 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 
 /**
  * Room class represents a room in the escape room.
  * It has a recursive structure: a room can contain subrooms.
  */
 public class Room extends GameComponent {
-    private ArrayList<GameComponent> contents; // items, puzzles, subrooms
+    /**
+     * Parent chains are followed at most this far up, so a loop of subrooms (a
+     * broken world, reported by WorldValidator) cannot hang the game.
+     */
+    static final int MAX_NESTING = 1024;
+
+    private ArrayList<GameComponent> contents; // items, puzzles, subrooms (display order)
+    private ArrayList<Item> items;       // the same contents partitioned by type
+    private ArrayList<Puzzle> puzzles;
+    private ArrayList<Room> subrooms;
+    private HashMap<String, Item> itemIndex;     // lower-case name -> first item with that name, null once frozen
+    private HashMap<String, Puzzle> puzzleIndex; // lower-case name -> first puzzle with that name, null once frozen
+    private SymbolMap<Item> itemSymbols;     // once frozen: name symbol -> first item with that name
+    private SymbolMap<Puzzle> puzzleSymbols; // once frozen: name symbol -> first puzzle with that name
+    private NameTable names;     // the world's names once frozen, null before
+    private HashMap<String, Room> subroomIndex;  // normalized name -> first subroom with that name
     private ArrayList<Room> connectedRooms;
     private boolean isExit;
     private String requiredKey; // null if no key is required
+    private int requiredKeySymbol = -1; // symbol of requiredKey once frozen
+    private String normalizedName; // lower-case, no whitespace (see RoomRegistry)
+    private int id; // assigned by RoomRegistry, -1 until registered
+    private boolean frozen; // true once the room belongs to a shared WorldTemplate
+    // Totals for this room and all its (nested) subrooms, kept up to date along the parent chain
+    private int[] subtreeItems = new int[Item.ItemType.values().length]; // by item type
+    private int subtreeItemTotal;
+    private int subtreePuzzles;
 
     public Room(String name) {
         super(name);
         this.contents = new ArrayList<>();
+        this.items = new ArrayList<>();
+        this.puzzles = new ArrayList<>();
+        this.subrooms = new ArrayList<>();
+        this.itemIndex = new HashMap<>();
+        this.puzzleIndex = new HashMap<>();
+        this.subroomIndex = new HashMap<>();
         this.connectedRooms = new ArrayList<>();
         this.isExit = false;
         this.requiredKey = null;
+        this.normalizedName = RoomRegistry.normalize(name);
+        this.id = -1;
     }
 
     public Room(String name, String requiredKey) {
         super(name);
         this.contents = new ArrayList<>();
+        this.items = new ArrayList<>();
+        this.puzzles = new ArrayList<>();
+        this.subrooms = new ArrayList<>();
+        this.itemIndex = new HashMap<>();
+        this.puzzleIndex = new HashMap<>();
+        this.subroomIndex = new HashMap<>();
         this.connectedRooms = new ArrayList<>();
         this.isExit = false;
         this.requiredKey = requiredKey;
+        this.normalizedName = RoomRegistry.normalize(name);
+        this.id = -1;
     }
 
     public void setExit(boolean isExit) {
+        checkMutable();
         this.isExit = isExit;
     }
 
@@ -34,53 +78,251 @@ public class Room extends GameComponent {
         return isExit;
     }
 
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
     public String getRequiredKey() {
         return requiredKey;
     }
 
+    /**
+     * Symbol of the required key in the world's NameTable, -1 if no key is
+     * required or the room is not part of a world yet.
+     */
+    public int getRequiredKeySymbol() {
+        return requiredKeySymbol;
+    }
+
     /**
      * Set or clear the required key for this room.
      */
     public void setRequiredKey(String requiredKey) {
+        checkMutable();
         this.requiredKey = requiredKey;
     }
 
+    /**
+     * Add an item, puzzle or subroom to this room. The component is also filed in
+     * its per-type list and name index, and its parent is set to this room.
+     */
     public void addContent(GameComponent component) {
+        checkMutable();
         contents.add(component);
+        component.setParent(this);
+        if (component instanceof Item) {
+            Item item = (Item) component;
+            items.add(item);
+            itemIndex.putIfAbsent(item.getName().toLowerCase(), item);
+            int depth = 0;
+            for (Room r = this; r != null && depth++ < MAX_NESTING; r = r.getParent()) {
+                r.subtreeItems[item.getItemType().ordinal()]++;
+                r.subtreeItemTotal++;
+            }
+        } else if (component instanceof Puzzle) {
+            Puzzle puzzle = (Puzzle) component;
+            puzzles.add(puzzle);
+            puzzleIndex.putIfAbsent(puzzle.getName().toLowerCase(), puzzle);
+            int depth = 0;
+            for (Room r = this; r != null && depth++ < MAX_NESTING; r = r.getParent()) {
+                r.subtreePuzzles++;
+            }
+        } else if (component instanceof Room) {
+            Room room = (Room) component;
+            subrooms.add(room);
+            subroomIndex.putIfAbsent(room.getNormalizedName(), room);
+            // the subroom brings its whole subtree along
+            int depth = 0;
+            for (Room r = this; r != null && depth++ < MAX_NESTING; r = r.getParent()) {
+                if (r == room) {
+                    break; // the room was put inside itself (a loop, see WorldValidator)
+                }
+                for (int t = 0; t < subtreeItems.length; t++) {
+                    r.subtreeItems[t] += room.subtreeItems[t];
+                }
+                r.subtreeItemTotal += room.subtreeItemTotal;
+                r.subtreePuzzles += room.subtreePuzzles;
+            }
+        }
+    }
+
+    /**
+     * Number of items in this room and all its subrooms (as the world defines them).
+     */
+    public int getSubtreeItemCount() {
+        return subtreeItemTotal;
+    }
+
+    public int getSubtreeItemCount(Item.ItemType type) {
+        return subtreeItems[type.ordinal()];
+    }
+
+    /**
+     * Number of puzzles in this room and all its subrooms.
+     */
+    public int getSubtreePuzzleCount() {
+        return subtreePuzzles;
     }
 
     public void addConnectedRoom(Room room) {
+        checkMutable();
         connectedRooms.add(room);
     }
 
+    /**
+     * Make this room read-only. Frozen rooms are shared by every session playing
+     * the same world, so per-session changes go to a WorldState instead.
+     * Its name, required key, items and puzzles get their symbols from the world's
+     * names, which then replace the per-room name indexes.
+     */
+    void freeze(NameTable names) {
+        this.names = names;
+        setSymbol(names.intern(name));
+        requiredKeySymbol = names.intern(requiredKey);
+        itemSymbols = new SymbolMap<>(items.size());
+        for (Item item : items) {
+            item.setSymbol(names.intern(item.getName()));
+            itemSymbols.putIfAbsent(item.getSymbol(), item);
+        }
+        puzzleSymbols = new SymbolMap<>(puzzles.size());
+        for (Puzzle puzzle : puzzles) {
+            puzzle.setSymbol(names.intern(puzzle.getName()));
+            puzzleSymbols.putIfAbsent(puzzle.getSymbol(), puzzle);
+        }
+        itemIndex = null;
+        puzzleIndex = null;
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * The names of the world this room belongs to, null until it is frozen.
+     */
+    public NameTable getNames() {
+        return names;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new IllegalStateException("Room " + name + " belongs to a shared world and cannot be changed");
+        }
+    }
+
+    /**
+     * All contents in the order they were added. Treat as read-only; use
+     * addContent/removeItem so the typed lists and indexes stay in sync.
+     */
     public ArrayList<GameComponent> getContents() {
         return contents;
     }
 
+    public ArrayList<Item> getItems() {
+        return items;
+    }
+
+    public ArrayList<Puzzle> getPuzzles() {
+        return puzzles;
+    }
+
+    public ArrayList<Room> getSubrooms() {
+        return subrooms;
+    }
+
+    /**
+     * Find an item directly in this room by its lower-case name (no recursion).
+     */
+    Item findOwnItemByKey(String key) {
+        if (names != null) {
+            int symbol = names.lookup(key);
+            return symbol < 0 ? null : findOwnItem(symbol);
+        }
+        return itemIndex.get(key);
+    }
+
+    /**
+     * Find the first item directly in this room with a name symbol (frozen rooms only).
+     */
+    Item findOwnItem(int symbol) {
+        return itemSymbols.get(symbol);
+    }
+
+    private Puzzle findOwnPuzzle(int symbol) {
+        return puzzleSymbols.get(symbol);
+    }
+
+    /**
+     * Find a direct subroom by name, ignoring case and whitespace.
+     */
+    public Room findSubroom(String roomName) {
+        return subroomIndex.get(RoomRegistry.normalize(roomName));
+    }
+
     public ArrayList<Room> getConnectedRooms() {
         return connectedRooms;
     }
 
     @Override
-    public void inspect() {
-        System.out.println("=== Room: " + name + " ===");
+    public void inspect(GameOutput out) {
+        out.println("=== Room: " + name + " ===");
         if (isExit) {
-            System.out.println(">>> THIS IS THE EXIT! <<<");
+            out.println(">>> THIS IS THE EXIT! <<<");
         }
         if (requiredKey != null) {
-            System.out.println("(Requires key: " + requiredKey + " to enter)");
+            out.println("(Requires key: " + requiredKey + " to enter)");
         }
-        System.out.println("\nRoom contents:");
+        out.println("\nRoom contents:");
         for (GameComponent component : contents) {
             if (component instanceof Room) {
-                System.out.println("  [Subroom] " + component.getName());
+                out.println("  [Subroom] " + component.getName());
             } else {
-                component.inspect();
+                component.inspect(out);
             }
         }
-        System.out.println("\nConnected rooms:");
+        out.println("\nConnected rooms:");
         for (Room room : connectedRooms) {
-            System.out.println("- " + room.getName());
+            out.println("- " + room.getName());
+        }
+    }
+
+    /**
+     * Inspect the room as one session sees it: picked-up items are hidden, items
+     * spawned in this session are shown, and doors/connections come from the state.
+     */
+    @Override
+    public void inspect(GameOutput out, WorldState state) {
+        out.println("=== Room: " + name + " ===");
+        if (isExit) {
+            out.println(">>> THIS IS THE EXIT! <<<");
+        }
+        String key = state.getRequiredKey(this);
+        if (key != null) {
+            out.println("(Requires key: " + key + " to enter)");
+        }
+        out.println("\nRoom contents:");
+        for (GameComponent component : contents) {
+            if (component instanceof Room) {
+                out.println("  [Subroom] " + component.getName());
+            } else if (!(component instanceof Item) || !state.isRemoved((Item) component)) {
+                component.inspect(out, state);
+            }
+        }
+        for (Item item : state.getSpawnedItems(this)) {
+            item.inspect(out, state);
+        }
+        out.println("\nConnected rooms:");
+        for (Room room : state.getConnectedRooms(this)) {
+            out.println("- " + room.getName());
         }
     }
 
@@ -89,91 +331,157 @@ public class Room extends GameComponent {
      * @param depth 
      */
     public void exploreRecursive(int depth) {
+        exploreRecursive(depth, GameOutput.console());
+    }
+
+    /**
+     * Same as exploreRecursive(int), printing to the given output.
+     */
+    public void exploreRecursive(int depth, GameOutput out) {
         String indent = "  ".repeat(depth);
-        System.out.println(indent + "└─ " + name + (isExit ? " [EXIT]" : ""));
+        out.println(indent + "└─ " + name + (isExit ? " [EXIT]" : ""));
 
         // Explore subrooms recursively (rooms contained within this room)
-        for (GameComponent component : contents) {
-            if (component instanceof Room) {
-                ((Room) component).exploreRecursive(depth + 1);
-            }
+        for (Room room : subrooms) {
+            room.exploreRecursive(depth + 1, out);
         }
 
         // List connected rooms (same-level connections) but do not recurse into them
         if (!connectedRooms.isEmpty()) {
-            System.out.println(indent + "   Connected:");
+            out.println(indent + "   Connected:");
             for (Room room : connectedRooms) {
-                System.out.println(indent + "     - " + room.getName());
+                out.println(indent + "     - " + room.getName());
             }
         }
     }
 
     /**
-     * Recursive method to find if an item exists in this room or any subrooms or connected rooms.
+     * Find if an item exists in this room or any subrooms or connected rooms.
+     * Connections usually go both ways, so every room is visited once.
      * @param itemName 
      * @return true if the item is found anywhere in this room structure
      */
     public boolean containsItemRecursive(String itemName) {
-        // find in current room contents
-        for (GameComponent component : contents) {
-            if (component instanceof Item && component.getName().equalsIgnoreCase(itemName)) {
+        String key = itemName.toLowerCase();
+        int symbol = names == null ? -1 : names.lookup(itemName);
+        if (names != null && symbol < 0) {
+            return false; // no item of this world has that name
+        }
+        HashSet<Room> visited = new HashSet<>();
+        ArrayDeque<Room> stack = new ArrayDeque<>();
+        visited.add(this);
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            Room room = stack.pop();
+            // find in current room contents
+            if (room.names != null ? room.findOwnItem(symbol) != null : room.itemIndex.containsKey(key)) {
                 return true;
             }
-            // if subroom, search recursively
-            if (component instanceof Room) {
-                if (((Room) component).containsItemRecursive(itemName)) {
-                    return true;
+            // then its subrooms and connected rooms
+            for (Room next : room.subrooms) {
+                if (visited.add(next)) {
+                    stack.push(next);
                 }
             }
-        }
-        // search in connected rooms
-        for (Room room : connectedRooms) {
-            if (room.containsItemRecursive(itemName)) {
-                return true;
+            for (Room next : room.connectedRooms) {
+                if (visited.add(next)) {
+                    stack.push(next);
+                }
             }
         }
         return false;
     }
 
     /**
-     * Recursive method to find the maximum depth of this room structure.
+     * Find the maximum depth of this room structure: the longest chain of
+     * subrooms and connected rooms from this room (counting it) that visits no
+     * room twice along a depth-first walk.
      * @return maximum depth
      */
     public int maxDepthRecursive() {
+        HashSet<Room> visited = new HashSet<>();
+        ArrayDeque<Room> stack = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        visited.add(this);
+        stack.push(this);
+        depths.push(1);
         int maxDepth = 0;
-        // find depth in subrooms
-        for (GameComponent component : contents) {
-            if (component instanceof Room) {
-                int depth = ((Room) component).maxDepthRecursive();
-                maxDepth = Math.max(maxDepth, depth);
-            }
-        }
-        // find depth in connected rooms
-        for (Room room : connectedRooms) {
-            int depth = room.maxDepthRecursive();
+        while (!stack.isEmpty()) {
+            Room room = stack.pop();
+            int depth = depths.pop();
             maxDepth = Math.max(maxDepth, depth);
+            for (Room next : room.subrooms) {
+                if (visited.add(next)) {
+                    stack.push(next);
+                    depths.push(depth + 1);
+                }
+            }
+            for (Room next : room.connectedRooms) {
+                if (visited.add(next)) {
+                    stack.push(next);
+                    depths.push(depth + 1);
+                }
+            }
         }
-
-        return maxDepth + 1;
+        return maxDepth;
     }
 
     /**
      * Find item in the current room (searches in subrooms too).
      */
     public Item findItem(String itemName) {
-        // First check current room contents
-        for (GameComponent component : contents) {
-            if (component instanceof Item && component.getName().equalsIgnoreCase(itemName)) {
-                return (Item) component;
+        GameEvents.WorldLookup event = new GameEvents.WorldLookup();
+        event.begin();
+        Item found;
+        if (names != null) {
+            // resolve the name once, then compare symbols all the way down
+            int symbol = names.lookup(itemName);
+            found = symbol < 0 ? null : findItemBySymbol(symbol, event.counting());
+        } else {
+            found = findItemByKey(itemName.toLowerCase(), event.counting());
+        }
+        event.commit("item", itemName, this, found != null);
+        return found;
+    }
+
+    /**
+     * Find an item by name symbol in this room or its subrooms (frozen rooms only).
+     */
+    public Item findItem(int symbol) {
+        return findItemBySymbol(symbol, null);
+    }
+
+    private Item findItemBySymbol(int symbol, GameEvents.WorldLookup event) {
+        if (event != null) {
+            event.roomsVisited++;
+        }
+        Item found = findOwnItem(symbol);
+        if (found != null) {
+            return found;
+        }
+        for (Room room : subrooms) {
+            found = room.findItemBySymbol(symbol, event);
+            if (found != null) {
+                return found;
             }
         }
+        return null;
+    }
+
+    private Item findItemByKey(String key, GameEvents.WorldLookup event) {
+        if (event != null) {
+            event.roomsVisited++;
+        }
+        // First check current room contents (one hash lookup per level)
+        Item found = itemIndex.get(key);
+        if (found != null) {
+            return found;
+        }
         // If not found, check subrooms recursively
-        for (GameComponent component : contents) {
-            if (component instanceof Room) {
-                Item found = ((Room) component).findItem(itemName);
-                if (found != null) {
-                    return found;
-                }
+        for (Room room : subrooms) {
+            found = room.findItemByKey(key, event);
+            if (found != null) {
+                return found;
             }
         }
         return null;
@@ -181,59 +489,132 @@ public class Room extends GameComponent {
 
     /**
      * Remove an item from the current room or its subrooms.
+     * The item's parent pointer leads straight to the room that holds it, so no
+     * second search of the subtree is needed.
      * @param item The item to remove
      * @return true if the item was found and removed, false otherwise
      */
     public boolean removeItem(Item item) {
-        // First check current room contents
-        if (contents.remove(item)) {
-            return true;
-        }
-        // If not found, check subrooms recursively
-        for (GameComponent component : contents) {
-            if (component instanceof Room) {
-                if (((Room) component).removeItem(item)) {
-                    return true;
-                }
-            }
+        checkMutable();
+        Room owner = item.getParent();
+        if (owner == null || !owner.isWithin(this)) {
+            return false;
         }
-        return false;
+        return owner.removeOwnItem(item);
     }
 
     /**
-     * Check if this room (including subrooms) contains any Item.
+     * Check whether this room is the given room or one of its (nested) subrooms.
      */
-    public boolean hasAnyItemRecursive() {
-        for (GameComponent component : contents) {
-            if (component instanceof Item) {
+    boolean isWithin(Room ancestor) {
+        int depth = 0;
+        for (Room r = this; r != null && depth++ < MAX_NESTING; r = r.getParent()) {
+            if (r == ancestor) {
                 return true;
             }
-            if (component instanceof Room) {
-                if (((Room) component).hasAnyItemRecursive()) {
-                    return true;
+        }
+        return false;
+    }
+
+    private boolean removeOwnItem(Item item) {
+        if (!items.remove(item)) {
+            return false;
+        }
+        int depth = 0;
+        for (Room r = this; r != null && depth++ < MAX_NESTING; r = r.getParent()) {
+            r.subtreeItems[item.getItemType().ordinal()]--;
+            r.subtreeItemTotal--;
+        }
+        contents.remove(item);
+        item.setParent(null);
+        String key = item.getName().toLowerCase();
+        if (itemIndex.get(key) == item) {
+            itemIndex.remove(key);
+            // another item with the same name may still be here
+            for (Item other : items) {
+                if (other.getName().equalsIgnoreCase(key)) {
+                    itemIndex.put(key, other);
+                    break;
                 }
             }
         }
-        return false;
+        return true;
+    }
+
+    /**
+     * Check if this room (including subrooms) contains any Item.
+     */
+    public boolean hasAnyItemRecursive() {
+        return subtreeItemTotal > 0;
     }
 
     /**
      * Find puzzle in the current room (searches in subrooms too).
      */
     public Puzzle findPuzzle(String puzzleName) {
-        // First check current room contents
-        for (GameComponent component : contents) {
-            if (component instanceof Puzzle && component.getName().equalsIgnoreCase(puzzleName)) {
-                return (Puzzle) component;
+        GameEvents.WorldLookup event = new GameEvents.WorldLookup();
+        event.begin();
+        Puzzle found;
+        if (names != null) {
+            int symbol = names.lookup(puzzleName);
+            found = symbol < 0 ? null : findPuzzleBySymbol(symbol, event.counting());
+        } else {
+            found = findPuzzleByKey(puzzleName.toLowerCase(), event.counting());
+        }
+        event.commit("puzzle", puzzleName, this, found != null);
+        return found;
+    }
+
+    /**
+     * Add the puzzles of this room and its subrooms to a list, room by room.
+     */
+    public void collectPuzzles(List<Puzzle> out) {
+        out.addAll(puzzles);
+        for (Room room : subrooms) {
+            if (room.subtreePuzzles > 0) {
+                room.collectPuzzles(out);
+            }
+        }
+    }
+
+    /**
+     * Find a puzzle by name symbol in this room or its subrooms (frozen rooms only).
+     */
+    public Puzzle findPuzzle(int symbol) {
+        return findPuzzleBySymbol(symbol, null);
+    }
+
+    private Puzzle findPuzzleBySymbol(int symbol, GameEvents.WorldLookup event) {
+        if (event != null) {
+            event.roomsVisited++;
+        }
+        Puzzle found = findOwnPuzzle(symbol);
+        if (found != null) {
+            return found;
+        }
+        for (Room room : subrooms) {
+            found = room.findPuzzleBySymbol(symbol, event);
+            if (found != null) {
+                return found;
             }
         }
+        return null;
+    }
+
+    private Puzzle findPuzzleByKey(String key, GameEvents.WorldLookup event) {
+        if (event != null) {
+            event.roomsVisited++;
+        }
+        // First check current room contents
+        Puzzle found = puzzleIndex.get(key);
+        if (found != null) {
+            return found;
+        }
         // If not found, check subrooms recursively
-        for (GameComponent component : contents) {
-            if (component instanceof Room) {
-                Puzzle found = ((Room) component).findPuzzle(puzzleName);
-                if (found != null) {
-                    return found;
-                }
+        for (Room room : subrooms) {
+            found = room.findPuzzleByKey(key, event);
+            if (found != null) {
+                return found;
             }
         }
         return null;
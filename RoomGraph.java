@@ -0,0 +1,191 @@
+import java.util.List;
+
+/**
+ * RoomGraph is the room graph of a world in compressed sparse row form, built once
+ * from the world's frozen rooms and shared by all sessions. Rooms are their
+ * registry ids, and every kind of edge is two int arrays:
+ *   start[id] .. start[id + 1]   range of the room's edges in targets
+ *   targets[i]                   room id at the end of edge i
+ * for connections (in the world's order), subrooms (in contents order) and the
+ * reverse of both (incoming). Parents, locks and exits are parallel arrays by
+ * room id; a lock is the name symbol of the key it requires (see NameTable).
+ *
+ * A million-room world costs a few int arrays here instead of a list of
+ * neighbours per room, and a traversal reads ints instead of chasing Room
+ * objects. What a session changes (revealed connections, unlocked doors) stays in
+ * its WorldState.
+ */
+public class RoomGraph {
+    private final RoomRegistry rooms;
+    private final int[] connectionStart; // room id -> first connection, size + 1 entries
+    private final int[] connections;
+    private final int[] subroomStart;
+    private final int[] subrooms;
+    private final int[] incomingStart;   // rooms with a connection or subroom edge to this one
+    private final int[] incoming;
+    private final int[] parents;         // room id -> parent room id, -1 for top-level rooms
+    private final int[] locks;           // room id -> symbol of the key required to enter, -1 if none
+    private final long[] exits;          // bit set of exit rooms
+
+    /**
+     * Build the graph of all rooms of a registry. The rooms must be frozen (their
+     * key symbols are assigned then, see WorldTemplate).
+     */
+    public RoomGraph(RoomRegistry rooms) {
+        this.rooms = rooms;
+        int n = rooms.size();
+        List<Room> all = rooms.getRooms();
+        this.connectionStart = new int[n + 1];
+        this.subroomStart = new int[n + 1];
+        this.parents = new int[n];
+        this.locks = new int[n];
+        this.exits = new long[(n + 63) >>> 6];
+        int connectionCount = 0;
+        int subroomCount = 0;
+        for (int id = 0; id < n; id++) {
+            Room room = all.get(id);
+            connectionCount += room.getConnectedRooms().size();
+            subroomCount += room.getSubrooms().size();
+            connectionStart[id + 1] = connectionCount;
+            subroomStart[id + 1] = subroomCount;
+            parents[id] = idOf(room.getParent());
+            if (room.getRequiredKey() != null && !room.isFrozen()) {
+                throw new IllegalArgumentException("Room " + room.getName() + " is not part of a world yet");
+            }
+            locks[id] = room.getRequiredKeySymbol();
+            if (room.isExit()) {
+                exits[id >>> 6] |= 1L << id;
+            }
+        }
+        this.connections = new int[connectionCount];
+        this.subrooms = new int[subroomCount];
+        int[] inDegree = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            Room room = all.get(id);
+            int c = connectionStart[id];
+            for (Room to : room.getConnectedRooms()) {
+                connections[c++] = idOf(to);
+            }
+            int s = subroomStart[id];
+            for (Room sub : room.getSubrooms()) {
+                subrooms[s++] = idOf(sub);
+            }
+        }
+        // Incoming edges: count per target, prefix sums, then fill in source order
+        for (int to : connections) {
+            if (to >= 0) {
+                inDegree[to + 1]++;
+            }
+        }
+        for (int to : subrooms) {
+            if (to >= 0) {
+                inDegree[to + 1]++;
+            }
+        }
+        for (int id = 0; id < n; id++) {
+            inDegree[id + 1] += inDegree[id];
+        }
+        this.incomingStart = inDegree.clone();
+        this.incoming = new int[inDegree[n]];
+        for (int id = 0; id < n; id++) {
+            for (int i = connectionStart[id]; i < connectionStart[id + 1]; i++) {
+                if (connections[i] >= 0) {
+                    incoming[inDegree[connections[i]]++] = id;
+                }
+            }
+            for (int i = subroomStart[id]; i < subroomStart[id + 1]; i++) {
+                if (subrooms[i] >= 0) {
+                    incoming[inDegree[subrooms[i]]++] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Id of a room of this graph, or -1 for null and rooms of other worlds.
+     */
+    private int idOf(Room room) {
+        return rooms.contains(room) ? room.getId() : -1;
+    }
+
+    public int size() {
+        return parents.length;
+    }
+
+    public RoomRegistry getRooms() {
+        return rooms;
+    }
+
+    public Room getRoom(int id) {
+        return rooms.get(id);
+    }
+
+    // ---------------- edges ----------------
+    // Edges of room r are the indexes getXStart(r) .. getXStart(r + 1) - 1, and
+    // getX(i) is the room at the end of edge i (-1 if it is not part of this world).
+
+    public int getConnectionStart(int room) {
+        return connectionStart[room];
+    }
+
+    public int getConnection(int edge) {
+        return connections[edge];
+    }
+
+    public int getConnectionCount(int room) {
+        return connectionStart[room + 1] - connectionStart[room];
+    }
+
+    public int getSubroomStart(int room) {
+        return subroomStart[room];
+    }
+
+    public int getSubroom(int edge) {
+        return subrooms[edge];
+    }
+
+    public int getSubroomCount(int room) {
+        return subroomStart[room + 1] - subroomStart[room];
+    }
+
+    public int getIncomingStart(int room) {
+        return incomingStart[room];
+    }
+
+    public int getIncoming(int edge) {
+        return incoming[edge];
+    }
+
+    /**
+     * Check whether the world connects one room to another (revealed connections
+     * are not part of the graph, see WorldState).
+     */
+    public boolean isConnected(int from, int to) {
+        for (int i = connectionStart[from]; i < connectionStart[from + 1]; i++) {
+            if (connections[i] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------------- rooms ----------------
+
+    /**
+     * Parent room id, or -1 for a top-level room.
+     */
+    public int getParent(int room) {
+        return parents[room];
+    }
+
+    public boolean isExit(int room) {
+        return (exits[room >>> 6] & (1L << room)) != 0;
+    }
+
+    /**
+     * Name symbol of the key a room requires, or -1 if it is not locked.
+     */
+    public int getLock(int room) {
+        return locks[room];
+    }
+}
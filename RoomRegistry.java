@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RoomRegistry indexes every room of a world, built once when the world is loaded.
+ * Each room gets a stable integer id (its registration order) and is keyed by
+ * its name in two ways:
+ * - exact: case-insensitive name (what findRoom used to compare with equalsIgnoreCase)
+ * - tolerant: case-insensitive name with all whitespace removed ("room1" == "Room 1")
+ *
+ * Both tables use open addressing. Lookups hash the input string in place, so they
+ * never allocate and never run a regex.
+ */
+public class RoomRegistry {
+    private static final int MIN_CAPACITY = 16;
+
+    private ArrayList<Room> rooms;  // index = room id
+    private int[] exactTable;       // slot -> room id + 1 (0 = empty)
+    private int[] tolerantTable;
+    private int mask;
+
+    public RoomRegistry() {
+        this.rooms = new ArrayList<>();
+        this.exactTable = new int[MIN_CAPACITY];
+        this.tolerantTable = new int[MIN_CAPACITY];
+        this.mask = MIN_CAPACITY - 1;
+    }
+
+    public RoomRegistry(List<Room> initialRooms) {
+        this();
+        for (Room r : initialRooms) {
+            add(r);
+        }
+    }
+
+    /**
+     * Register a room and assign its id. Registering the same room twice is a no-op.
+     * If two rooms share a name, lookups return the one registered first
+     * (same result as the old linear scan over the map).
+     * @return the room id
+     */
+    public int register(Room room) {
+        return add(room);
+    }
+
+    private int add(Room room) {
+        if (room.getId() >= 0 && room.getId() < rooms.size() && rooms.get(room.getId()) == room) {
+            return room.getId();
+        }
+        if ((rooms.size() + 1) * 2 > exactTable.length) {
+            resize(exactTable.length * 2);
+        }
+        int id = rooms.size();
+        rooms.add(room);
+        room.setId(id);
+        insert(exactTable, id, false);
+        insert(tolerantTable, id, true);
+        return id;
+    }
+
+    /**
+     * Get a room by its id, or null if the id is unknown.
+     */
+    public Room get(int id) {
+        if (id < 0 || id >= rooms.size()) {
+            return null;
+        }
+        return rooms.get(id);
+    }
+
+    /**
+     * Check whether this exact room is registered here.
+     */
+    public boolean contains(Room room) {
+        return room != null && get(room.getId()) == room;
+    }
+
+    public int size() {
+        return rooms.size();
+    }
+
+    /**
+     * All rooms, indexed by id. Do not modify.
+     */
+    public ArrayList<Room> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Find a room by name, ignoring case.
+     */
+    public Room findExact(String name) {
+        return lookup(exactTable, name, false);
+    }
+
+    /**
+     * Find a room by name, ignoring case and whitespace.
+     */
+    public Room findTolerant(String name) {
+        return lookup(tolerantTable, name, true);
+    }
+
+    /**
+     * Normalize a name the way the tolerant table keys it: lower-case, whitespace removed.
+     */
+    public static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compare a normalized key with raw input without allocating.
+     */
+    public static boolean matchesNormalized(String normalizedKey, String input) {
+        return keyEquals(normalizedKey, input, true);
+    }
+
+    private Room lookup(int[] table, String name, boolean tolerant) {
+        if (name == null) {
+            return null;
+        }
+        int slot = hash(name, tolerant) & mask;
+        while (table[slot] != 0) {
+            Room r = rooms.get(table[slot] - 1);
+            if (keyEquals(tolerant ? r.getNormalizedName() : r.getName(), name, tolerant, !tolerant)) {
+                return r;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private void insert(int[] table, int id, boolean tolerant) {
+        Room room = rooms.get(id);
+        String key = tolerant ? room.getNormalizedName() : room.getName();
+        int slot = hash(key, tolerant) & mask;
+        while (table[slot] != 0) {
+            Room existing = rooms.get(table[slot] - 1);
+            if (keyEquals(tolerant ? existing.getNormalizedName() : existing.getName(), key, tolerant, !tolerant)) {
+                return; // first registration wins
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private void resize(int capacity) {
+        exactTable = new int[capacity];
+        tolerantTable = new int[capacity];
+        mask = capacity - 1;
+        for (int id = 0; id < rooms.size(); id++) {
+            insert(exactTable, id, false);
+            insert(tolerantTable, id, true);
+        }
+    }
+
+    private static int hash(String s, boolean tolerant) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (tolerant && Character.isWhitespace(c)) {
+                continue;
+            }
+            h = 31 * h + Character.toLowerCase(c);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean keyEquals(String key, String input, boolean tolerant) {
+        return keyEquals(key, input, tolerant, false);
+    }
+
+    /**
+     * Walk the input, skipping whitespace when tolerant, and compare it with the key.
+     * When foldKey is set the key is lower-cased on the fly as well (exact table keys
+     * are the raw room names).
+     */
+    private static boolean keyEquals(String key, String input, boolean tolerant, boolean foldKey) {
+        int k = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (tolerant && Character.isWhitespace(c)) {
+                continue;
+            }
+            if (k >= key.length()) {
+                return false;
+            }
+            char kc = foldKey ? Character.toLowerCase(key.charAt(k)) : key.charAt(k);
+            if (kc != Character.toLowerCase(c)) {
+                return false;
+            }
+            k++;
+        }
+        return k == key.length();
+    }
+}
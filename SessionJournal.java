@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * SessionJournal is an append-only log of every change made by the game
+ * sessions of a server, shared by all of them. Sessions append one record per
+ * action (move, back, pickup, unlock, solve, hint shown, turn) and a full
+ * SessionSnapshot now and then; at the end of each command that changed
+ * something a session waits until its own records are on disk.
+ *
+ * Group commit: records go to an in-memory batch, and a single writer thread
+ * writes and fsyncs whole batches. While one fsync runs the next batch fills up,
+ * so under load one fsync makes the commands of many sessions durable.
+ *
+ * Recovery: open() replays the journal. Every session starts from its last
+ * snapshot record and applies the actions recorded after it; sessions that ended
+ * (won or quit) are dropped, and a torn record at the end (a crash during a
+ * write) is ignored. The journal is then rewritten with one snapshot per session
+ * still in progress, so it never grows beyond one server run.
+ *
+ * File format: magic "ERSJ", a version byte, and the room, puzzle and reward
+ * counts of the world (int32 each), then records of
+ *   length (int32)  CRC32 of the body (int32)  body
+ * where the body is a type byte, the session id (int64) and the values of the
+ * record as varints (see SessionSnapshot), or the snapshot bytes.
+ */
+public class SessionJournal implements AutoCloseable {
+    public static final int MAGIC = 0x4552534A; // "ERSJ"
+    public static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 17;
+    private static final int MAX_RECORD = 1 << 24;
+
+    // record types
+    static final byte SNAPSHOT = 0; // body: SessionSnapshot bytes
+    static final byte MOVE = 1;     // room id
+    static final byte BACK = 2;
+    static final byte PICKUP = 3;   // item reference (see SessionSnapshot)
+    static final byte UNLOCK = 4;   // room id (its key is used up)
+    static final byte SOLVE = 5;    // puzzle id (its rewards are applied)
+    static final byte HINT = 6;     // the next hint was shown
+    static final byte TURN = 7;     // a command used up a turn
+    static final byte END = 8;      // the session was won or quit
+
+    private final WorldTemplate world;
+    private final FileChannel channel;
+    private final Map<Long, byte[]> recovered; // session id -> snapshot, sessions in progress at open()
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private final Condition batchWritten = lock.newCondition();
+    private byte[] batch = new byte[8192]; // records waiting for the writer
+    private byte[] spare = new byte[8192]; // the batch being written
+    private int batchSize;
+    private long appended; // bytes appended since open()
+    private long durable;  // bytes written and forced to disk
+    private long syncs;
+    private long commits;
+    private IOException failure;
+    private boolean closed;
+
+    private SessionJournal(Path file, WorldTemplate world, Map<Long, byte[]> recovered) throws IOException {
+        this.world = world;
+        this.recovered = Collections.unmodifiableMap(recovered);
+        this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.writer = new Thread(this::writeLoop, "session-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Open (or create) a journal for a world, recovering the sessions it holds.
+     * @throws IOException if the journal cannot be read or belongs to another world
+     */
+    public static SessionJournal open(Path file, WorldTemplate world) throws IOException {
+        Map<Long, byte[]> sessions = Files.exists(file) ? recover(Files.readAllBytes(file), world)
+                : new LinkedHashMap<>();
+        // Start over with one snapshot per session in progress
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).put(VERSION).putInt(world.getRooms().size()).putInt(world.getPuzzles().size())
+                    .putInt(world.getRewards().size()).flip();
+            writeFully(out, header);
+            for (Map.Entry<Long, byte[]> session : sessions.entrySet()) {
+                SessionSnapshot.Writer body = record(SNAPSHOT, session.getKey());
+                body.bytes(session.getValue());
+                writeFully(out, ByteBuffer.wrap(frame(body)));
+            }
+            out.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new SessionJournal(file, world, sessions);
+    }
+
+    /**
+     * Rebuild the sessions of a journal.
+     * @return session id -> snapshot of every session that has not ended
+     */
+    static Map<Long, byte[]> recover(byte[] data, WorldTemplate world) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IOException("not a session journal");
+        }
+        if (in.get() != VERSION) {
+            throw new IOException("unsupported journal version");
+        }
+        if (in.getInt() != world.getRooms().size() || in.getInt() != world.getPuzzles().size()
+                || in.getInt() != world.getRewards().size()) {
+            throw new IOException("journal was written for another world");
+        }
+
+        LinkedHashMap<Long, GameEngine> sessions = new LinkedHashMap<>();
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= 8) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < 9 || length > MAX_RECORD || length > in.remaining()) {
+                break; // torn record at the end
+            }
+            byte[] body = new byte[length];
+            in.get(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            SessionSnapshot.Reader record = new SessionSnapshot.Reader(body);
+            byte type = record.int8();
+            long id = record.int64();
+            if (type == SNAPSHOT) {
+                GameEngine game = new GameEngine(() -> null, text -> { });
+                game.initializeGame(world);
+                game.restoreSnapshot(Arrays.copyOfRange(body, record.pos, body.length));
+                sessions.put(id, game);
+            } else if (type == END) {
+                sessions.remove(id);
+            } else {
+                GameEngine game = sessions.get(id);
+                if (game == null) {
+                    throw new IOException("journal record for session " + Long.toHexString(id)
+                            + " before its first snapshot");
+                }
+                game.replayJournalRecord(type, record);
+            }
+        }
+
+        LinkedHashMap<Long, byte[]> snapshots = new LinkedHashMap<>();
+        for (Map.Entry<Long, GameEngine> session : sessions.entrySet()) {
+            snapshots.put(session.getKey(), session.getValue().saveSnapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * The sessions that were in progress when the journal was opened (session id
+     * -> snapshot), to be continued with GameEngine.restoreSnapshot.
+     */
+    public Map<Long, byte[]> getRecoveredSessions() {
+        return recovered;
+    }
+
+    public WorldTemplate getWorld() {
+        return world;
+    }
+
+    /**
+     * Start a record: type and session id. The caller adds the values.
+     */
+    static SessionSnapshot.Writer record(byte type, long sessionId) {
+        SessionSnapshot.Writer body = new SessionSnapshot.Writer();
+        body.int8(type);
+        body.int64(sessionId);
+        return body;
+    }
+
+    private static byte[] frame(SessionSnapshot.Writer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.bytes, 0, body.size);
+        ByteBuffer framed = ByteBuffer.allocate(8 + body.size);
+        framed.putInt(body.size).putInt((int) crc.getValue()).put(body.bytes, 0, body.size);
+        return framed.array();
+    }
+
+    /**
+     * Add a record to the next batch. It is durable once commit(end) returns.
+     * @return the end of the record in the journal (bytes appended since open())
+     */
+    long append(SessionSnapshot.Writer body) {
+        byte[] framed = frame(body);
+        lock.lock();
+        try {
+            checkOpen();
+            if (batchSize + framed.length > batch.length) {
+                batch = Arrays.copyOf(batch, Math.max(batch.length * 2, batchSize + framed.length));
+            }
+            System.arraycopy(framed, 0, batch, batchSize, framed.length);
+            batchSize += framed.length;
+            appended += framed.length;
+            batchReady.signal();
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until everything up to an end returned by append() is on disk. A
+     * session passes the end of its own last record, so it does not wait for
+     * records other sessions appended after it.
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    public void commit(long end) {
+        lock.lock();
+        try {
+            commits++;
+            while (durable < end) {
+                checkOpen();
+                batchWritten.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Session journal failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Session journal is closed");
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            byte[] writing;
+            int size;
+            long end;
+            lock.lock();
+            try {
+                while (batchSize == 0 && !closed) {
+                    batchReady.awaitUninterruptibly();
+                }
+                if (batchSize == 0) {
+                    return; // closed and everything written
+                }
+                writing = batch;
+                size = batchSize;
+                end = appended;
+                batch = spare;
+                batchSize = 0;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                writeFully(channel, ByteBuffer.wrap(writing, 0, size));
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durable = end;
+                    syncs++;
+                }
+                spare = writing;
+                batchWritten.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Number of fsyncs so far.
+     */
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of commit() calls so far (commits per fsync shows how well grouping works).
+     */
+    public long getCommitCount() {
+        lock.lock();
+        try {
+            return commits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write what is left and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
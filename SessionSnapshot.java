@@ -0,0 +1,413 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * SessionSnapshot saves and restores the progress of one game session in a
+ * compact binary form. Everything is stored as small integers that refer to the
+ * session's world by id, never by name:
+ * - rooms by room id, puzzles by puzzle id, hints by hint id (WorldTemplate.hintId)
+ * - world items by their room id and position in that room's item list
+ * - items spawned by puzzles by the id of the reward that spawned them
+ * so a snapshot is only valid for the world it was taken in (the room, puzzle
+ * and reward counts are stored as a check) and usually takes a few dozen bytes.
+ *
+ * Binary format: magic "ERSS", a version byte, then unsigned LEB128 varints:
+ *   rooms puzzles rewards                 world shape check
+ *   turns room history-size history...    position (history oldest first)
+ *   inventory-size item-ref...            inventory in pickup order
+ *   removed-size (room index)...          world items taken from their room
+ *   spawned-size reward...                spawned items still lying in their room
+ *   solved-size puzzle-delta...           ids sorted, each stored as the gap to the previous one
+ *   unlocked-size room-delta...
+ *   revealed-size (from to)...            revealed connections in reveal order per room
+ *   hints-size hint...                    hint queue, next hint first
+ * An item reference is index * 2 followed by its room id for a world item, or
+ * reward id * 2 + 1 for a spawned item.
+ */
+public class SessionSnapshot {
+    public static final int MAGIC = 0x45525353; // "ERSS"
+    public static final byte VERSION = 1;
+
+    private SessionSnapshot() {
+    }
+
+    /**
+     * Save a session.
+     * @throws IllegalStateException if the session holds an item that is not part of its world
+     */
+    static byte[] write(WorldTemplate world, Player player, WorldState state, int turns, Queue<String> hints) {
+        Writer out = new Writer();
+        out.int32(MAGIC);
+        out.int8(VERSION);
+        out.varint(world.getRooms().size());
+        out.varint(world.getPuzzles().size());
+        out.varint(world.getRewards().size());
+
+        out.varint(turns);
+        out.varint(player.getCurrentRoom().getId());
+        Object[] history = player.getMoveHistory().toArray(); // one lock instead of one per element (Stack)
+        out.varint(history.length);
+        for (Object room : history) {
+            out.varint(((Room) room).getId());
+        }
+
+        out.varint(player.getInventory().size());
+        for (Item item : player.getInventory()) {
+            writeItem(out, world, item);
+        }
+
+        // Sets are written in id order, so equal sessions give equal bytes
+        long[] removed = new long[state.getRemovedItems().size()];
+        int n = 0;
+        for (Item item : state.getRemovedItems()) {
+            removed[n++] = (long) item.getParent().getId() << 32 | worldItemIndex(world, item);
+        }
+        Arrays.sort(removed);
+        out.varint(removed.length);
+        for (long ref : removed) {
+            out.varint((int) (ref >>> 32));
+            out.varint((int) ref);
+        }
+
+        ArrayList<Integer> spawned = new ArrayList<>();
+        for (List<Item> items : state.getAllSpawnedItems().values()) {
+            for (Item item : items) {
+                spawned.add(rewardOf(item).getId());
+            }
+        }
+        spawned.sort(null);
+        out.varint(spawned.size());
+        for (int reward : spawned) {
+            out.varint(reward);
+        }
+
+        int[] solved = new int[state.getSolvedPuzzles().size()];
+        n = 0;
+        for (Puzzle puzzle : state.getSolvedPuzzles()) {
+            solved[n++] = puzzle.getId();
+        }
+        out.sortedIds(solved);
+
+        int[] unlocked = new int[state.getUnlockedRooms().size()];
+        n = 0;
+        for (Room room : state.getUnlockedRooms()) {
+            unlocked[n++] = room.getId();
+        }
+        out.sortedIds(unlocked);
+
+        Map<Room, ArrayList<Room>> revealed = state.getRevealedConnections();
+        ArrayList<Room> from = new ArrayList<>(revealed.keySet());
+        from.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        int pairs = 0;
+        for (ArrayList<Room> list : revealed.values()) {
+            pairs += list.size();
+        }
+        out.varint(pairs);
+        for (Room room : from) {
+            for (Room to : revealed.get(room)) {
+                out.varint(room.getId());
+                out.varint(to.getId());
+            }
+        }
+
+        out.varint(hints.size());
+        for (String hint : hints) {
+            int id = world.hintId(hint);
+            if (id < 0) {
+                throw new IllegalStateException("Hint is not part of this world: " + hint);
+            }
+            out.varint(id);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Write a reference to an item of the world or spawned by one of its rewards.
+     */
+    static void writeItem(Writer out, WorldTemplate world, Item item) {
+        if (item.getSource() != null) {
+            out.varint(rewardOf(item).getId() * 2 + 1);
+        } else {
+            out.varint(worldItemIndex(world, item) * 2);
+            out.varint(item.getParent().getId());
+        }
+    }
+
+    private static PuzzleReward rewardOf(Item item) {
+        PuzzleReward reward = item.getSource();
+        if (reward == null || reward.getId() < 0) {
+            throw new IllegalStateException("Item is not part of this world: " + item.getName());
+        }
+        return reward;
+    }
+
+    /**
+     * Position of a world item in its room's item list.
+     */
+    private static int worldItemIndex(WorldTemplate world, Item item) {
+        Room room = item.getParent();
+        int index = room == null || !world.getRooms().contains(room) ? -1 : room.getItems().indexOf(item);
+        if (index < 0) {
+            throw new IllegalStateException("Item is not part of this world: " + item.getName());
+        }
+        return index;
+    }
+
+    /**
+     * Restore a saved session into a fresh player and state of the same world
+     * (the goal tracker is brought up to date on the way).
+     * @return the turn counter
+     * @throws IOException if the snapshot is damaged or was taken in another world
+     */
+    static int read(byte[] snapshot, WorldTemplate world, Player player, WorldState state, Queue<String> hints)
+            throws IOException {
+        Reader in = new Reader(snapshot);
+        try {
+            if (in.int32() != MAGIC) {
+                throw new IOException("not a session snapshot");
+            }
+            byte version = in.int8();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version);
+            }
+            if (in.varint() != world.getRooms().size() || in.varint() != world.getPuzzles().size()
+                    || in.varint() != world.getRewards().size()) {
+                throw new IOException("snapshot was taken in another world");
+            }
+
+            int turns = in.varint();
+            Room current = room(world, in.varint());
+            int historySize = in.varint();
+            ArrayList<Room> history = new ArrayList<>(Math.min(historySize, snapshot.length));
+            for (int i = 0; i < historySize; i++) {
+                history.add(room(world, in.varint()));
+            }
+
+            int inventorySize = in.varint();
+            ArrayList<Item> inventory = new ArrayList<>(Math.min(inventorySize, snapshot.length));
+            for (int i = 0; i < inventorySize; i++) {
+                inventory.add(readItem(in, world));
+            }
+
+            int removedSize = in.varint();
+            for (int i = 0; i < removedSize; i++) {
+                Room room = room(world, in.varint());
+                Item item = worldItem(room, in.varint());
+                state.removeItem(room, item);
+            }
+
+            int spawnedSize = in.varint();
+            for (int i = 0; i < spawnedSize; i++) {
+                PuzzleReward reward = reward(world, in.varint());
+                if (reward.getType() != PuzzleReward.Type.SPAWN_ITEM || reward.getRoom() == null) {
+                    throw new IOException("reward " + reward.getId() + " does not spawn an item in a room");
+                }
+                state.addItem(reward.getRoom(), reward.createItem());
+            }
+
+            int solvedSize = in.varint();
+            int id = 0;
+            for (int i = 0; i < solvedSize; i++) {
+                id += in.varint();
+                if (id >= world.getPuzzles().size()) {
+                    throw new IOException("unknown puzzle id " + id);
+                }
+                state.markSolved(world.getPuzzles().get(id));
+            }
+
+            int unlockedSize = in.varint();
+            id = 0;
+            for (int i = 0; i < unlockedSize; i++) {
+                id += in.varint();
+                state.unlock(room(world, id));
+            }
+
+            int revealedSize = in.varint();
+            for (int i = 0; i < revealedSize; i++) {
+                Room from = room(world, in.varint());
+                state.addConnection(from, room(world, in.varint()));
+            }
+
+            int hintCount = in.varint();
+            for (int i = 0; i < hintCount; i++) {
+                int hint = in.varint();
+                if (world.getHint(hint) == null) {
+                    throw new IOException("unknown hint id " + hint);
+                }
+                hints.add(world.getHint(hint));
+            }
+            if (!in.atEnd()) {
+                throw new IOException("unexpected data after the snapshot");
+            }
+
+            for (Item item : inventory) {
+                player.addToInventory(item);
+            }
+            player.restorePosition(current, history);
+            return turns;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("snapshot is truncated");
+        }
+    }
+
+    private static Item readItem(Reader in, WorldTemplate world) throws IOException {
+        int ref = in.varint();
+        if ((ref & 1) != 0) {
+            PuzzleReward reward = reward(world, ref >>> 1);
+            if (reward.getType() != PuzzleReward.Type.SPAWN_ITEM) {
+                throw new IOException("reward " + reward.getId() + " does not spawn an item");
+            }
+            return reward.createItem();
+        }
+        int index = ref >>> 1;
+        return worldItem(room(world, in.varint()), index);
+    }
+
+    /**
+     * Resolve an item reference to the item as it lies in a session's world
+     * (used to replay pickups from a SessionJournal).
+     */
+    static Item findItem(Reader in, WorldTemplate world, WorldState state) throws IOException {
+        int ref = in.varint();
+        if ((ref & 1) == 0) {
+            return worldItem(room(world, in.varint()), ref >>> 1);
+        }
+        PuzzleReward reward = reward(world, ref >>> 1);
+        if (reward.getRoom() != null) {
+            for (Item item : state.getSpawnedItems(reward.getRoom())) {
+                if (item.getSource() == reward) {
+                    return item;
+                }
+            }
+        }
+        throw new IOException("reward " + reward.getId() + " has not spawned an item");
+    }
+
+    static Room room(WorldTemplate world, int id) throws IOException {
+        Room room = world.getRooms().get(id);
+        if (room == null) {
+            throw new IOException("unknown room id " + id);
+        }
+        return room;
+    }
+
+    private static Item worldItem(Room room, int index) throws IOException {
+        if (index < 0 || index >= room.getItems().size()) {
+            throw new IOException("room " + room.getId() + " has no item " + index);
+        }
+        return room.getItems().get(index);
+    }
+
+    private static PuzzleReward reward(WorldTemplate world, int id) throws IOException {
+        if (id < 0 || id >= world.getRewards().size()) {
+            throw new IOException("unknown reward id " + id);
+        }
+        return world.getRewards().get(id);
+    }
+
+    /**
+     * Growable byte buffer with varint encoding (also used by SessionJournal).
+     */
+    static final class Writer {
+        byte[] bytes = new byte[128];
+        int size;
+
+        void int32(int v) {
+            ensure(4);
+            bytes[size++] = (byte) (v >>> 24);
+            bytes[size++] = (byte) (v >>> 16);
+            bytes[size++] = (byte) (v >>> 8);
+            bytes[size++] = (byte) v;
+        }
+
+        void int8(byte v) {
+            ensure(1);
+            bytes[size++] = v;
+        }
+
+        void varint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        void sortedIds(int[] ids) {
+            Arrays.sort(ids);
+            varint(ids.length);
+            int previous = 0;
+            for (int id : ids) {
+                varint(id - previous);
+                previous = id;
+            }
+        }
+
+        void int64(long v) {
+            int32((int) (v >>> 32));
+            int32((int) v);
+        }
+
+        void bytes(byte[] v) {
+            ensure(v.length);
+            System.arraycopy(v, 0, bytes, size, v.length);
+            size += v.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(int n) {
+            if (size + n > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + n));
+            }
+        }
+    }
+
+    static final class Reader {
+        final byte[] bytes;
+        int pos;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean atEnd() {
+            return pos == bytes.length;
+        }
+
+        int int32() {
+            int v = (bytes[pos] & 0xFF) << 24 | (bytes[pos + 1] & 0xFF) << 16 | (bytes[pos + 2] & 0xFF) << 8
+                    | (bytes[pos + 3] & 0xFF);
+            pos += 4;
+            return v;
+        }
+
+        long int64() {
+            long high = int32();
+            return high << 32 | (int32() & 0xFFFFFFFFL);
+        }
+
+        byte int8() {
+            return bytes[pos++];
+        }
+
+        int varint() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = bytes[pos++];
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return v;
+                }
+            }
+            throw new IOException("bad number in snapshot");
+        }
+    }
+}
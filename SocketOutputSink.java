@@ -0,0 +1,62 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SocketOutputSink sends a session's output to a client socket as UTF-8.
+ * The encoder and byte buffer are reused, so each write is one encode pass and
+ * one write to the socket.
+ */
+public class SocketOutputSink implements OutputSink {
+    private final Socket socket;
+    private final OutputStream stream;
+    private final CharsetEncoder encoder;
+    private ByteBuffer bytes;
+
+    public SocketOutputSink(Socket socket) throws IOException {
+        this.socket = socket;
+        this.stream = socket.getOutputStream();
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+        this.bytes = ByteBuffer.allocate(4096);
+    }
+
+    @Override
+    public void write(CharSequence text) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        bytes.clear();
+        while (encoder.encode(chars, bytes, true).isOverflow() || encoder.flush(bytes).isOverflow()) {
+            grow();
+        }
+        try {
+            stream.write(bytes.array(), 0, bytes.position());
+            stream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Double the byte buffer, keeping what has been encoded so far.
+     */
+    private void grow() {
+        ByteBuffer bigger = ByteBuffer.allocate(bytes.capacity() * 2);
+        bytes.flip();
+        bigger.put(bytes);
+        bytes = bigger;
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
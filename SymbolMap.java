@@ -0,0 +1,139 @@
+/**
+ * SymbolMap maps name symbols (see NameTable) to values without boxing them.
+ * Like NameTable it uses open addressing with linear probing, so get and put
+ * allocate nothing once the table is large enough; remove shifts the following
+ * entries back instead of leaving tombstones.
+ */
+class SymbolMap<V> {
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] keys;     // slot -> symbol + 1 (0 = empty)
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    SymbolMap() {
+        this(0);
+    }
+
+    /**
+     * @param expected number of entries the table should hold without growing
+     */
+    SymbolMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity *= 2;
+        }
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Get the value of a symbol, or null if it has none (or the symbol is negative).
+     */
+    @SuppressWarnings("unchecked")
+    V get(int symbol) {
+        if (symbol < 0) {
+            return null;
+        }
+        int slot = find(symbol);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Set the value of a symbol (0 or more), replacing any value it had.
+     */
+    void put(int symbol, V value) {
+        int slot = find(symbol);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        insert(symbol, value);
+        size++;
+    }
+
+    /**
+     * Set the value of a symbol unless it already has one.
+     */
+    void putIfAbsent(int symbol, V value) {
+        if (find(symbol) < 0) {
+            put(symbol, value);
+        }
+    }
+
+    /**
+     * Remove a symbol and its value, if it has one.
+     */
+    void remove(int symbol) {
+        int slot = find(symbol);
+        if (slot < 0) {
+            return;
+        }
+        keys[slot] = 0;
+        values[slot] = null;
+        size--;
+        // move later entries of the same probe run back into the gap
+        int next = (slot + 1) & mask;
+        while (keys[next] != 0) {
+            int home = hash(keys[next] - 1) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                keys[next] = 0;
+                values[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(int symbol) {
+        int slot = hash(symbol) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == symbol + 1) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int symbol, Object value) {
+        int slot = hash(symbol) & mask;
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = symbol + 1;
+        values[slot] = value;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                insert(oldKeys[i] - 1, oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Symbols are small and dense, so spread them over the table.
+     */
+    private static int hash(int symbol) {
+        int h = symbol * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
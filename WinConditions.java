@@ -0,0 +1,108 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * WinConditions are the goals of a world, shared by all its sessions:
+ * - item goals: every required item must be in the inventory
+ * - puzzle goals: at least one puzzle of every goal room must be solved
+ * - the player must stand in an exit room
+ *
+ * Each session tracks its progress towards them in a GoalTracker.
+ */
+public class WinConditions {
+    /** No goals at all (any exit room wins). */
+    public static final WinConditions NONE = new WinConditions(Collections.emptyList(), Collections.emptyList());
+
+    private final List<String> requiredItems;
+    private final HashMap<String, Integer> itemGoals; // lower-case name -> item goal
+    private final List<Room> goalRooms;
+    private int[] puzzleGoals; // puzzle id -> puzzle goal (goal room index), -1 if none
+    private int[] symbolGoals; // name symbol -> item goal, -1 if none; null until indexed
+
+    public WinConditions(List<String> requiredItems, List<Room> goalRooms) {
+        this.requiredItems = Collections.unmodifiableList(new ArrayList<>(requiredItems));
+        this.itemGoals = new HashMap<>();
+        for (String item : requiredItems) {
+            itemGoals.putIfAbsent(item.toLowerCase(), itemGoals.size());
+        }
+        this.goalRooms = Collections.unmodifiableList(new ArrayList<>(goalRooms));
+        this.puzzleGoals = new int[0];
+    }
+
+    /**
+     * Map the puzzles of the goal rooms to their goals. Called once the puzzles
+     * have their ids (see WorldTemplate).
+     */
+    void indexPuzzles(int puzzleCount) {
+        int[] goals = new int[puzzleCount];
+        Arrays.fill(goals, -1);
+        for (int g = 0; g < goalRooms.size(); g++) {
+            for (Puzzle puzzle : goalRooms.get(g).getPuzzles()) {
+                goals[puzzle.getId()] = g;
+            }
+        }
+        puzzleGoals = goals;
+    }
+
+    /**
+     * Map the name symbols of the world to item goals. Called once all names
+     * have been interned (see WorldTemplate).
+     */
+    void indexSymbols(NameTable names) {
+        int[] goals = new int[names.size()];
+        Arrays.fill(goals, -1);
+        for (int symbol = 0; symbol < goals.length; symbol++) {
+            goals[symbol] = itemGoalOf(names.getName(symbol));
+        }
+        symbolGoals = goals;
+    }
+
+    public List<String> getRequiredItems() {
+        return requiredItems;
+    }
+
+    public List<Room> getGoalRooms() {
+        return goalRooms;
+    }
+
+    /**
+     * Number of distinct required items.
+     */
+    public int getItemGoalCount() {
+        return itemGoals.size();
+    }
+
+    public int getPuzzleGoalCount() {
+        return goalRooms.size();
+    }
+
+    /**
+     * Get the item goal an item counts towards, or -1.
+     */
+    public int itemGoalOf(Item item) {
+        int symbol = item.getSymbol();
+        if (symbolGoals != null && symbol >= 0) {
+            return symbol < symbolGoals.length ? symbolGoals[symbol] : -1;
+        }
+        return itemGoalOf(item.getName());
+    }
+
+    /**
+     * Get the item goal of an item name, or -1.
+     */
+    public int itemGoalOf(String itemName) {
+        Integer goal = itemGoals.get(itemName.toLowerCase());
+        return goal == null ? -1 : goal;
+    }
+
+    /**
+     * Get the puzzle goal a puzzle counts towards, or -1.
+     */
+    public int puzzleGoalOf(Puzzle puzzle) {
+        int id = puzzle.getId();
+        return id >= 0 && id < puzzleGoals.length ? puzzleGoals[id] : -1;
+    }
+}
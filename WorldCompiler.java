@@ -0,0 +1,349 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * WorldCompiler turns a text world definition (.world) into the compact binary
+ * form (.worldc) that WorldLoader memory-maps.
+ *
+ * Text format: one directive per line, fields separated by '|', '#' starts a comment line.
+ *   room    | name [| requiredKey]
+ *   exit    | name [| requiredKey]                      (an exit room)
+ *   start   | room
+ *   subroom | parent | child
+ *   connect | from | to
+ *   item    | room | name | value | KEY/TOOL/CLUE
+ *   riddle  | room | name | difficulty | riddle | answer [| synonym ...]
+ *   code    | room | name | difficulty | code
+ *   puzzle  | room | kind | name | difficulty | text | answer [| answer ...]
+ *                                                   (any kind registered in PuzzleTypes;
+ *                                                    riddle and code are kinds too)
+ *   require | itemName                                  (needed to win)
+ *   goal    | room                                      (a puzzle in it must be solved to win)
+ *   hint    | text
+ *   reward  | puzzle | spawn  | room | item | value | type | message
+ *   reward  | puzzle | reveal | from | to | message
+ *   reward  | puzzle | hint   | text
+ *
+ * Binary format (big-endian): see write() below; every name is an index
+ * into a string table and every room/item/puzzle reference is an index into its table.
+ */
+public class WorldCompiler {
+    public static final int MAGIC = 0x45525742; // "ERWB"
+    public static final short VERSION = 3;
+
+    static final byte CONTENT_ITEM = 0;
+    static final byte CONTENT_PUZZLE = 1;
+    static final byte CONTENT_SUBROOM = 2;
+    static final byte REWARD_SPAWN = 0;
+    static final byte REWARD_REVEAL = 1;
+    static final byte REWARD_HINT = 2;
+    static final byte ROOM_EXIT = 1;
+
+    // string table
+    private ArrayList<String> strings = new ArrayList<>();
+    private HashMap<String, Integer> stringIds = new HashMap<>();
+
+    // rooms: name, key, flags
+    private ArrayList<int[]> rooms = new ArrayList<>();
+    private HashMap<String, Integer> roomIds = new HashMap<>();
+    private int startRoom = -1;
+    // items: name, value, type
+    private ArrayList<int[]> items = new ArrayList<>();
+    // puzzles: kind, name, difficulty, text, answers...
+    private ArrayList<int[]> puzzles = new ArrayList<>();
+    private HashMap<String, Integer> puzzleIds = new HashMap<>();
+    // contents: room, kind, index
+    private ArrayList<int[]> contents = new ArrayList<>();
+    // connections: from, to
+    private ArrayList<int[]> connections = new ArrayList<>();
+    private ArrayList<Integer> required = new ArrayList<>();
+    private ArrayList<Integer> goals = new ArrayList<>(); // goal rooms
+    private ArrayList<Integer> hints = new ArrayList<>();
+    // rewards: puzzle, action, a, b, c, d, message
+    private ArrayList<int[]> rewards = new ArrayList<>();
+
+    /**
+     * Compile a text world file to its binary form.
+     */
+    public static byte[] compile(Path textFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(textFile, StandardCharsets.UTF_8)) {
+            return compile(reader);
+        }
+    }
+
+    /**
+     * Compile a text world definition to its binary form.
+     */
+    public static byte[] compile(BufferedReader reader) throws IOException {
+        WorldCompiler compiler = new WorldCompiler();
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                compiler.directive(line.split("\\|"));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("line " + lineNo + ": " + e.getMessage());
+            }
+        }
+        if (compiler.startRoom < 0) {
+            throw new IOException("world has no 'start' room");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compiler.write(bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Compile a .world file into a .worldc file.
+     */
+    public static void compile(Path textFile, Path binaryFile) throws IOException {
+        Files.write(binaryFile, compile(textFile));
+    }
+
+    private void directive(String[] f) {
+        for (int i = 0; i < f.length; i++) {
+            f[i] = f[i].trim();
+        }
+        String kind = f[0].toLowerCase();
+        switch (kind) {
+            case "room":
+            case "exit": {
+                expect(f, 2, 3);
+                if (roomIds.containsKey(f[1].toLowerCase())) {
+                    throw new IllegalArgumentException("duplicate room: " + f[1]);
+                }
+                roomIds.put(f[1].toLowerCase(), rooms.size());
+                int key = f.length > 2 && !f[2].isEmpty() ? string(f[2]) : -1;
+                rooms.add(new int[] { string(f[1]), key, kind.equals("exit") ? ROOM_EXIT : 0 });
+                break;
+            }
+            case "start":
+                expect(f, 2, 2);
+                startRoom = room(f[1]);
+                break;
+            case "subroom":
+                expect(f, 3, 3);
+                contents.add(new int[] { room(f[1]), CONTENT_SUBROOM, room(f[2]) });
+                break;
+            case "connect":
+                expect(f, 3, 3);
+                connections.add(new int[] { room(f[1]), room(f[2]) });
+                break;
+            case "item":
+                expect(f, 5, 5);
+                contents.add(new int[] { room(f[1]), CONTENT_ITEM, items.size() });
+                items.add(new int[] { string(f[2]), number(f[3]), itemType(f[4]) });
+                break;
+            case "riddle":
+                expect(f, 6, Integer.MAX_VALUE);
+                addPuzzle(f[1], "riddle", f[2], f[3], f[4], Arrays.copyOfRange(f, 5, f.length));
+                break;
+            case "code":
+                expect(f, 5, 5);
+                addPuzzle(f[1], "code", f[2], f[3], null, new String[] { f[4] });
+                break;
+            case "puzzle":
+                expect(f, 7, Integer.MAX_VALUE);
+                addPuzzle(f[1], f[2], f[3], f[4], f[5].isEmpty() ? null : f[5], Arrays.copyOfRange(f, 6, f.length));
+                break;
+            case "require":
+                expect(f, 2, 2);
+                required.add(string(f[1]));
+                break;
+            case "goal":
+                expect(f, 2, 2);
+                goals.add(room(f[1]));
+                break;
+            case "hint":
+                expect(f, 2, 2);
+                hints.add(string(f[1]));
+                break;
+            case "reward":
+                reward(f);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown directive: " + f[0]);
+        }
+    }
+
+    private void reward(String[] f) {
+        if (f.length < 3) {
+            throw new IllegalArgumentException("reward needs a puzzle and an action");
+        }
+        Integer puzzle = puzzleIds.get(f[1].toLowerCase());
+        if (puzzle == null) {
+            throw new IllegalArgumentException("unknown puzzle: " + f[1]);
+        }
+        switch (f[2].toLowerCase()) {
+            case "spawn":
+                expect(f, 8, 8);
+                rewards.add(new int[] { puzzle, REWARD_SPAWN, room(f[3]), string(f[4]), number(f[5]),
+                        itemType(f[6]), string(f[7]) });
+                break;
+            case "reveal":
+                expect(f, 6, 6);
+                rewards.add(new int[] { puzzle, REWARD_REVEAL, room(f[3]), room(f[4]), 0, 0, string(f[5]) });
+                break;
+            case "hint":
+                expect(f, 4, 4);
+                rewards.add(new int[] { puzzle, REWARD_HINT, 0, 0, 0, 0, string(f[3]) });
+                break;
+            default:
+                throw new IllegalArgumentException("unknown reward action: " + f[2]);
+        }
+    }
+
+    private void addPuzzle(String roomName, String kind, String name, String difficulty, String text,
+            String[] answers) {
+        int room = room(roomName);
+        if (puzzleIds.containsKey(name.toLowerCase())) {
+            throw new IllegalArgumentException("duplicate puzzle: " + name);
+        }
+        // Build the puzzle once, so an unknown kind or fields it rejects fail here with the line number
+        PuzzleTypes.getDefault().create(kind, name, number(difficulty), text, answers);
+        int[] puzzle = new int[4 + answers.length];
+        puzzle[0] = string(kind.toLowerCase());
+        puzzle[1] = string(name);
+        puzzle[2] = number(difficulty);
+        puzzle[3] = text == null ? -1 : string(text);
+        for (int i = 0; i < answers.length; i++) {
+            puzzle[4 + i] = string(answers[i]);
+        }
+        puzzleIds.put(name.toLowerCase(), puzzles.size());
+        contents.add(new int[] { room, CONTENT_PUZZLE, puzzles.size() });
+        puzzles.add(puzzle);
+    }
+
+    private static void expect(String[] f, int min, int max) {
+        if (f.length < min || f.length > max) {
+            throw new IllegalArgumentException("'" + f[0] + "' expects " + (min - 1)
+                    + (min == max ? "" : max == Integer.MAX_VALUE ? " or more" : " to " + (max - 1))
+                    + " fields, got " + (f.length - 1));
+        }
+    }
+
+    private int room(String name) {
+        Integer id = roomIds.get(name.toLowerCase());
+        if (id == null) {
+            throw new IllegalArgumentException("unknown room: " + name);
+        }
+        return id;
+    }
+
+    private static int number(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number: " + s);
+        }
+    }
+
+    private static int itemType(String s) {
+        try {
+            return Item.ItemType.valueOf(s.toUpperCase()).ordinal();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown item type: " + s);
+        }
+    }
+
+    private int string(String s) {
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.add(s);
+            stringIds.put(s, id);
+        }
+        return id;
+    }
+
+    private void write(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            if (b.length > 0xFFFF) {
+                throw new IOException("text too long (max 65535 bytes): " + s.substring(0, 40) + "...");
+            }
+            out.writeShort(b.length);
+            out.write(b);
+        }
+
+        out.writeInt(rooms.size());
+        for (int[] r : rooms) {
+            out.writeInt(r[0]);
+            out.writeInt(r[1]);
+            out.writeByte(r[2]);
+        }
+        out.writeInt(startRoom);
+
+        out.writeInt(items.size());
+        for (int[] it : items) {
+            out.writeInt(it[0]);
+            out.writeInt(it[1]);
+            out.writeByte(it[2]);
+        }
+
+        out.writeInt(puzzles.size());
+        for (int[] p : puzzles) {
+            out.writeInt(p[0]);
+            out.writeInt(p[1]);
+            out.writeInt(p[2]);
+            out.writeInt(p[3]);
+            out.writeInt(p.length - 4);
+            for (int i = 4; i < p.length; i++) {
+                out.writeInt(p[i]);
+            }
+        }
+
+        out.writeInt(contents.size());
+        for (int[] c : contents) {
+            out.writeInt(c[0]);
+            out.writeByte(c[1]);
+            out.writeInt(c[2]);
+        }
+
+        out.writeInt(connections.size());
+        for (int[] c : connections) {
+            out.writeInt(c[0]);
+            out.writeInt(c[1]);
+        }
+
+        writeInts(out, required);
+        writeInts(out, goals);
+        writeInts(out, hints);
+
+        out.writeInt(rewards.size());
+        for (int[] r : rewards) {
+            out.writeInt(r[0]);
+            out.writeByte(r[1]);
+            for (int i = 2; i < r.length; i++) {
+                out.writeInt(r[i]);
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeInts(DataOutputStream out, ArrayList<Integer> values) throws IOException {
+        out.writeInt(values.size());
+        for (int v : values) {
+            out.writeInt(v);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * WorldGenerator builds large random worlds for scale and load testing. The
+ * same seed and settings always produce the same world.
+ *
+ * Layout:
+ * - Top-level rooms form a tree of connections (both directions) below the
+ *   Entrance, filled breadth first with at most `branching` children per room,
+ *   so the map stays shallow even with millions of rooms.
+ * - Every other room may become a subroom of an earlier room, nested at most
+ *   `depth` levels deep.
+ * - A chain of `locks` locked rooms lies on the path to the deepest top-level
+ *   room. key_j opens the j-th lock and is always placed in front of it (behind
+ *   lock j-1 at most), either as an item or as the reward of a puzzle.
+ * - The Exit_Key and the 5B room (the goal room) lie behind the last lock.
+ *   Solving any 5B puzzle reveals the Exit Room, which needs the Exit_Key.
+ * - Other rooms get an item and/or a puzzle (`puzzleDensity` = share of rooms
+ *   with a puzzle).
+ *
+ * Because every key is reachable before its lock, every generated world is
+ * solvable; getWalkthrough() returns the input lines of one solution.
+ *
+ * Usage: java WorldGenerator <rooms> [seed] [--depth D] [--branching B] [--locks K]
+ *        [--puzzles P] [--walkthrough file]
+ */
+public class WorldGenerator {
+    public static final String EXIT_KEY = "Exit_Key";
+
+    private static final double SUBROOM_SHARE = 0.5; // chance that a room becomes a subroom (if depth > 0)
+    private static final double ITEM_SHARE = 0.5;    // chance that a room holds an item
+    private static final String[] NOUNS = {
+        "Coin", "Gem", "Note", "Candle", "Rope", "Lens", "Map", "Compass", "Feather", "Shell"
+    };
+    private static final String[][] RIDDLES = {
+        {"I have cities, but no houses. I have mountains, but no trees. What am I?", "Map"},
+        {"What has keys but no locks, space but no room?", "Keyboard"},
+        {"I speak without a mouth and hear without ears. What am I?", "Echo"},
+        {"The more you take, the more you leave behind. What am I?", "Footsteps"},
+        {"What has hands but cannot clap?", "Clock"},
+        {"I am tall when I am young, and short when I am old. What am I?", "Candle"},
+        {"What gets wetter the more it dries?", "Towel"},
+        {"What can you catch but not throw?", "Cold"}
+    };
+
+    private final long seed;
+    private int roomCount = 1000;
+    private int depth = 2;
+    private int branching = 3;
+    private int locks = 5;
+    private double puzzleDensity = 0.3;
+
+    // built by generate()
+    private Random random;
+    private ArrayList<Room> rooms;
+    private int[] treeParent;   // top-level rooms: parent in the connection tree (-1 for the Entrance)
+    private int[] treeDepth;    // top-level rooms: depth in the connection tree
+    private int[] top;          // the top-level room a room belongs to (itself for top-level rooms)
+    private int[] nesting;      // subroom nesting level (0 for top-level rooms)
+    private int[] zone;         // number of locks between the Entrance and this room
+    private ArrayList<String> walkthrough;
+    private int walkRoom;       // where the walkthrough currently stands (top-level room)
+    private int puzzleCount;
+    private int itemCount;
+    private int lockCount;
+
+    public WorldGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Total number of rooms, including subrooms (at least 8).
+     * @return this, for chaining
+     */
+    public WorldGenerator rooms(int roomCount) {
+        this.roomCount = Math.max(8, roomCount);
+        return this;
+    }
+
+    /**
+     * Maximum subroom nesting (0 = no subrooms).
+     * @return this, for chaining
+     */
+    public WorldGenerator depth(int depth) {
+        this.depth = Math.max(0, depth);
+        return this;
+    }
+
+    /**
+     * Maximum number of connected rooms below each top-level room.
+     * @return this, for chaining
+     */
+    public WorldGenerator branching(int branching) {
+        this.branching = Math.max(1, branching);
+        return this;
+    }
+
+    /**
+     * Length of the key/lock chain. Capped by the depth of the room tree.
+     * @return this, for chaining
+     */
+    public WorldGenerator locks(int locks) {
+        this.locks = Math.max(0, locks);
+        return this;
+    }
+
+    /**
+     * Share of rooms that hold a puzzle (0..1).
+     * @return this, for chaining
+     */
+    public WorldGenerator puzzleDensity(double puzzleDensity) {
+        this.puzzleDensity = Math.min(1, Math.max(0, puzzleDensity));
+        return this;
+    }
+
+    /**
+     * Build a new world.
+     */
+    public WorldTemplate generate() {
+        random = new Random(seed);
+        walkthrough = new ArrayList<>();
+        walkRoom = 0;
+        puzzleCount = 0;
+        itemCount = 0;
+
+        // 5B and the Exit Room are added at the end
+        int n = roomCount - 2;
+        rooms = new ArrayList<>(roomCount);
+        treeParent = new int[n];
+        treeDepth = new int[n];
+        top = new int[n];
+        nesting = new int[n];
+        zone = new int[n];
+        buildRooms(n);
+
+        // The lock chain lies on the path to the last (deepest) top-level room
+        int deepest = 0;
+        for (int i = 0; i < n; i++) {
+            if (top[i] == i) {
+                deepest = i;
+            }
+        }
+        int[] path = pathFromEntrance(deepest);
+        lockCount = Math.min(locks, path.length - 1);
+        int[] lockRooms = new int[lockCount + 1]; // 1-based
+        for (int j = 1; j <= lockCount; j++) {
+            int room = path[1 + (j - 1) * (path.length - 1) / lockCount];
+            lockRooms[j] = room;
+            rooms.get(room).setRequiredKey(keyName(j));
+        }
+        ArrayList<int[]> zones = assignZones(n, lockRooms);
+
+        List<PuzzleReward> rewards = new ArrayList<>();
+        for (int j = 1; j <= lockCount; j++) {
+            placeKey(keyName(j), zones.get(j - 1), rewards);
+        }
+        placeKey(EXIT_KEY, zones.get(lockCount), rewards);
+
+        // 5B: three puzzles behind the last lock, each revealing the Exit Room
+        int[] lastZone = zones.get(lockCount);
+        int holder = lastZone[random.nextInt(lastZone.length)];
+        Room room5B = new Room("5B");
+        rooms.get(holder).addContent(room5B);
+        rooms.add(room5B);
+        Room exit = new Room("Exit Room", EXIT_KEY);
+        exit.setExit(true);
+        rooms.add(exit);
+        String[] firstRiddle = null;
+        for (int p = 1; p <= 3; p++) {
+            String[] riddle = RIDDLES[random.nextInt(RIDDLES.length)];
+            Puzzle puzzle = new RiddlePuzzle("5B Puzzle " + p, p, riddle[0], riddle[1]);
+            room5B.addContent(puzzle);
+            puzzleCount++;
+            rewards.add(PuzzleReward.revealConnection(puzzle, rooms.get(deepest), exit,
+                    "A hidden door to the Exit Room opens in " + rooms.get(deepest).getName() + "!"));
+            if (firstRiddle == null) {
+                firstRiddle = riddle;
+            }
+        }
+
+        fillRooms(n, rewards);
+
+        walkTo(holder);
+        walkthrough.add("solve 5B Puzzle 1");
+        walkthrough.add(firstRiddle[1]);
+        walkTo(deepest);
+        walkthrough.add("move Exit Room");
+
+        List<String> hints = List.of(
+                "Locked rooms need the key with the matching number.",
+                "Puzzles can reveal keys; look in subrooms too.",
+                "Solve a puzzle in 5B to find the Exit Room.");
+        return new WorldTemplate(rooms, rooms.get(0), List.of(EXIT_KEY), List.of(room5B), hints, rewards);
+    }
+
+    /**
+     * The input lines of one solution of the last generated world.
+     */
+    public List<String> getWalkthrough() {
+        return walkthrough;
+    }
+
+    public int getPuzzleCount() {
+        return puzzleCount;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int getLockCount() {
+        return lockCount;
+    }
+
+    private static String keyName(int lock) {
+        return "key_" + lock;
+    }
+
+    /**
+     * Create the first n rooms: the connection tree of top-level rooms and the
+     * subrooms nested into them.
+     */
+    private void buildRooms(int n) {
+        rooms.add(new Room("Entrance"));
+        treeParent[0] = -1;
+        ArrayList<Integer> topLevel = new ArrayList<>();
+        topLevel.add(0);
+        int nextParent = 0;  // index into topLevel of the room that gets the next child
+        int children = 0;
+        for (int i = 1; i < n; i++) {
+            Room room = new Room("Room " + i);
+            rooms.add(room);
+            int container = depth > 0 && random.nextDouble() < SUBROOM_SHARE ? random.nextInt(i) : -1;
+            if (container >= 0 && nesting[container] < depth) {
+                rooms.get(container).addContent(room);
+                treeParent[i] = -1;
+                nesting[i] = nesting[container] + 1;
+                top[i] = top[container];
+            } else {
+                int parent = topLevel.get(nextParent);
+                rooms.get(parent).addConnectedRoom(room);
+                room.addConnectedRoom(rooms.get(parent));
+                treeParent[i] = parent;
+                treeDepth[i] = treeDepth[parent] + 1;
+                top[i] = i;
+                topLevel.add(i);
+                if (++children == branching) {
+                    nextParent++;
+                    children = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Top-level rooms from the Entrance to the given top-level room.
+     */
+    private int[] pathFromEntrance(int room) {
+        int[] path = new int[treeDepth[room] + 1];
+        for (int r = room; r >= 0; r = treeParent[r]) {
+            path[treeDepth[r]] = r;
+        }
+        return path;
+    }
+
+    /**
+     * Compute the zone of every room and return the rooms of each zone.
+     * Parents are created before their children, so one pass in id order works.
+     */
+    private ArrayList<int[]> assignZones(int n, int[] lockRooms) {
+        int[] lockOf = new int[n];
+        for (int j = 1; j < lockRooms.length; j++) {
+            lockOf[lockRooms[j]] = j;
+        }
+        int[] counts = new int[lockRooms.length];
+        for (int i = 0; i < n; i++) {
+            if (lockOf[i] > 0) {
+                zone[i] = lockOf[i];
+            } else if (top[i] != i) {
+                zone[i] = zone[top[i]];
+            } else {
+                zone[i] = i == 0 ? 0 : zone[treeParent[i]];
+            }
+            counts[zone[i]]++;
+        }
+        ArrayList<int[]> zones = new ArrayList<>();
+        for (int count : counts) {
+            zones.add(new int[count]);
+        }
+        int[] fill = new int[counts.length];
+        for (int i = 0; i < n; i++) {
+            zones.get(zone[i])[fill[zone[i]]++] = i;
+        }
+        return zones;
+    }
+
+    /**
+     * Put a key into a random room of a zone, as an item or as a puzzle reward,
+     * and add picking it up to the walkthrough.
+     */
+    private void placeKey(String key, int[] zoneRooms, List<PuzzleReward> rewards) {
+        int index = zoneRooms[random.nextInt(zoneRooms.length)];
+        Room room = rooms.get(index);
+        walkTo(index);
+        if (random.nextDouble() < puzzleDensity) {
+            Puzzle puzzle = newPuzzle("Key Puzzle " + key, room);
+            rewards.add(PuzzleReward.spawnItem(puzzle, room, key, 0, Item.ItemType.KEY,
+                    "A key appears in " + room.getName() + ": " + key));
+            walkthrough.add("solve " + puzzle.getName());
+            walkthrough.add(puzzle.getAcceptedAnswer());
+        } else {
+            room.addContent(new Item(key, 0, Item.ItemType.KEY));
+            itemCount++;
+        }
+        walkthrough.add("pickup " + key);
+    }
+
+    /**
+     * Give the first n rooms their items and puzzles.
+     */
+    private void fillRooms(int n, List<PuzzleReward> rewards) {
+        for (int i = 0; i < n; i++) {
+            Room room = rooms.get(i);
+            if (random.nextDouble() < ITEM_SHARE) {
+                String noun = NOUNS[random.nextInt(NOUNS.length)];
+                Item.ItemType type = random.nextBoolean() ? Item.ItemType.CLUE : Item.ItemType.TOOL;
+                room.addContent(new Item(noun + " " + i, 1 + random.nextInt(20), type));
+                itemCount++;
+            }
+            if (random.nextDouble() < puzzleDensity) {
+                Puzzle puzzle = newPuzzle("Puzzle " + i, room);
+                if (random.nextBoolean()) {
+                    rewards.add(PuzzleReward.spawnItem(puzzle, room, "Prize " + i, 10 + random.nextInt(40),
+                            Item.ItemType.CLUE, "Something glitters in " + room.getName() + ": Prize " + i));
+                } else {
+                    rewards.add(PuzzleReward.hint(puzzle, "The keys are numbered in the order of their locks."));
+                }
+            }
+        }
+    }
+
+    private Puzzle newPuzzle(String name, Room room) {
+        Puzzle puzzle;
+        int difficulty = 1 + random.nextInt(5);
+        if (random.nextBoolean()) {
+            String[] riddle = RIDDLES[random.nextInt(RIDDLES.length)];
+            puzzle = new RiddlePuzzle(name, difficulty, riddle[0], riddle[1]);
+        } else {
+            puzzle = new CodePuzzle(name, difficulty, String.format("%04d", random.nextInt(10000)));
+        }
+        room.addContent(puzzle);
+        puzzleCount++;
+        return puzzle;
+    }
+
+    /**
+     * Add the moves from the current walkthrough position to the top-level room
+     * holding the given room (items and puzzles of subrooms can be reached from
+     * there).
+     */
+    private void walkTo(int room) {
+        int target = top[room];
+        ArrayList<Integer> down = new ArrayList<>();
+        int from = walkRoom;
+        int to = target;
+        while (treeDepth[from] > treeDepth[to]) {
+            from = treeParent[from];
+            walkthrough.add("move " + rooms.get(from).getName());
+        }
+        while (treeDepth[to] > treeDepth[from]) {
+            down.add(to);
+            to = treeParent[to];
+        }
+        while (from != to) {
+            from = treeParent[from];
+            walkthrough.add("move " + rooms.get(from).getName());
+            down.add(to);
+            to = treeParent[to];
+        }
+        for (int i = down.size() - 1; i >= 0; i--) {
+            walkthrough.add("move " + rooms.get(down.get(i)).getName());
+        }
+        walkRoom = target;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java WorldGenerator <rooms> [seed] [--depth D] [--branching B] [--locks K]"
+                    + " [--puzzles P] [--walkthrough file]");
+            return;
+        }
+        int rooms = Integer.parseInt(args[0]);
+        int i = 1;
+        long seed = 1;
+        if (i < args.length && !args[i].startsWith("--")) {
+            seed = Long.parseLong(args[i++]);
+        }
+        WorldGenerator generator = new WorldGenerator(seed).rooms(rooms);
+        Path walkthroughFile = null;
+        for (; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth":
+                    generator.depth(Integer.parseInt(args[++i]));
+                    break;
+                case "--branching":
+                    generator.branching(Integer.parseInt(args[++i]));
+                    break;
+                case "--locks":
+                    generator.locks(Integer.parseInt(args[++i]));
+                    break;
+                case "--puzzles":
+                    generator.puzzleDensity(Double.parseDouble(args[++i]));
+                    break;
+                case "--walkthrough":
+                    walkthroughFile = Path.of(args[++i]);
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        long start = System.nanoTime();
+        WorldTemplate world = generator.generate();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Generated %d rooms, %d items, %d puzzles, %d locks in %.3f s (seed %d)%n",
+                world.getRooms().size(), generator.getItemCount(), generator.getPuzzleCount(),
+                generator.getLockCount(), seconds, seed);
+        if (walkthroughFile != null) {
+            ArrayList<String> lines = new ArrayList<>();
+            lines.add("# Walkthrough for: java WorldGenerator " + String.join(" ", args));
+            lines.add("=== generated-" + rooms + "-" + seed);
+            lines.addAll(generator.getWalkthrough());
+            Files.write(walkthroughFile, lines, StandardCharsets.UTF_8);
+            System.out.println("Walkthrough (" + generator.getWalkthrough().size() + " lines) written to "
+                    + walkthroughFile);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WorldLoader builds a WorldTemplate from the binary world form written by
+ * WorldCompiler. Compiled files are memory-mapped and read directly: no text is
+ * parsed at startup, only the string table is decoded.
+ */
+public class WorldLoader {
+
+    /**
+     * Load a world file. Compiled (.worldc) files are memory-mapped; text (.world)
+     * files are compiled in memory first.
+     */
+    public static WorldTemplate load(Path file) throws IOException {
+        if (isCompiled(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+        return load(ByteBuffer.wrap(WorldCompiler.compile(file)));
+    }
+
+    /**
+     * Check whether a file starts with the compiled world magic number.
+     */
+    public static boolean isCompiled(Path file) throws IOException {
+        byte[] head = new byte[4];
+        try (InputStream in = Files.newInputStream(file)) {
+            if (in.readNBytes(head, 0, 4) < 4) {
+                return false;
+            }
+        }
+        return ByteBuffer.wrap(head).getInt() == WorldCompiler.MAGIC;
+    }
+
+    /**
+     * Build a world from its compiled form.
+     */
+    public static WorldTemplate load(ByteBuffer buf) throws IOException {
+        try {
+            return read(buf);
+        } catch (RuntimeException e) {
+            // truncated buffer or an index out of range
+            throw new IOException("corrupt world file: " + e, e);
+        }
+    }
+
+    private static WorldTemplate read(ByteBuffer buf) throws IOException {
+        if (buf.getInt() != WorldCompiler.MAGIC) {
+            throw new IOException("not a compiled world file");
+        }
+        short version = buf.getShort();
+        if (version != WorldCompiler.VERSION) {
+            throw new IOException("unsupported world file version: " + version);
+        }
+
+        String[] strings = new String[buf.getInt()];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int len = buf.getShort() & 0xFFFF;
+            if (scratch.length < len) {
+                scratch = new byte[len];
+            }
+            buf.get(scratch, 0, len);
+            strings[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+
+        int roomCount = buf.getInt();
+        ArrayList<Room> rooms = new ArrayList<>(roomCount);
+        for (int i = 0; i < roomCount; i++) {
+            String name = strings[buf.getInt()];
+            int key = buf.getInt();
+            byte flags = buf.get();
+            Room room = key < 0 ? new Room(name) : new Room(name, strings[key]);
+            if ((flags & WorldCompiler.ROOM_EXIT) != 0) {
+                room.setExit(true);
+            }
+            rooms.add(room);
+        }
+        Room start = rooms.get(buf.getInt());
+
+        Item.ItemType[] types = Item.ItemType.values();
+        Item[] items = new Item[buf.getInt()];
+        for (int i = 0; i < items.length; i++) {
+            String name = strings[buf.getInt()];
+            int value = buf.getInt();
+            items[i] = new Item(name, value, types[buf.get()]);
+        }
+
+        // Puzzles are built by the factory of their kind, which compiles their answers
+        PuzzleTypes puzzleTypes = PuzzleTypes.getDefault();
+        Puzzle[] puzzles = new Puzzle[buf.getInt()];
+        for (int i = 0; i < puzzles.length; i++) {
+            String kind = strings[buf.getInt()];
+            String name = strings[buf.getInt()];
+            int difficulty = buf.getInt();
+            int text = buf.getInt();
+            String[] answers = new String[buf.getInt()];
+            for (int a = 0; a < answers.length; a++) {
+                answers[a] = strings[buf.getInt()];
+            }
+            if (!puzzleTypes.contains(kind)) {
+                throw new IOException("unknown puzzle kind: " + kind);
+            }
+            puzzles[i] = puzzleTypes.create(kind, name, difficulty, text < 0 ? null : strings[text], answers);
+        }
+
+        int contentCount = buf.getInt();
+        for (int i = 0; i < contentCount; i++) {
+            Room room = rooms.get(buf.getInt());
+            byte kind = buf.get();
+            int index = buf.getInt();
+            if (kind == WorldCompiler.CONTENT_ITEM) {
+                room.addContent(items[index]);
+            } else if (kind == WorldCompiler.CONTENT_PUZZLE) {
+                room.addContent(puzzles[index]);
+            } else {
+                room.addContent(rooms.get(index));
+            }
+        }
+
+        int connectionCount = buf.getInt();
+        for (int i = 0; i < connectionCount; i++) {
+            Room from = rooms.get(buf.getInt());
+            from.addConnectedRoom(rooms.get(buf.getInt()));
+        }
+
+        List<String> required = readStrings(buf, strings);
+        int goalCount = buf.getInt();
+        List<Room> goals = new ArrayList<>(goalCount);
+        for (int i = 0; i < goalCount; i++) {
+            goals.add(rooms.get(buf.getInt()));
+        }
+        List<String> hints = readStrings(buf, strings);
+
+        int rewardCount = buf.getInt();
+        List<PuzzleReward> rewards = new ArrayList<>(rewardCount);
+        for (int i = 0; i < rewardCount; i++) {
+            Puzzle puzzle = puzzles[buf.getInt()];
+            byte action = buf.get();
+            int a = buf.getInt();
+            int b = buf.getInt();
+            int c = buf.getInt();
+            int d = buf.getInt();
+            String message = strings[buf.getInt()];
+            if (action == WorldCompiler.REWARD_SPAWN) {
+                rewards.add(PuzzleReward.spawnItem(puzzle, rooms.get(a), strings[b], c, types[d], message));
+            } else if (action == WorldCompiler.REWARD_REVEAL) {
+                rewards.add(PuzzleReward.revealConnection(puzzle, rooms.get(a), rooms.get(b), message));
+            } else if (action == WorldCompiler.REWARD_HINT) {
+                rewards.add(PuzzleReward.hint(puzzle, message));
+            } else {
+                throw new IOException("unknown reward action: " + action);
+            }
+        }
+
+        return new WorldTemplate(rooms, start, required, goals, hints, rewards);
+    }
+
+    private static List<String> readStrings(ByteBuffer buf, String[] strings) {
+        int n = buf.getInt();
+        List<String> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(strings[buf.getInt()]);
+        }
+        return list;
+    }
+}
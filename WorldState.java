@@ -0,0 +1,425 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * WorldState is one session's copy-on-write overlay over a shared, read-only world.
+ * The rooms, items and puzzles of the world are never changed while playing;
+ * instead this class records what the player changed:
+ * - items picked up (removed from their room)
+ * - items spawned by puzzle rewards
+ * - puzzles solved
+ * - doors unlocked
+ * - connections revealed
+ * It also tracks the session's progress towards the win conditions, and keeps
+ * the item and puzzle totals of every room's subtree (see Room) up to date for
+ * this session, so "is this room empty" is answered without a search.
+ * Memory per session therefore grows with the number of changes, not with the
+ * size of the world.
+ */
+public class WorldState {
+    private HashSet<Item> removedItems;
+    private HashMap<Room, ArrayList<Item>> spawnedItems;
+    private HashSet<Puzzle> solvedPuzzles;
+    private HashSet<Room> unlockedRooms;
+    private HashMap<Room, ArrayList<Room>> revealedConnections;
+    private GoalTracker goals;
+    // room -> change of the totals of its subtree in this session (only rooms with changes)
+    private HashMap<Room, int[]> itemCountChanges; // by item type, then the total
+    private HashMap<Room, Integer> solvedCounts;   // puzzles solved in the subtree
+    // Version counters for cached views of this session (see MapRenderer)
+    private HashMap<Room, Integer> roomVersions; // room -> number of changes to its visible contents
+    private int connectionVersion; // number of connections revealed
+    private int mapVersion; // number of changes visible on the map
+
+    public WorldState() {
+        this(WinConditions.NONE);
+    }
+
+    public WorldState(WinConditions conditions) {
+        this.removedItems = new HashSet<>();
+        this.spawnedItems = new HashMap<>();
+        this.solvedPuzzles = new HashSet<>();
+        this.unlockedRooms = new HashSet<>();
+        this.revealedConnections = new HashMap<>();
+        this.goals = new GoalTracker(conditions);
+        this.roomVersions = new HashMap<>();
+        this.itemCountChanges = new HashMap<>();
+        this.solvedCounts = new HashMap<>();
+    }
+
+    public GoalTracker getGoals() {
+        return goals;
+    }
+
+    // ---------------- puzzles ----------------
+
+    public boolean isSolved(Puzzle puzzle) {
+        return solvedPuzzles.contains(puzzle);
+    }
+
+    public void markSolved(Puzzle puzzle) {
+        if (solvedPuzzles.add(puzzle)) {
+            goals.puzzleSolved(puzzle);
+            if (puzzle.getParent() != null) {
+                int depth = 0;
+                for (Room r = puzzle.getParent(); r != null && depth++ < Room.MAX_NESTING; r = r.getParent()) {
+                    solvedCounts.merge(r, 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of puzzles in a room and its subrooms not solved in this session.
+     */
+    public int countUnsolvedPuzzles(Room room) {
+        return room.getSubtreePuzzleCount() - solvedCounts.getOrDefault(room, 0);
+    }
+
+    // ---------------- doors ----------------
+
+    /**
+     * Get the key a room requires in this session (null once it has been unlocked).
+     */
+    public String getRequiredKey(Room room) {
+        if (room.getRequiredKey() == null || unlockedRooms.contains(room)) {
+            return null;
+        }
+        return room.getRequiredKey();
+    }
+
+    public boolean isUnlocked(Room room) {
+        return unlockedRooms.contains(room);
+    }
+
+    public void unlock(Room room) {
+        unlockedRooms.add(room);
+    }
+
+    // ---------------- connections ----------------
+
+    /**
+     * Get the rooms connected to a room: the world's connections followed by the
+     * ones revealed in this session.
+     */
+    public List<Room> getConnectedRooms(Room room) {
+        ArrayList<Room> revealed = revealedConnections.get(room);
+        if (revealed == null) {
+            return room.getConnectedRooms();
+        }
+        ArrayList<Room> all = new ArrayList<>(room.getConnectedRooms());
+        all.addAll(revealed);
+        return all;
+    }
+
+    /**
+     * Get only the connections from a room revealed in this session.
+     */
+    public List<Room> getRevealedConnections(Room room) {
+        ArrayList<Room> revealed = revealedConnections.get(room);
+        return revealed == null ? Collections.emptyList() : revealed;
+    }
+
+    /**
+     * Reveal a connection in this session.
+     * @return false if the rooms were already connected
+     */
+    public boolean addConnection(Room from, Room to) {
+        if (getConnectedRooms(from).contains(to)) {
+            return false;
+        }
+        revealedConnections.computeIfAbsent(from, r -> new ArrayList<>()).add(to);
+        connectionVersion++;
+        mapVersion++;
+        return true;
+    }
+
+    // ---------------- items ----------------
+
+    public boolean isRemoved(Item item) {
+        return removedItems.contains(item);
+    }
+
+    /**
+     * Place a new item in a room for this session only (e.g. a key revealed by a puzzle).
+     */
+    public void addItem(Room room, Item item) {
+        item.setParent(room);
+        spawnedItems.computeIfAbsent(room, r -> new ArrayList<>()).add(item);
+        countItem(room, item, 1);
+        roomChanged(room);
+    }
+
+    /**
+     * Get the items spawned in a room in this session.
+     */
+    public List<Item> getSpawnedItems(Room room) {
+        ArrayList<Item> spawned = spawnedItems.get(room);
+        return spawned == null ? Collections.emptyList() : spawned;
+    }
+
+    /**
+     * Find an item in a room or its subrooms, as this session sees them. In a
+     * world's rooms the name is resolved to its symbol once and the search
+     * compares symbols.
+     */
+    public Item findItem(Room room, String itemName) {
+        GameEvents.WorldLookup event = new GameEvents.WorldLookup();
+        event.begin();
+        Item found;
+        NameTable names = room.getNames();
+        if (names == null) {
+            found = findItemByKey(room, itemName.toLowerCase(), -1, event.counting());
+        } else {
+            int symbol = names.lookup(itemName);
+            found = symbol < 0 ? null : findItemByKey(room, null, symbol, event.counting());
+        }
+        event.commit("item", itemName, room, found != null);
+        return found;
+    }
+
+    /**
+     * Search by name symbol when there is one (symbol >= 0), otherwise by
+     * lower-case name (rooms that are not part of a world).
+     */
+    private Item findItemByKey(Room room, String key, int symbol, GameEvents.WorldLookup event) {
+        if (event != null) {
+            event.roomsVisited++;
+        }
+        // World items of this room first, then items spawned here
+        Item found = symbol >= 0 ? room.findOwnItem(symbol) : room.findOwnItemByKey(key);
+        if (found != null && removedItems.contains(found)) {
+            found = null;
+            // another item with the same name may still be here
+            for (Item item : room.getItems()) {
+                if (!removedItems.contains(item) && hasName(item, key, symbol)) {
+                    found = item;
+                    break;
+                }
+            }
+        }
+        if (found == null) {
+            for (Item item : getSpawnedItems(room)) {
+                if (hasName(item, key, symbol)) {
+                    found = item;
+                    break;
+                }
+            }
+        }
+        if (found != null) {
+            return found;
+        }
+        for (Room sub : room.getSubrooms()) {
+            if (!hasAnyItem(sub)) {
+                continue; // nothing to find in there
+            }
+            found = findItemByKey(sub, key, symbol, event);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * All items in a room and its subrooms, as this session sees them: the
+     * world's items not taken yet and the items spawned here, room by room.
+     */
+    public List<Item> getVisibleItems(Room room) {
+        ArrayList<Item> visible = new ArrayList<>();
+        collectItems(room, visible);
+        return visible;
+    }
+
+    private void collectItems(Room room, List<Item> visible) {
+        for (Item item : room.getItems()) {
+            if (!removedItems.contains(item)) {
+                visible.add(item);
+            }
+        }
+        visible.addAll(getSpawnedItems(room));
+        for (Room sub : room.getSubrooms()) {
+            if (hasAnyItem(sub)) {
+                collectItems(sub, visible);
+            }
+        }
+    }
+
+    private static boolean hasName(Item item, String key, int symbol) {
+        return symbol >= 0 ? item.getSymbol() == symbol : item.getName().equalsIgnoreCase(key);
+    }
+
+    /**
+     * Remove an item from a room or its subrooms in this session.
+     * @return true if the item was there and has been removed
+     */
+    public boolean removeItem(Room room, Item item) {
+        Room owner = item.getParent();
+        if (owner == null || !owner.isWithin(room)) {
+            return false;
+        }
+        ArrayList<Item> spawned = spawnedItems.get(owner);
+        if (spawned != null && spawned.remove(item)) {
+            item.setParent(null);
+            if (spawned.isEmpty()) {
+                spawnedItems.remove(owner);
+            }
+            countItem(owner, item, -1);
+            roomChanged(owner);
+            return true;
+        }
+        // a world item: its parent is the (shared) room that holds it
+        if (!removedItems.add(item)) {
+            return false;
+        }
+        countItem(owner, item, -1);
+        roomChanged(owner);
+        return true;
+    }
+
+    private void roomChanged(Room room) {
+        roomVersions.merge(room, 1, Integer::sum);
+        mapVersion++;
+    }
+
+    // ---------------- versions ----------------
+
+    /**
+     * Number of changes so far that show on the map (items and connections).
+     */
+    public int getMapVersion() {
+        return mapVersion;
+    }
+
+    /**
+     * Number of connections revealed so far.
+     */
+    public int getConnectionVersion() {
+        return connectionVersion;
+    }
+
+    /**
+     * Version of every room whose items changed in this session (rooms not listed
+     * are as the world defines them).
+     */
+    Map<Room, Integer> getRoomVersions() {
+        return Collections.unmodifiableMap(roomVersions);
+    }
+
+    /**
+     * Check if a room (including subrooms) still holds any item in this session.
+     */
+    public boolean hasAnyItem(Room room) {
+        return countItems(room) > 0;
+    }
+
+    /**
+     * Number of items in a room and its subrooms, as this session sees them.
+     */
+    public int countItems(Room room) {
+        int[] change = itemCountChanges.get(room);
+        return room.getSubtreeItemCount() + (change == null ? 0 : change[change.length - 1]);
+    }
+
+    public int countItems(Room room, Item.ItemType type) {
+        int[] change = itemCountChanges.get(room);
+        return room.getSubtreeItemCount(type) + (change == null ? 0 : change[type.ordinal()]);
+    }
+
+    /**
+     * Add an item to (or, with -1, take it from) the totals of its room and the
+     * rooms above it.
+     */
+    private void countItem(Room room, Item item, int delta) {
+        int depth = 0;
+        for (Room r = room; r != null && depth++ < Room.MAX_NESTING; r = r.getParent()) {
+            int[] change = itemCountChanges.computeIfAbsent(r, k -> new int[Item.ItemType.values().length + 1]);
+            change[item.getItemType().ordinal()] += delta;
+            change[change.length - 1] += delta;
+        }
+    }
+
+    // ---------------- read access for snapshots ----------------
+
+    Set<Item> getRemovedItems() {
+        return Collections.unmodifiableSet(removedItems);
+    }
+
+    Map<Room, ArrayList<Item>> getAllSpawnedItems() {
+        return Collections.unmodifiableMap(spawnedItems);
+    }
+
+    Set<Puzzle> getSolvedPuzzles() {
+        return Collections.unmodifiableSet(solvedPuzzles);
+    }
+
+    Set<Room> getUnlockedRooms() {
+        return Collections.unmodifiableSet(unlockedRooms);
+    }
+
+    Map<Room, ArrayList<Room>> getRevealedConnections() {
+        return Collections.unmodifiableMap(revealedConnections);
+    }
+
+    /**
+     * Hash of everything recorded in this overlay. Independent of set iteration
+     * order, so two sessions that made the same changes get the same value.
+     */
+    public long fingerprint() {
+        long h = 0;
+        for (Item item : removedItems) {
+            h += mix(1, itemHash(item));
+        }
+        for (Puzzle puzzle : solvedPuzzles) {
+            h += mix(2, puzzle.getId());
+        }
+        for (Room room : unlockedRooms) {
+            h += mix(3, room.getId());
+        }
+        for (ArrayList<Item> list : spawnedItems.values()) {
+            for (Item item : list) {
+                h += mix(4, itemHash(item));
+            }
+        }
+        for (Room from : revealedConnections.keySet()) {
+            for (Room to : revealedConnections.get(from)) {
+                h += mix(5, 31L * from.getId() + to.getId());
+            }
+        }
+        return h;
+    }
+
+    private static long itemHash(Item item) {
+        int room = item.getParent() == null ? -1 : item.getParent().getId();
+        return 31L * room + item.getName().hashCode();
+    }
+
+    /**
+     * Spread a tagged value over 64 bits (SplitMix64 finalizer).
+     */
+    static long mix(long tag, long value) {
+        long z = tag * 0x9E3779B97F4A7C15L + value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Number of changes recorded in this overlay.
+     */
+    public int size() {
+        int n = removedItems.size() + solvedPuzzles.size() + unlockedRooms.size();
+        for (ArrayList<Item> list : spawnedItems.values()) {
+            n += list.size();
+        }
+        for (ArrayList<Room> list : revealedConnections.values()) {
+            n += list.size();
+        }
+        return n;
+    }
+}
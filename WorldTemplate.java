@@ -0,0 +1,236 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * WorldTemplate is the static part of a world: rooms, items, puzzles, the
+ * win conditions, the starting hints and the puzzle rewards. It is
+ * loaded once (see WorldLoader), frozen and
+ * then shared (read-only) by every session that plays it; what a session
+ * changes is kept in its own WorldState.
+ */
+public class WorldTemplate {
+    public static final String DEFAULT_WORLD_FILE = "worlds/default.world";
+    private static final String DEFAULT_WORLD_RESOURCE = "/" + DEFAULT_WORLD_FILE;
+    private static WorldTemplate defaultWorld; // loaded on first use
+
+    private final RoomRegistry rooms;
+    private final NameTable names;
+    private final Room entrance;
+    private final WinConditions winConditions;
+    private final List<String> hints;
+    private final List<PuzzleReward> rewards;
+    private final ArrayList<Puzzle> puzzles; // index = puzzle id
+    private final RewardTable rewardTable;
+    private final ArrayList<String> hintTexts;       // world hints, then hint rewards; index = hint id
+    private final HashMap<String, Integer> hintIds;  // hint text -> first hint id with that text
+    private volatile RoomGraph graph;                // built on first use
+    private volatile FuzzyIndex fuzzyIndex;          // built on the first name that matches nothing
+    private volatile MapRenderer mapRenderer;        // built on the first map command
+
+    /**
+     * @param requiredItems items the player must carry to win
+     * @param goalRooms     rooms in which at least one puzzle must be solved to win
+     */
+    public WorldTemplate(List<Room> map, Room entrance, List<String> requiredItems, List<Room> goalRooms,
+            List<String> hints, List<PuzzleReward> rewards) {
+        this.rooms = new RoomRegistry(map);
+        this.entrance = entrance;
+        this.winConditions = new WinConditions(requiredItems, goalRooms);
+        this.hints = Collections.unmodifiableList(new ArrayList<>(hints));
+        this.rewards = Collections.unmodifiableList(new ArrayList<>(rewards));
+        // Number the puzzles in room order so rewards can be looked up by id, and
+        // intern every name of the world
+        this.names = new NameTable();
+        this.puzzles = new ArrayList<>();
+        for (Room r : map) {
+            for (Puzzle p : r.getPuzzles()) {
+                p.setId(puzzles.size());
+                puzzles.add(p);
+            }
+            r.freeze(names);
+        }
+        // Subrooms missing from the map (a broken world, see WorldValidator) are searched too
+        ArrayDeque<Room> pending = new ArrayDeque<>(map);
+        while (!pending.isEmpty()) {
+            for (Room sub : pending.pop().getSubrooms()) {
+                if (!sub.isFrozen()) {
+                    sub.freeze(names);
+                    pending.push(sub);
+                }
+            }
+        }
+        this.rewardTable = new RewardTable(puzzles.size(), rewards);
+        winConditions.indexPuzzles(puzzles.size());
+        // Number the rewards and hints so session snapshots can refer to them
+        this.hintTexts = new ArrayList<>(hints);
+        for (int i = 0; i < this.rewards.size(); i++) {
+            PuzzleReward reward = this.rewards.get(i);
+            reward.setId(i);
+            reward.setItemSymbol(names.intern(reward.getItemName()));
+            if (reward.getType() == PuzzleReward.Type.HINT) {
+                hintTexts.add(reward.getText());
+            }
+        }
+        winConditions.indexSymbols(names);
+        this.hintIds = new HashMap<>();
+        for (int i = 0; i < hintTexts.size(); i++) {
+            hintIds.putIfAbsent(hintTexts.get(i), i);
+        }
+    }
+
+    /**
+     * Load a world from a .world (text) or .worldc (compiled) file.
+     */
+    public static WorldTemplate load(Path file) throws IOException {
+        return WorldLoader.load(file);
+    }
+
+    /**
+     * Get the shared built-in escape room world.
+     */
+    public static synchronized WorldTemplate getDefault() {
+        if (defaultWorld == null) {
+            defaultWorld = loadDefault();
+        }
+        return defaultWorld;
+    }
+
+    public RoomRegistry getRooms() {
+        return rooms;
+    }
+
+    /**
+     * The interned names of this world's rooms, items, puzzles and keys.
+     */
+    public NameTable getNames() {
+        return names;
+    }
+
+    public Room getEntrance() {
+        return entrance;
+    }
+
+    public List<String> getRequiredItems() {
+        return winConditions.getRequiredItems();
+    }
+
+    public WinConditions getWinConditions() {
+        return winConditions;
+    }
+
+    public List<String> getHints() {
+        return hints;
+    }
+
+    public List<PuzzleReward> getRewards() {
+        return rewards;
+    }
+
+    public RewardTable getRewardTable() {
+        return rewardTable;
+    }
+
+    /**
+     * Get the id of a hint text (a starting hint or a hint reward), or -1.
+     */
+    public int hintId(String hint) {
+        Integer id = hintIds.get(hint);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get a hint text by id, or null if the id is unknown.
+     */
+    public String getHint(int id) {
+        return id < 0 || id >= hintTexts.size() ? null : hintTexts.get(id);
+    }
+
+    /**
+     * Get the room graph of this world (built on first use).
+     */
+    public RoomGraph getGraph() {
+        RoomGraph g = graph;
+        if (g == null) {
+            synchronized (this) {
+                g = graph;
+                if (g == null) {
+                    g = new RoomGraph(rooms);
+                    graph = g;
+                }
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Get the fuzzy index over the names of this world (built on first use).
+     */
+    public FuzzyIndex getFuzzyIndex() {
+        FuzzyIndex index = fuzzyIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = fuzzyIndex;
+                if (index == null) {
+                    index = new FuzzyIndex(names);
+                    fuzzyIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get the map of this world as rendered for all sessions (built on first use).
+     */
+    public MapRenderer getMapRenderer() {
+        MapRenderer renderer = mapRenderer;
+        if (renderer == null) {
+            synchronized (this) {
+                renderer = mapRenderer;
+                if (renderer == null) {
+                    renderer = new MapRenderer(getGraph());
+                    mapRenderer = renderer;
+                }
+            }
+        }
+        return renderer;
+    }
+
+    /**
+     * All puzzles, indexed by id. Do not modify.
+     */
+    public ArrayList<Puzzle> getPuzzles() {
+        return puzzles;
+    }
+
+    /**
+     * Load the built-in world from worlds/default.world (looked up on the
+     * classpath first, then relative to the working directory).
+     */
+    private static WorldTemplate loadDefault() {
+        try (InputStream in = WorldTemplate.class.getResourceAsStream(DEFAULT_WORLD_RESOURCE)) {
+            if (in != null) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                return WorldLoader.load(ByteBuffer.wrap(WorldCompiler.compile(reader)));
+            }
+            Path file = Path.of(DEFAULT_WORLD_FILE);
+            if (Files.exists(file)) {
+                return WorldLoader.load(file);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load the built-in world: " + e.getMessage(), e);
+        }
+        throw new IllegalStateException("Cannot find the built-in world " + DEFAULT_WORLD_FILE);
+    }
+}
@@ -0,0 +1,708 @@
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * WorldValidator checks that a world is consistent and can be won before it is
+ * played. The checks:
+ * - rooms: connections and subrooms that point outside the world, subrooms
+ *   listed under two parents, doors whose key no item or puzzle ever produces,
+ *   goal rooms without puzzles, rooms that share a name
+ * - subtrees: subroom chains that loop back on themselves or are nested deeper
+ *   than the game follows (Room.MAX_NESTING)
+ * - rewards: items spawned into (or connections revealed from/to) rooms that
+ *   are not in the world; the game would silently put such items straight into
+ *   the inventory
+ * - reachability: rooms that cannot be reached from the entrance at all, and
+ *   rooms that can only be reached through a door whose key cannot be had first
+ * - solvability: with every door the player can open opened (keys reused), the
+ *   exit, the required items and the goal rooms must all be in reach. This is a
+ *   quick necessary condition; solve(true) also runs EscapeSolver for an exact
+ *   answer when no other error was found (slower on large worlds)
+ * Room checks run in parallel over ranges of room ids, subtree checks in
+ * parallel over the top-level rooms, and both reachability passes alongside
+ * them, all on the common fork-join pool. The report lists issues in a fixed
+ * order, so it is the same on every run.
+ *
+ * Usage: java WorldValidator [--world file | --generate rooms seed] [--solve] [--limit N]
+ *   (exit status 1 if the world has errors)
+ */
+public class WorldValidator {
+    private static final int ROOMS_PER_TASK = 4096;
+
+    public enum Severity {
+        ERROR, WARNING
+    }
+
+    public enum Check {
+        UNKNOWN_ROOM,         // a connection or subroom leads to a room that is not in the world
+        CONTAINMENT_MISMATCH, // a room is listed as subroom of a room that is not its parent
+        CONTAINMENT_CYCLE,    // a room is (indirectly) its own subroom
+        NESTING_TOO_DEEP,     // subrooms nested deeper than the game follows (Room.MAX_NESTING)
+        KEY_NEVER_PRODUCED,   // a door needs a key that no item or puzzle provides
+        REQUIRED_ITEM_MISSING,
+        GOAL_WITHOUT_PUZZLE,
+        REWARD_ROOM_MISSING,  // a puzzle reward refers to a room that is not in the world
+        DUPLICATE_ROOM_NAME,  // "move <name>" always goes to the first room with the name
+        UNREACHABLE_ROOM,     // no way in from the entrance, even with every door open
+        LOCKED_OUT_ROOM,      // only reachable through a door whose key cannot be had first
+        NOT_SOLVABLE
+    }
+
+    /**
+     * One problem found in a world.
+     */
+    public static class Issue {
+        private final Severity severity;
+        private final Check check;
+        private final String subject; // room or puzzle name
+        private final String message;
+
+        Issue(Severity severity, Check check, String subject, String message) {
+            this.severity = severity;
+            this.check = check;
+            this.subject = subject;
+            this.message = message;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+
+        public Check getCheck() {
+            return check;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return severity + " " + check + " [" + subject + "] " + message;
+        }
+    }
+
+    /**
+     * The result of validating a world.
+     */
+    public static class Report {
+        private final List<Issue> issues;
+        private final int rooms;
+        private final int reachable;         // rooms reachable with every door open
+        private final int reachableWithKeys; // rooms reachable opening only doors whose key can be had
+        private final int maxNesting;        // deepest subroom chain
+        private final int optimalTurns;      // from EscapeSolver, -1 if not run or unsolvable
+        private final long millis;
+
+        Report(List<Issue> issues, int rooms, int reachable, int reachableWithKeys, int maxNesting,
+                int optimalTurns, long millis) {
+            this.issues = Collections.unmodifiableList(issues);
+            this.rooms = rooms;
+            this.reachable = reachable;
+            this.reachableWithKeys = reachableWithKeys;
+            this.maxNesting = maxNesting;
+            this.optimalTurns = optimalTurns;
+            this.millis = millis;
+        }
+
+        public List<Issue> getIssues() {
+            return issues;
+        }
+
+        /**
+         * True if there are no errors (warnings are allowed).
+         */
+        public boolean isValid() {
+            return count(Severity.ERROR) == 0;
+        }
+
+        public int count(Severity severity) {
+            int n = 0;
+            for (Issue issue : issues) {
+                if (issue.getSeverity() == severity) {
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        public List<Issue> getIssues(Check check) {
+            List<Issue> found = new ArrayList<>();
+            for (Issue issue : issues) {
+                if (issue.getCheck() == check) {
+                    found.add(issue);
+                }
+            }
+            return found;
+        }
+
+        public int getRoomCount() {
+            return rooms;
+        }
+
+        public int getReachableCount() {
+            return reachable;
+        }
+
+        public int getReachableWithKeysCount() {
+            return reachableWithKeys;
+        }
+
+        public int getMaxNesting() {
+            return maxNesting;
+        }
+
+        public int getOptimalTurns() {
+            return optimalTurns;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * Print a summary and at most `limit` issues of each check.
+         */
+        public void print(PrintStream out, int limit) {
+            out.printf("%d rooms, %d reachable, %d reachable with keys, subrooms nested %d deep (%d ms)%n", rooms,
+                    reachable, reachableWithKeys, maxNesting, millis);
+            if (optimalTurns >= 0) {
+                out.println("Shortest escape: " + optimalTurns + " turns");
+            }
+            EnumMap<Check, Integer> counts = new EnumMap<>(Check.class);
+            for (Issue issue : issues) {
+                int n = counts.merge(issue.getCheck(), 1, Integer::sum);
+                if (n <= limit) {
+                    out.println(issue);
+                }
+            }
+            counts.forEach((check, n) -> {
+                if (n > limit) {
+                    out.println("... " + (n - limit) + " more " + check);
+                }
+            });
+            out.println(isValid() ? "OK: " + count(Severity.WARNING) + " warnings"
+                    : "INVALID: " + count(Severity.ERROR) + " errors, " + count(Severity.WARNING) + " warnings");
+        }
+    }
+
+    private final WorldTemplate world;
+    private final RoomRegistry registry;
+    private final ArrayList<Room> rooms;
+    private boolean solve;
+
+    // shared, read-only indexes built before the parallel checks
+    private HashSet<String> keyNames;      // lower-case names of every key item and spawned key
+    private HashSet<String> itemNames;     // lower-case names of every item and spawned item
+    private HashMap<Room, List<PuzzleReward>> revealsFrom;
+
+    public WorldValidator(WorldTemplate world) {
+        this.world = world;
+        this.registry = world.getRooms();
+        this.rooms = registry.getRooms();
+    }
+
+    /**
+     * Also search for the shortest escape with EscapeSolver.
+     * @return this, for chaining
+     */
+    public WorldValidator solve(boolean solve) {
+        this.solve = solve;
+        return this;
+    }
+
+    public Report validate() {
+        long start = System.nanoTime();
+        List<Issue> issues = new ArrayList<>();
+        indexRewards(issues);
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ForkJoinTask<List<Issue>> roomChecks = pool.submit(new RoomTask(0, rooms.size()));
+        ForkJoinTask<Containment> containment = pool.submit(ForkJoinTask.adapt(this::checkContainment));
+        ForkJoinTask<boolean[]> reachable = pool.submit(ForkJoinTask.adapt(this::reachableIgnoringLocks));
+        ForkJoinTask<KeyReach> keyReach = pool.submit(ForkJoinTask.adapt(this::reachableWithKeys));
+
+        issues.addAll(roomChecks.join());
+        Containment nesting = containment.join();
+        issues.addAll(nesting.issues);
+        boolean[] open = reachable.join();
+        KeyReach withKeys = keyReach.join();
+        int reachableCount = 0;
+        int withKeysCount = 0;
+        for (Room room : rooms) {
+            int id = room.getId();
+            if (!open[id]) {
+                issues.add(new Issue(Severity.WARNING, Check.UNREACHABLE_ROOM, room.getName(),
+                        "cannot be reached from " + world.getEntrance().getName()));
+            } else {
+                reachableCount++;
+                if (!withKeys.visited[id]) {
+                    issues.add(new Issue(Severity.WARNING, Check.LOCKED_OUT_ROOM, room.getName(),
+                            "only reachable through a door whose key cannot be obtained first"));
+                }
+            }
+            if (withKeys.visited[id]) {
+                withKeysCount++;
+            }
+        }
+        withKeys.checkWin(issues);
+
+        int optimalTurns = -1;
+        if (solve && !hasErrors(issues)) { // the solver expects a consistent world
+            EscapeSolver.Solution solution = new EscapeSolver(world).solve();
+            if (solution.isSolvable()) {
+                optimalTurns = solution.getTurns();
+            } else {
+                issues.add(new Issue(Severity.ERROR, Check.NOT_SOLVABLE, world.getEntrance().getName(),
+                        "EscapeSolver found no way out (" + solution.getStatesExplored() + " states)"));
+            }
+        }
+        return new Report(issues, rooms.size(), reachableCount, withKeysCount, nesting.maxDepth, optimalTurns,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static boolean hasErrors(List<Issue> issues) {
+        for (Issue issue : issues) {
+            if (issue.getSeverity() == Severity.ERROR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------------- world-wide checks ----------------
+
+    /**
+     * Check the puzzle rewards and the win conditions, and collect the key and
+     * item names the room checks need.
+     */
+    private void indexRewards(List<Issue> issues) {
+        keyNames = new HashSet<>();
+        itemNames = new HashSet<>();
+        revealsFrom = new HashMap<>();
+        for (Room room : rooms) {
+            for (Item item : room.getItems()) {
+                addItemName(item.getName(), item.getItemType());
+            }
+        }
+        for (PuzzleReward reward : world.getRewards()) {
+            String puzzle = reward.getPuzzle().getName();
+            switch (reward.getType()) {
+                case SPAWN_ITEM:
+                    addItemName(reward.getItemName(), reward.getItemType());
+                    if (!registry.contains(reward.getRoom())) {
+                        issues.add(new Issue(Severity.ERROR, Check.REWARD_ROOM_MISSING, puzzle, "spawns "
+                                + reward.getItemName() + " into " + describe(reward.getRoom())
+                                + ", so it would go straight into the inventory"));
+                    }
+                    break;
+                case REVEAL_CONNECTION:
+                    if (!registry.contains(reward.getRoom()) || !registry.contains(reward.getTarget())) {
+                        issues.add(new Issue(Severity.ERROR, Check.REWARD_ROOM_MISSING, puzzle, "reveals a path from "
+                                + describe(reward.getRoom()) + " to " + describe(reward.getTarget())));
+                    } else {
+                        revealsFrom.computeIfAbsent(reward.getRoom(), r -> new ArrayList<>()).add(reward);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        for (String name : world.getRequiredItems()) {
+            if (!itemNames.contains(name.toLowerCase())) {
+                issues.add(new Issue(Severity.ERROR, Check.REQUIRED_ITEM_MISSING, name,
+                        "is needed to win but is in no room and no puzzle spawns it"));
+            }
+        }
+        for (Room goal : world.getWinConditions().getGoalRooms()) {
+            if (goal.getPuzzles().isEmpty()) {
+                issues.add(new Issue(Severity.ERROR, Check.GOAL_WITHOUT_PUZZLE, goal.getName(),
+                        "is a goal room but has no puzzle to solve"));
+            }
+        }
+    }
+
+    private void addItemName(String name, Item.ItemType type) {
+        itemNames.add(name.toLowerCase());
+        if (type == Item.ItemType.KEY) {
+            keyNames.add(name.toLowerCase());
+        }
+    }
+
+    private String describe(Room room) {
+        return room == null ? "a room that does not exist" : "room " + room.getName() + ", which is not in the world";
+    }
+
+    // ---------------- room checks ----------------
+
+    /**
+     * Checks of one range of room ids, split in halves until small enough.
+     */
+    @SuppressWarnings("serial") // never serialized, only run in the pool
+    private final class RoomTask extends RecursiveTask<List<Issue>> {
+        private final int from;
+        private final int to;
+
+        RoomTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Issue> compute() {
+            if (to - from <= ROOMS_PER_TASK) {
+                List<Issue> issues = new ArrayList<>();
+                for (int id = from; id < to; id++) {
+                    checkRoom(rooms.get(id), issues);
+                }
+                return issues;
+            }
+            int mid = (from + to) >>> 1;
+            RoomTask right = new RoomTask(mid, to);
+            right.fork();
+            List<Issue> issues = new RoomTask(from, mid).compute();
+            issues.addAll(right.join());
+            return issues;
+        }
+    }
+
+    private void checkRoom(Room room, List<Issue> issues) {
+        for (Room to : room.getConnectedRooms()) {
+            if (!registry.contains(to)) {
+                issues.add(new Issue(Severity.ERROR, Check.UNKNOWN_ROOM, room.getName(),
+                        "connects to " + describe(to)));
+            }
+        }
+        for (Room sub : room.getSubrooms()) {
+            if (!registry.contains(sub)) {
+                issues.add(new Issue(Severity.ERROR, Check.UNKNOWN_ROOM, room.getName(),
+                        "has subroom " + describe(sub)));
+            } else if (sub.getParent() != room) {
+                issues.add(new Issue(Severity.ERROR, Check.CONTAINMENT_MISMATCH, room.getName(),
+                        "lists " + sub.getName() + " as a subroom, but it belongs to "
+                                + (sub.getParent() == null ? "no room" : sub.getParent().getName())));
+            }
+        }
+        String key = room.getRequiredKey();
+        if (key != null && !keyNames.contains(key.toLowerCase())) {
+            issues.add(new Issue(Severity.ERROR, Check.KEY_NEVER_PRODUCED, room.getName(),
+                    "needs " + key + ", but no room holds it and no puzzle spawns it"));
+        }
+        Room first = registry.findTolerant(room.getName());
+        if (first != room) {
+            issues.add(new Issue(Severity.WARNING, Check.DUPLICATE_ROOM_NAME, room.getName(),
+                    "'move " + room.getName() + "' goes to room #" + first.getId() + " instead"));
+        }
+    }
+
+    // ---------------- subtree checks ----------------
+
+    private static final class Containment {
+        final List<Issue> issues = new ArrayList<>();
+        int maxDepth;
+    }
+
+    /**
+     * Walk the subroom tree under every top-level room in parallel. Every room
+     * has one parent, so a room no walk reaches is part of (or under) a loop of
+     * subrooms.
+     */
+    private Containment checkContainment() {
+        boolean[] seen = new boolean[rooms.size()];
+        List<Room> roots = new ArrayList<>();
+        for (Room room : rooms) {
+            if (room.getParent() == null) {
+                roots.add(room);
+            }
+        }
+        Containment result = new Containment();
+        result.maxDepth = new SubtreeTask(roots, 0, roots.size(), seen).invoke();
+        for (Room room : rooms) {
+            if (!seen[room.getId()]) {
+                result.issues.add(new Issue(Severity.ERROR, Check.CONTAINMENT_CYCLE, room.getName(),
+                        "is inside a loop of subrooms (" + room.getName() + " is in "
+                                + room.getParent().getName() + ")"));
+            }
+        }
+        if (result.maxDepth >= Room.MAX_NESTING) {
+            result.issues.add(new Issue(Severity.ERROR, Check.NESTING_TOO_DEEP, world.getEntrance().getName(),
+                    "subrooms are nested " + result.maxDepth + " deep, the game follows at most "
+                            + Room.MAX_NESTING + " levels"));
+        }
+        return result;
+    }
+
+    /**
+     * Marks the subtrees of a range of top-level rooms; returns their deepest
+     * nesting. Each room is only followed from its own parent, so every slot of
+     * `seen` is written by one task.
+     */
+    @SuppressWarnings("serial") // never serialized, only run in the pool
+    private final class SubtreeTask extends RecursiveTask<Integer> {
+        private final List<Room> roots;
+        private final int from;
+        private final int to;
+        private final boolean[] seen;
+
+        SubtreeTask(List<Room> roots, int from, int to, boolean[] seen) {
+            this.roots = roots;
+            this.from = from;
+            this.to = to;
+            this.seen = seen;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= ROOMS_PER_TASK / 16) {
+                int maxDepth = 0;
+                ArrayDeque<Room> stack = new ArrayDeque<>();
+                ArrayDeque<Integer> depths = new ArrayDeque<>();
+                for (int i = from; i < to; i++) {
+                    stack.push(roots.get(i));
+                    depths.push(0);
+                    while (!stack.isEmpty()) {
+                        Room room = stack.pop();
+                        int depth = depths.pop();
+                        seen[room.getId()] = true;
+                        maxDepth = Math.max(maxDepth, depth);
+                        for (Room sub : room.getSubrooms()) {
+                            if (sub.getParent() == room && registry.contains(sub)) {
+                                stack.push(sub);
+                                depths.push(depth + 1);
+                            }
+                        }
+                    }
+                }
+                return maxDepth;
+            }
+            int mid = (from + to) >>> 1;
+            SubtreeTask right = new SubtreeTask(roots, mid, to, seen);
+            right.fork();
+            int left = new SubtreeTask(roots, from, mid, seen).compute();
+            return Math.max(left, right.join());
+        }
+    }
+
+    // ---------------- reachability ----------------
+
+    /**
+     * Rooms reachable from the entrance through connections, subrooms and
+     * revealed paths, ignoring locked doors.
+     */
+    private boolean[] reachableIgnoringLocks() {
+        boolean[] visited = new boolean[rooms.size()];
+        ArrayDeque<Room> queue = new ArrayDeque<>();
+        visited[world.getEntrance().getId()] = true;
+        queue.add(world.getEntrance());
+        while (!queue.isEmpty()) {
+            Room room = queue.poll();
+            for (Room next : room.getConnectedRooms()) {
+                visit(next, visited, queue);
+            }
+            for (Room sub : room.getSubrooms()) {
+                visit(sub, visited, queue);
+            }
+            for (PuzzleReward reveal : revealsFrom.getOrDefault(room, Collections.emptyList())) {
+                visit(reveal.getTarget(), visited, queue);
+            }
+        }
+        return visited;
+    }
+
+    private void visit(Room room, boolean[] visited, ArrayDeque<Room> queue) {
+        if (registry.contains(room) && !visited[room.getId()]) {
+            visited[room.getId()] = true;
+            queue.add(room);
+        }
+    }
+
+    private KeyReach reachableWithKeys() {
+        KeyReach reach = new KeyReach();
+        reach.run();
+        return reach;
+    }
+
+    /**
+     * Explores the world the way a player could, opening a door only once its
+     * key has been found. Keys are treated as reusable and every reachable
+     * puzzle as solved, so this over-approximates what a player can do: if the
+     * exit is out of reach here, the world cannot be won.
+     */
+    private final class KeyReach {
+        final boolean[] visited = new boolean[rooms.size()];    // entered
+        final boolean[] accessible = new boolean[rooms.size()]; // contents can be taken (room or an ancestor entered)
+        final HashSet<String> held = new HashSet<>();           // lower-case item names
+        final HashMap<String, List<Room>> waiting = new HashMap<>(); // key name -> doors waiting for it
+        final HashMap<Room, List<PuzzleReward>> spawnsInto = new HashMap<>(); // spawned items not yet in reach
+        final HashSet<Puzzle> solved = new HashSet<>();
+        final ArrayDeque<Room> queue = new ArrayDeque<>();
+
+        void run() {
+            enter(world.getEntrance());
+            while (!queue.isEmpty()) {
+                Room room = queue.poll();
+                open(room);
+                for (Room next : room.getConnectedRooms()) {
+                    enter(next);
+                }
+                for (Room sub : room.getSubrooms()) {
+                    enter(sub);
+                }
+                for (PuzzleReward reveal : revealsFrom.getOrDefault(room, Collections.emptyList())) {
+                    if (solved.contains(reveal.getPuzzle())) {
+                        enter(reveal.getTarget());
+                    }
+                }
+            }
+        }
+
+        void enter(Room room) {
+            if (!registry.contains(room) || visited[room.getId()]) {
+                return;
+            }
+            String key = room.getRequiredKey();
+            if (key != null && !held.contains(key.toLowerCase())) {
+                waiting.computeIfAbsent(key.toLowerCase(), k -> new ArrayList<>()).add(room);
+                return;
+            }
+            visited[room.getId()] = true;
+            queue.add(room);
+        }
+
+        /**
+         * Take everything in a room and its subrooms (the game finds items and
+         * puzzles in subrooms too).
+         */
+        void open(Room top) {
+            ArrayDeque<Room> stack = new ArrayDeque<>();
+            stack.push(top);
+            while (!stack.isEmpty()) {
+                Room room = stack.pop();
+                if (accessible[room.getId()]) {
+                    continue;
+                }
+                accessible[room.getId()] = true;
+                for (Item item : room.getItems()) {
+                    take(item.getName());
+                }
+                List<PuzzleReward> spawned = spawnsInto.remove(room);
+                if (spawned != null) {
+                    for (PuzzleReward reward : spawned) {
+                        take(reward.getItemName());
+                    }
+                }
+                for (Puzzle puzzle : room.getPuzzles()) {
+                    solve(puzzle);
+                }
+                for (Room sub : room.getSubrooms()) {
+                    if (registry.contains(sub) && sub.getParent() == room) {
+                        stack.push(sub);
+                    }
+                }
+            }
+        }
+
+        void solve(Puzzle puzzle) {
+            if (!solved.add(puzzle)) {
+                return;
+            }
+            for (PuzzleReward reward : world.getRewardTable().get(puzzle)) {
+                if (reward.getType() == PuzzleReward.Type.SPAWN_ITEM) {
+                    Room room = reward.getRoom();
+                    if (!registry.contains(room) || accessible[room.getId()]) {
+                        take(reward.getItemName()); // in reach, or given straight to the player
+                    } else {
+                        spawnsInto.computeIfAbsent(room, r -> new ArrayList<>()).add(reward);
+                    }
+                } else if (reward.getType() == PuzzleReward.Type.REVEAL_CONNECTION
+                        && registry.contains(reward.getRoom()) && visited[reward.getRoom().getId()]) {
+                    enter(reward.getTarget());
+                }
+            }
+        }
+
+        void take(String itemName) {
+            String name = itemName.toLowerCase();
+            if (held.add(name)) {
+                List<Room> doors = waiting.remove(name);
+                if (doors != null) {
+                    for (Room door : doors) {
+                        enter(door);
+                    }
+                }
+            }
+        }
+
+        void checkWin(List<Issue> issues) {
+            String entrance = world.getEntrance().getName();
+            boolean exit = false;
+            for (Room room : rooms) {
+                exit |= room.isExit() && visited[room.getId()];
+            }
+            if (!exit) {
+                issues.add(new Issue(Severity.ERROR, Check.NOT_SOLVABLE, entrance, "no exit room can be reached"));
+            }
+            for (String name : world.getRequiredItems()) {
+                if (!held.contains(name.toLowerCase())) {
+                    issues.add(new Issue(Severity.ERROR, Check.NOT_SOLVABLE, name,
+                            "is needed to win but cannot be obtained"));
+                }
+            }
+            for (Room goal : world.getWinConditions().getGoalRooms()) {
+                if (registry.contains(goal) && !goal.getPuzzles().isEmpty() && !accessible[goal.getId()]) {
+                    issues.add(new Issue(Severity.ERROR, Check.NOT_SOLVABLE, goal.getName(),
+                            "is a goal room but cannot be reached"));
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        WorldTemplate world = null;
+        boolean solve = false;
+        int limit = 20;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--world":
+                    world = WorldTemplate.load(Path.of(args[++i]));
+                    break;
+                case "--generate":
+                    int rooms = Integer.parseInt(args[++i]);
+                    world = new WorldGenerator(Long.parseLong(args[++i])).rooms(rooms).generate();
+                    break;
+                case "--solve":
+                    solve = true;
+                    break;
+                case "--limit":
+                    limit = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.out.println("Usage: java WorldValidator [--world file | --generate rooms seed] [--solve]"
+                            + " [--limit N]");
+                    return;
+            }
+        }
+        if (world == null) {
+            world = WorldTemplate.getDefault();
+        }
+        Report report = new WorldValidator(world).solve(solve).validate();
+        report.print(System.out, limit);
+        if (!report.isValid()) {
+            System.exit(1);
+        }
+    }
+}
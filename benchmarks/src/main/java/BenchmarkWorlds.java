@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BenchmarkWorlds builds synthetic worlds of a given size for the benchmarks.
+ */
+public class BenchmarkWorlds {
+
+    /**
+     * A playable world of about roomCount rooms: the Entrance and numbered rooms
+     * connected as a binary tree (so the map stays shallow), each with a subroom
+     * holding a gem and a riddle, plus a 5B room with three puzzles and a locked
+     * Exit Room next to the Entrance.
+     */
+    public static WorldTemplate playable(int roomCount) {
+        int topLevel = Math.max(2, roomCount / 2);
+        ArrayList<Room> rooms = new ArrayList<>();
+        ArrayList<Room> numbered = new ArrayList<>(topLevel);
+        for (int i = 0; i < topLevel; i++) {
+            Room room = new Room(i == 0 ? "Entrance" : "Room " + i);
+            Room sub = new Room("Room " + i + " A");
+            sub.addContent(new Item("Gem " + i, i % 100, Item.ItemType.TOOL));
+            sub.addContent(new RiddlePuzzle("Riddle " + i, i % 5 + 1, "What is " + i + "?", "answer " + i));
+            room.addContent(sub);
+            numbered.add(room);
+            rooms.add(room);
+            rooms.add(sub);
+        }
+        for (int i = 0; i < topLevel; i++) {
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < topLevel; child++) {
+                numbered.get(i).addConnectedRoom(numbered.get(child));
+                numbered.get(child).addConnectedRoom(numbered.get(i));
+            }
+        }
+
+        Room entrance = numbered.get(0);
+        Room room5B = new Room("5B");
+        for (int p = 1; p <= 3; p++) {
+            room5B.addContent(new RiddlePuzzle("5B Puzzle " + p, p, "Riddle " + p + "?", "answer " + p));
+        }
+        entrance.addContent(room5B);
+        rooms.add(room5B);
+
+        Room exit = new Room("Exit Room", "Exit_Key");
+        exit.setExit(true);
+        entrance.addConnectedRoom(exit);
+        rooms.add(exit);
+
+        List<String> none = Collections.emptyList();
+        return new WorldTemplate(rooms, entrance, List.of("Exit_Key"), List.of(room5B), none,
+                Collections.emptyList());
+    }
+
+    /**
+     * A tree of about roomCount rooms nested as subrooms (four per room), each
+     * holding one item and one puzzle. Not frozen, so items can be removed.
+     * Rooms are returned in creation order; the last one is the last room a
+     * depth-first search from the root reaches.
+     */
+    public static ArrayList<Room> nested(int roomCount) {
+        ArrayList<Room> rooms = new ArrayList<>(roomCount);
+        rooms.add(newNestedRoom(0));
+        for (int i = 1; i < roomCount; i++) {
+            Room room = newNestedRoom(i);
+            rooms.get((i - 1) / 4).addContent(room);
+            rooms.add(room);
+        }
+        return rooms;
+    }
+
+    private static Room newNestedRoom(int i) {
+        Room room = new Room("Room " + i);
+        room.addContent(new Item("Item " + i, i % 100, Item.ItemType.CLUE));
+        room.addContent(new CodePuzzle("Puzzle " + i, i % 5 + 1, String.valueOf(i)));
+        return room;
+    }
+}
@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import bench.EngineWorkload;
+
+/**
+ * EngineBenchmarkWorkload runs one game session on a BenchmarkWorlds world and
+ * performs the operations measured by the engine benchmarks. Output goes to a
+ * sink that only counts characters.
+ */
+public class EngineBenchmarkWorkload implements EngineWorkload {
+    private static final long SEED = 42;
+
+    private GameEngine game;
+    private Player player;
+    private WorldState state;
+    private GameOutput out;
+    private int written; // characters printed since the last drain()
+
+    private Room entrance;
+    private Room neighbor;   // connected to the entrance
+    private Room gemRoom;    // subroom of the entrance holding "Gem 0"
+    private Room exit;
+    private Room room5B;
+
+    private ArrayList<Item> shuffledInventory;
+    private Item spareKey; // added and removed again by addAndRemoveKey
+    private ArrayList<Puzzle> shuffledPuzzles;
+    private ArrayList<Puzzle> puzzles; // sorted in place by sortPuzzlesByDifficulty
+
+    private GameEngine saved;    // session measured by saveSnapshot
+    private GameEngine restored; // session overwritten by restoreSnapshot
+    private byte[] snapshot;     // of saved
+
+    @Override
+    public void setUp(int worldSize, int inventorySize) {
+        WorldTemplate world = BenchmarkWorlds.playable(worldSize);
+        // every follow-up question (puzzle answers) gets the same wrong answer
+        game = new GameEngine(() -> "wrong answer", text -> written += text.length());
+        game.initializeGame(world);
+        player = game.getPlayer();
+        state = game.getState();
+        out = player.getOutput();
+
+        RoomRegistry rooms = world.getRooms();
+        entrance = world.getEntrance();
+        neighbor = rooms.findExact("Room 1");
+        gemRoom = rooms.findExact("Room 0 A");
+        exit = rooms.findExact("Exit Room");
+        room5B = rooms.findExact("5B");
+        state.markSolved(room5B.getPuzzles().get(0));
+
+        Random random = new Random(SEED);
+        shuffledInventory = new ArrayList<>(inventorySize);
+        shuffledPuzzles = new ArrayList<>(inventorySize);
+        for (int i = 0; i < inventorySize; i++) {
+            String name = randomName(random);
+            shuffledInventory.add(new Item(name, random.nextInt(1000), Item.ItemType.CLUE));
+            shuffledPuzzles.add(new CodePuzzle(name, random.nextInt(10) + 1, "0000"));
+        }
+        if (inventorySize > 0) {
+            // the required key is the last item, the worst case for a linear scan
+            shuffledInventory.set(inventorySize - 1, new Item("Exit_Key", 0, Item.ItemType.KEY));
+        }
+        spareKey = new Item("Spare Key", 5, Item.ItemType.KEY);
+        puzzles = new ArrayList<>(shuffledPuzzles);
+        for (Item item : shuffledInventory) {
+            player.addToInventory(item);
+        }
+        drain();
+
+        // The inventory above holds items from outside the world, which cannot be
+        // saved; the snapshot session picks up the gems of the world instead
+        saved = new GameEngine(() -> "", text -> { });
+        saved.initializeGame(world);
+        for (int i = 0; i < inventorySize; i++) {
+            Room sub = rooms.findExact("Room " + i + " A");
+            if (sub == null) {
+                break;
+            }
+            Item gem = sub.getItems().get(0);
+            saved.getState().removeItem(sub, gem);
+            saved.getPlayer().addToInventory(gem);
+            saved.getPlayer().moveTo(sub);
+        }
+        saved.getState().markSolved(room5B.getPuzzles().get(0));
+        snapshot = saved.saveSnapshot();
+        restored = new GameEngine(() -> "", text -> { });
+        restored.initializeGame(world);
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[8];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(name);
+    }
+
+    /**
+     * Flush the session output and return the number of characters printed.
+     */
+    private int drain() {
+        out.flush();
+        int n = written;
+        written = 0;
+        return n;
+    }
+
+    private int command(String line) {
+        try {
+            game.processCommand(line);
+        } catch (InvalidCommandException | LockedRoomException | InvalidPuzzleAnswerException e) {
+            out.println("Error: " + e.getMessage());
+        }
+        return drain();
+    }
+
+    @Override
+    public int look() {
+        return command("look");
+    }
+
+    @Override
+    public int move() {
+        int n = command("move room 1");
+        player.goBack();
+        return n;
+    }
+
+    @Override
+    public int back() {
+        player.moveTo(neighbor);
+        return command("back");
+    }
+
+    @Override
+    public int pickup() {
+        int n = command("pickup gem 0");
+        // put the gem back (as a spawned item) so the next pickup finds it again
+        Item gem = player.getInventory().remove("Gem 0", Item.ItemType.TOOL);
+        state.addItem(gemRoom, gem);
+        return n;
+    }
+
+    @Override
+    public int inventory() {
+        return command("inventory");
+    }
+
+    @Override
+    public int inventoryByValue() {
+        return command("inventory value");
+    }
+
+    @Override
+    public int inventoryAlphabetical() {
+        return command("inventory alpha");
+    }
+
+    @Override
+    public int solve() {
+        return command("solve riddle 0");
+    }
+
+    @Override
+    public int map() {
+        return command("map");
+    }
+
+    @Override
+    public int help() {
+        return command("help");
+    }
+
+    @Override
+    public int printFullMap() {
+        game.printFullMap();
+        return drain();
+    }
+
+    @Override
+    public int printRoomDFS() {
+        game.printRoomDFS(entrance, 0, new HashSet<>());
+        return drain();
+    }
+
+    @Override
+    public int listInventoryByValue() {
+        int sum = 0;
+        for (Item item : player.getInventory().byValue()) {
+            sum += item.getValue();
+        }
+        return sum;
+    }
+
+    @Override
+    public int listInventoryByName() {
+        int sum = 0;
+        for (Item item : player.getInventory().byName()) {
+            sum += item.getValue();
+        }
+        return sum;
+    }
+
+    @Override
+    public boolean hasKey() {
+        return player.hasKey("Exit_Key");
+    }
+
+    @Override
+    public boolean addAndRemoveKey() {
+        player.addToInventory(spareKey);
+        return player.removeKey(spareKey.getName());
+    }
+
+    @Override
+    public int sortPuzzlesByDifficulty() {
+        puzzles.clear();
+        puzzles.addAll(shuffledPuzzles);
+        game.sortPuzzlesByDifficulty(puzzles);
+        return puzzles.size();
+    }
+
+    @Override
+    public int saveSnapshot() {
+        return saved.saveSnapshot().length;
+    }
+
+    @Override
+    public int restoreSnapshot() {
+        try {
+            restored.restoreSnapshot(snapshot);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return restored.getTurnCounter();
+    }
+
+    @Override
+    public int winConditionCheck() {
+        if (player.getCurrentRoom() != exit) {
+            player.moveTo(exit);
+        }
+        game.winConditionCheck();
+        return drain();
+    }
+}
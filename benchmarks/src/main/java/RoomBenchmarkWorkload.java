@@ -0,0 +1,47 @@
+import java.util.ArrayList;
+
+import bench.RoomWorkload;
+
+/**
+ * RoomBenchmarkWorkload looks up items and puzzles in a BenchmarkWorlds.nested
+ * room tree, always searching from the root for something in the last room.
+ */
+public class RoomBenchmarkWorkload implements RoomWorkload {
+    private Room root;
+    private Room last;
+    private Item lastItem;
+    private String itemName;
+    private String puzzleName;
+
+    @Override
+    public void setUp(int worldSize) {
+        ArrayList<Room> rooms = BenchmarkWorlds.nested(worldSize);
+        root = rooms.get(0);
+        last = rooms.get(rooms.size() - 1);
+        lastItem = last.getItems().get(0);
+        itemName = lastItem.getName();
+        puzzleName = last.getPuzzles().get(0).getName();
+    }
+
+    @Override
+    public Object findItem() {
+        return root.findItem(itemName);
+    }
+
+    @Override
+    public Object findPuzzle() {
+        return root.findPuzzle(puzzleName);
+    }
+
+    @Override
+    public Object findMissingItem() {
+        return root.findItem("no such item");
+    }
+
+    @Override
+    public boolean removeItem() {
+        boolean removed = root.removeItem(lastItem);
+        last.addContent(lastItem);
+        return removed;
+    }
+}
@@ -0,0 +1,90 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GameEngine.processCommand, one benchmark per verb. Commands that change the
+ * session (move, back, pickup) are undone inside the same operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int worldSize;
+
+    @Param({"10", "1000"})
+    public int inventorySize;
+
+    private EngineWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.engine(worldSize, inventorySize);
+    }
+
+    @Benchmark
+    public int look() {
+        return workload.look();
+    }
+
+    @Benchmark
+    public int move() {
+        return workload.move();
+    }
+
+    @Benchmark
+    public int back() {
+        return workload.back();
+    }
+
+    @Benchmark
+    public int pickup() {
+        return workload.pickup();
+    }
+
+    @Benchmark
+    public int inventory() {
+        return workload.inventory();
+    }
+
+    @Benchmark
+    public int inventoryByValue() {
+        return workload.inventoryByValue();
+    }
+
+    @Benchmark
+    public int inventoryAlphabetical() {
+        return workload.inventoryAlphabetical();
+    }
+
+    @Benchmark
+    public int solve() {
+        return workload.solve();
+    }
+
+    @Benchmark
+    public int map() {
+        return workload.map();
+    }
+
+    @Benchmark
+    public int help() {
+        return workload.help();
+    }
+}
@@ -0,0 +1,60 @@
+package bench;
+
+/**
+ * Engine operations measured by the benchmarks. Implemented next to the game
+ * classes (default package) by EngineBenchmarkWorkload; every method performs
+ * one operation on a prepared session and returns a value for the Blackhole
+ * (usually the number of characters printed).
+ */
+public interface EngineWorkload {
+    /**
+     * Build a world of about worldSize rooms and a session whose player
+     * carries inventorySize items.
+     */
+    void setUp(int worldSize, int inventorySize);
+
+    // processCommand, one verb each
+    int look();
+
+    int move();
+
+    int back();
+
+    int pickup();
+
+    int inventory();
+
+    int inventoryByValue();
+
+    int inventoryAlphabetical();
+
+    int solve();
+
+    int map();
+
+    int help();
+
+    // engine and player internals
+    int printFullMap();
+
+    int printRoomDFS();
+
+    // inventory views and key checks (these replaced Player.sortInventory and
+    // sortInventoryAlphabetical)
+    int listInventoryByValue();
+
+    int listInventoryByName();
+
+    boolean hasKey();
+
+    boolean addAndRemoveKey();
+
+    int sortPuzzlesByDifficulty();
+
+    int winConditionCheck();
+
+    // session snapshots (a second session carrying up to inventorySize world items)
+    int saveSnapshot();
+
+    int restoreSnapshot();
+}
@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Player inventory: listing it by value and by name, key checks, and adding and
+ * removing a key, with inventorySize items carried.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+    @Param({"10", "100", "1000"})
+    public int inventorySize;
+
+    private EngineWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.engine(inventorySize, inventorySize);
+    }
+
+    @Benchmark
+    public int listByValue() {
+        return workload.listInventoryByValue();
+    }
+
+    @Benchmark
+    public int listByName() {
+        return workload.listInventoryByName();
+    }
+
+    @Benchmark
+    public boolean hasKey() {
+        return workload.hasKey();
+    }
+
+    @Benchmark
+    public boolean addAndRemoveKey() {
+        return workload.addAndRemoveKey();
+    }
+}
@@ -0,0 +1,47 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Map rendering: GameEngine.printFullMap (cached, see MapRenderer) and the
+ * uncached printRoomDFS from the entrance.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int worldSize;
+
+    private EngineWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.engine(worldSize, 0);
+    }
+
+    @Benchmark
+    public int printFullMap() {
+        return workload.printFullMap();
+    }
+
+    @Benchmark
+    public int printRoomDFS() {
+        return workload.printRoomDFS();
+    }
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Room.findItem, Room.findPuzzle and Room.removeItem on a tree of nested rooms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int worldSize;
+
+    private RoomWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.room(worldSize);
+    }
+
+    @Benchmark
+    public Object findItem() {
+        return workload.findItem();
+    }
+
+    @Benchmark
+    public Object findMissingItem() {
+        return workload.findMissingItem();
+    }
+
+    @Benchmark
+    public Object findPuzzle() {
+        return workload.findPuzzle();
+    }
+
+    @Benchmark
+    public boolean removeItem() {
+        return workload.removeItem();
+    }
+}
@@ -0,0 +1,24 @@
+package bench;
+
+/**
+ * Room lookups measured by RoomBenchmark. Implemented in the default package
+ * by RoomBenchmarkWorkload.
+ */
+public interface RoomWorkload {
+    /**
+     * Build a tree of about worldSize nested rooms.
+     */
+    void setUp(int worldSize);
+
+    /** Room.findItem for an item in the last room of the tree. */
+    Object findItem();
+
+    /** Room.findPuzzle for a puzzle in the last room of the tree. */
+    Object findPuzzle();
+
+    /** Room.findItem for a name that is not in the tree (full walk). */
+    Object findMissingItem();
+
+    /** Room.removeItem of an item in the last room of the tree (put back afterwards). */
+    boolean removeItem();
+}
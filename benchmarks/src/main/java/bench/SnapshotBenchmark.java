@@ -0,0 +1,50 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and restoring a session snapshot, with inventorySize world items
+ * carried and as many moves in the history.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"1000", "100000"})
+    public int worldSize;
+
+    @Param({"10", "100"})
+    public int inventorySize;
+
+    private EngineWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.engine(worldSize, inventorySize);
+    }
+
+    @Benchmark
+    public int save() {
+        return workload.saveSnapshot();
+    }
+
+    @Benchmark
+    public int restore() {
+        return workload.restoreSnapshot();
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GameEngine.sortPuzzlesByDifficulty. Every operation sorts a freshly shuffled
+ * list of inventorySize puzzles (the copy is part of the measurement).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+    @Param({"10", "100", "1000"})
+    public int inventorySize;
+
+    private EngineWorkload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.engine(inventorySize, inventorySize);
+    }
+
+    @Benchmark
+    public int sortPuzzlesByDifficulty() {
+        return workload.sortPuzzlesByDifficulty();
+    }
+}
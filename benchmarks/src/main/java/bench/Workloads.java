@@ -0,0 +1,32 @@
+package bench;
+
+/**
+ * JMH does not accept benchmarks in the default package, and a named package
+ * cannot refer to the game classes, which live in the default package. So the
+ * benchmark classes here only drive workloads that are written next to the game
+ * (default package) and loaded by name.
+ */
+final class Workloads {
+    private Workloads() {
+    }
+
+    static EngineWorkload engine(int worldSize, int inventorySize) {
+        EngineWorkload workload = create("EngineBenchmarkWorkload", EngineWorkload.class);
+        workload.setUp(worldSize, inventorySize);
+        return workload;
+    }
+
+    static RoomWorkload room(int worldSize) {
+        RoomWorkload workload = create("RoomBenchmarkWorkload", RoomWorkload.class);
+        workload.setUp(worldSize);
+        return workload;
+    }
+
+    private static <T> T create(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create benchmark workload " + className, e);
+        }
+    }
+}
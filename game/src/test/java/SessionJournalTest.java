@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SessionJournalTest {
+    private static final long SESSION = 0x5E55104L;
+
+    /**
+     * The journal size and the session state whenever the session waited for input;
+     * by then everything the session journaled is on disk.
+     */
+    private record Checkpoint(long journalSize, long stateHash) {
+    }
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Play a script in a journaled session and close the journal.
+     * @return the checkpoints, the last one after the session stopped
+     */
+    private List<Checkpoint> play(Path file, List<String> lines) throws IOException {
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        try (SessionJournal journal = SessionJournal.open(file, WorldTemplate.getDefault())) {
+            GameEngine[] game = new GameEngine[1];
+            game[0] = Sessions.newGame(Sessions.script(lines, game, g -> {
+                try {
+                    checkpoints.add(new Checkpoint(Files.size(file), g.stateHash()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            game[0].attachJournal(journal, SESSION);
+            game[0].start();
+            checkpoints.add(new Checkpoint(Files.size(file), game[0].stateHash()));
+        }
+        return checkpoints;
+    }
+
+    private static long recoveredHash(byte[] journal) throws IOException {
+        Map<Long, byte[]> sessions = SessionJournal.recover(journal, WorldTemplate.getDefault());
+        assertEquals(1, sessions.size());
+        return Sessions.restore(sessions.get(SESSION)).stateHash();
+    }
+
+    /**
+     * Checkpoints after which the next command journaled something.
+     */
+    private static List<Checkpoint> beforeRecords(List<Checkpoint> checkpoints) {
+        List<Checkpoint> before = new ArrayList<>();
+        for (int i = 0; i + 1 < checkpoints.size(); i++) {
+            if (checkpoints.get(i + 1).journalSize() > checkpoints.get(i).journalSize()) {
+                before.add(checkpoints.get(i));
+            }
+        }
+        assertTrue(before.size() > 10, "the walkthrough journals its commands");
+        return before;
+    }
+
+    @Test
+    void recoverRebuildsSession() throws IOException {
+        Path file = dir.resolve("sessions.journal");
+        List<Checkpoint> checkpoints = play(file, Sessions.WALKTHROUGH);
+        byte[] journal = Files.readAllBytes(file);
+
+        assertEquals(checkpoints.get(checkpoints.size() - 1).stateHash(), recoveredHash(journal));
+    }
+
+    @Test
+    void recordTornInTheMiddleIsIgnored() throws IOException {
+        Path file = dir.resolve("sessions.journal");
+        List<Checkpoint> checkpoints = play(file, Sessions.WALKTHROUGH);
+        byte[] journal = Files.readAllBytes(file);
+
+        for (Checkpoint checkpoint : beforeRecords(checkpoints)) {
+            // 12 bytes in: past the length and CRC, inside the (at least 9 byte) body
+            int cut = (int) checkpoint.journalSize() + 12;
+            assertEquals(checkpoint.stateHash(), recoveredHash(Arrays.copyOf(journal, cut)), "cut at " + cut);
+        }
+    }
+
+    @Test
+    void recordWithBadCrcEndsTheJournal() throws IOException {
+        Path file = dir.resolve("sessions.journal");
+        List<Checkpoint> checkpoints = play(file, Sessions.WALKTHROUGH);
+        byte[] journal = Files.readAllBytes(file);
+
+        for (Checkpoint checkpoint : beforeRecords(checkpoints)) {
+            byte[] corrupted = journal.clone();
+            corrupted[(int) checkpoint.journalSize() + 4] ^= 1; // CRC of the next record
+            assertEquals(checkpoint.stateHash(), recoveredHash(corrupted), "corrupt at " + checkpoint.journalSize());
+        }
+    }
+
+    @Test
+    void reopeningCompactsToOneSnapshotPerSession() throws IOException {
+        Path file = dir.resolve("sessions.journal");
+        List<Checkpoint> checkpoints = play(file, Sessions.WALKTHROUGH);
+        long expected = checkpoints.get(checkpoints.size() - 1).stateHash();
+        long size = Files.size(file);
+
+        for (int run = 0; run < 2; run++) {
+            try (SessionJournal journal = SessionJournal.open(file, WorldTemplate.getDefault())) {
+                Map<Long, byte[]> sessions = journal.getRecoveredSessions();
+                assertEquals(1, sessions.size());
+                assertEquals(expected, Sessions.restore(sessions.get(SESSION)).stateHash());
+            }
+            assertTrue(Files.size(file) < size, "the journal was rewritten");
+        }
+    }
+
+    @Test
+    void endedSessionIsDropped() throws IOException {
+        Path file = dir.resolve("sessions.journal");
+        List<String> lines = new ArrayList<>(Sessions.WALKTHROUGH.subList(0, 4));
+        lines.add("quit");
+        play(file, lines);
+
+        assertTrue(SessionJournal.recover(Files.readAllBytes(file), WorldTemplate.getDefault()).isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SessionSnapshotTest {
+
+    @Test
+    void varintsRoundTrip() throws IOException {
+        int[] values = {0, 1, 127, 128, 255, 16383, 16384, 1 << 21, 1 << 28, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        SessionSnapshot.Writer out = new SessionSnapshot.Writer();
+        for (int v : values) {
+            out.varint(v);
+        }
+        SessionSnapshot.Reader in = new SessionSnapshot.Reader(out.toByteArray());
+        for (int v : values) {
+            assertEquals(v, in.varint());
+        }
+        assertTrue(in.atEnd());
+    }
+
+    @Test
+    void varintTakesOneByteUpTo127() {
+        SessionSnapshot.Writer out = new SessionSnapshot.Writer();
+        out.varint(127);
+        assertEquals(1, out.size);
+        out.varint(128);
+        assertEquals(3, out.size);
+    }
+
+    @Test
+    void snapshotRestoresSessionAtEveryStep() {
+        List<Long> hashes = new ArrayList<>();
+        List<Long> restored = new ArrayList<>();
+        GameEngine[] game = new GameEngine[1];
+        game[0] = Sessions.newGame(Sessions.script(Sessions.WALKTHROUGH, game, g -> {
+            hashes.add(g.stateHash());
+            restored.add(Sessions.restore(g.saveSnapshot()).stateHash());
+        }));
+        game[0].start();
+
+        assertEquals(Sessions.WALKTHROUGH.size() + 1, hashes.size());
+        assertEquals(hashes, restored);
+        assertTrue(hashes.stream().distinct().count() > 10, "the walkthrough changes the session");
+    }
+
+    @Test
+    void snapshotOfAnotherWorldIsRejected() {
+        GameEngine game = Sessions.newGame(() -> null);
+        byte[] snapshot = game.saveSnapshot();
+        snapshot[5]++; // room count of the world
+        assertThrows(IOException.class, () -> game.restoreSnapshot(snapshot));
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Helpers shared by the tests: a scripted session on the built-in world.
+ */
+final class Sessions {
+    /**
+     * The walkthrough of transcripts/default.txt up to the Exit Room door, so the
+     * session is still in progress when its input ends. It picks up items, opens
+     * locked doors, solves puzzles (with a wrong answer) and is shown hints.
+     */
+    static final List<String> WALKTHROUGH = List.of(
+            "look", "m hallway", "m room1", "m 1a", "s 1a riddle", "map", "p key_r3", "m 1b", "s 1b riddle",
+            "keyboard", "p key_r4", "i", "b", "b", "m room 3", "s r3 puzzle", "echo", "p key_r5", "p small coin",
+            "p room3 gem", "inventory alpha", "b", "b", "m room 2", "m room 4", "m 4a", "m 4b", "s 4b code",
+            "7777", "p exit_key", "bogus", "m nowhere", "b", "b", "m room 5", "m 5a", "m 5b", "s 5b",
+            "s puzzle 1", "wrong", "s puzzle 1", "candle");
+
+    private Sessions() {
+    }
+
+    /**
+     * A session on the built-in world with no output.
+     */
+    static GameEngine newGame(LineSource input) {
+        GameEngine game = new GameEngine(input, text -> { });
+        game.initializeGame(WorldTemplate.getDefault());
+        return game;
+    }
+
+    /**
+     * The input lines of a script. Before each line is read (i.e. whenever the
+     * session waits for input) the session is passed to a callback.
+     */
+    static LineSource script(List<String> lines, GameEngine[] game, Consumer<GameEngine> beforeEachLine) {
+        Iterator<String> it = lines.iterator();
+        return () -> {
+            beforeEachLine.accept(game[0]);
+            return it.hasNext() ? it.next() : null;
+        };
+    }
+
+    /**
+     * A fresh session restored from a snapshot.
+     */
+    static GameEngine restore(byte[] snapshot) {
+        GameEngine game = newGame(() -> null);
+        try {
+            game.restoreSnapshot(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return game;
+    }
+}